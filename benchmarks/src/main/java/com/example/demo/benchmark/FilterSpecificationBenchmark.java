@@ -0,0 +1,88 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.entity.TaskEntity;
+import com.example.demo.service.TaskService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turning the request's filter map into a Specification, and that into a query Hibernate can run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterSpecificationBenchmark {
+
+    // Query parameters as the controller receives them, sort parameters included
+    @Param({"", "priority=HIGH", "completed=true", "priority=HIGH&completed=true&sortField=CREATED"})
+    String query;
+
+    private Map<String, String> filter;
+
+    private ConfigurableApplicationContext context;
+
+    private EntityManager entityManager;
+
+    @Setup
+    public void setUp() {
+        filter = new HashMap<>();
+        for (String parameter : query.split("&")) {
+            if (!parameter.isEmpty()) {
+                String[] pair = parameter.split("=");
+                filter.put(pair[0], pair[1]);
+            }
+        }
+        context = SeededApplication.start();
+        entityManager = context.getBean(EntityManagerFactory.class).createEntityManager();
+    }
+
+    @TearDown
+    public void tearDown() {
+        entityManager.close();
+        context.close();
+    }
+
+    @Benchmark
+    public Specification<TaskEntity> filterSpecification() {
+        return TaskService.filterSpecification(filter);
+    }
+
+    @Benchmark
+    public TypedQuery<Tuple> criteriaQuery() {
+        Specification<TaskEntity> spec = TaskService.filterSpecification(filter);
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> criteriaQuery = criteriaBuilder.createTupleQuery();
+        Root<TaskEntity> root = criteriaQuery.from(TaskEntity.class);
+        criteriaQuery.multiselect(root.get("taskId"), root.get("description"), root.get("priority"));
+        if (spec != null) {
+            criteriaQuery.where(spec.toPredicate(root, criteriaQuery, criteriaBuilder));
+        }
+        return entityManager.createQuery(criteriaQuery);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.demo.benchmark;
+
+/**
+ * The requests of the load workload, each sent at its own fixed rate.
+ */
+enum LoadEndpoint {
+
+    GET_TASK("get", "GET /task/{id}", "200"),
+    LIST_TASKS("list", "GET /task?limit=100", "20"),
+    CREATE_TASK("post", "POST /task", "20"),
+    UPDATE_TASK("put", "PUT /task/{id}", "20"),
+    DELETE_TASK("delete", "DELETE /task/{id}", "10");
+
+    private final String key;
+
+    private final String label;
+
+    private final String defaultRate;
+
+    LoadEndpoint(String key, String label, String defaultRate) {
+        this.key = key;
+        this.label = label;
+        this.defaultRate = defaultRate;
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    String getLabel() {
+        return label;
+    }
+
+    String getDefaultRate() {
+        return defaultRate;
+    }
+}
@@ -0,0 +1,287 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.entity.TaskPriority;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Seeds the application with generated tasks, starts it on a random port and sends each {@link LoadEndpoint} requests
+ * at its own fixed rate, then reports throughput and latency percentiles per endpoint and writes them to
+ * target/load-result.json.
+ *
+ * <p>Requests go out on schedule whether or not earlier ones have been answered, and latency counts from the time a
+ * request was due rather than from when it was sent, so a server that falls behind shows as queueing in the
+ * percentiles instead of as a quietly lower request rate. Each endpoint draws from its own random generator seeded from
+ * the settings, so two runs with the same settings send the same requests.
+ */
+public final class LoadHarness {
+
+    private static final String API_KEY_HEADER = "X-API-KEY";
+    private static final String API_KEY = "Guillermo";
+    private static final String PAGE_SIZE = "100";
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final Path RESULT_FILE = Path.of("target", "load-result.json");
+    private static final TaskPriority[] PRIORITIES = TaskPriority.values();
+
+    private final LoadSettings settings;
+
+    private final URI baseUri;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool(daemonThreads("load-client-"));
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(executor)
+            .build();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<LoadEndpoint, Statistics> statistics = new EnumMap<>(LoadEndpoint.class);
+
+    // Tasks created by the run, which are the ones it deletes so that the seeded tasks stay readable
+    private final Queue<Integer> createdTaskIds = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private long measuredFrom;
+
+    LoadHarness(LoadSettings settings, int port) {
+        this.settings = settings;
+        this.baseUri = URI.create("http://localhost:" + port);
+        for (LoadEndpoint endpoint : LoadEndpoint.values()) {
+            statistics.put(endpoint, new Statistics());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadSettings settings = LoadSettings.parse(args);
+        System.out.printf("Seeding %d tasks, %d subtasks on every %d%n", settings.tasks, settings.subTasks,
+                settings.subTaskInterval);
+        try (ConfigurableApplicationContext context = SeededApplication.startDeployed(settings.tasks,
+                settings.subTaskInterval, settings.subTasks)) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            LoadHarness harness = new LoadHarness(settings, port);
+            try {
+                harness.run();
+            } finally {
+                harness.executor.shutdownNow();
+            }
+            harness.report();
+        }
+    }
+
+    void run() throws InterruptedException {
+        System.out.printf("Warming up for %ds, measuring for %ds%n", settings.warmup.toSeconds(),
+                settings.duration.toSeconds());
+        long start = System.nanoTime();
+        measuredFrom = start + settings.warmup.toNanos();
+        long end = measuredFrom + settings.duration.toNanos();
+
+        List<Thread> drivers = new ArrayList<>();
+        for (LoadEndpoint endpoint : LoadEndpoint.values()) {
+            double rate = settings.rate(endpoint);
+            if (rate > 0) {
+                Thread driver = new Thread(() -> drive(endpoint, (long) (TimeUnit.SECONDS.toNanos(1) / rate), start,
+                        end), "load-" + endpoint.getKey());
+                driver.setDaemon(true);
+                driver.start();
+                drivers.add(driver);
+            }
+        }
+        for (Thread driver : drivers) {
+            driver.join();
+        }
+
+        long deadline = System.nanoTime() + REQUEST_TIMEOUT.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private void drive(LoadEndpoint endpoint, long interval, long start, long end) {
+        SplittableRandom random = new SplittableRandom(settings.seed + endpoint.ordinal());
+        for (long due = start; due < end; due += interval) {
+            for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                LockSupport.parkNanos(wait);
+            }
+            send(endpoint, due, request(endpoint, random));
+        }
+    }
+
+    private void send(LoadEndpoint endpoint, long due, HttpRequest request) {
+        Statistics endpointStatistics = statistics.get(endpoint);
+        boolean measured = due >= measuredFrom;
+        if (request == null) {
+            if (measured) {
+                endpointStatistics.skipped.increment();
+            }
+            return;
+        }
+        inFlight.incrementAndGet();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .whenComplete((response, failure) -> {
+                    long latency = System.nanoTime() - due;
+                    boolean succeeded = failure == null && response.statusCode() / 100 == 2;
+                    if (succeeded && endpoint == LoadEndpoint.CREATE_TASK) {
+                        createdTaskIds.add(taskId(response.body()));
+                    }
+                    if (measured) {
+                        if (succeeded) {
+                            endpointStatistics.latencies.recordValue(TimeUnit.NANOSECONDS.toMicros(latency));
+                        } else {
+                            endpointStatistics.errors.increment();
+                        }
+                    }
+                    inFlight.decrementAndGet();
+                });
+    }
+
+    // Null when there is nothing to send, which is a DELETE with no created task left
+    private HttpRequest request(LoadEndpoint endpoint, SplittableRandom random) {
+        switch (endpoint) {
+            case GET_TASK:
+                return request("/task/" + seededTaskId(random)).GET().build();
+            case LIST_TASKS:
+                return request("/task?limit=" + PAGE_SIZE + "&priority=" + PRIORITIES[random.nextInt(PRIORITIES.length)]
+                        + "&completed=" + random.nextBoolean()).GET().build();
+            case CREATE_TASK:
+                return request("/task").header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(task(random, true))).build();
+            case UPDATE_TASK:
+                return request("/task/" + seededTaskId(random)).header("Content-Type", "application/json")
+                        .PUT(HttpRequest.BodyPublishers.ofByteArray(task(random, false))).build();
+            case DELETE_TASK:
+                Integer taskId = createdTaskIds.poll();
+                return taskId == null ? null : request("/task/" + taskId).DELETE().build();
+            default:
+                throw new IllegalArgumentException("Unknown endpoint " + endpoint);
+        }
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(baseUri.resolve(path))
+                .timeout(REQUEST_TIMEOUT)
+                .header(API_KEY_HEADER, API_KEY);
+    }
+
+    private int seededTaskId(SplittableRandom random) {
+        return SeededApplication.FIRST_TASK_ID + random.nextInt(settings.tasks);
+    }
+
+    // Created tasks get subtasks as often as seeded ones; updates leave the subtasks alone
+    private byte[] task(SplittableRandom random, boolean withSubTasks) {
+        Map<String, Object> task = new LinkedHashMap<>();
+        task.put("description", "Load task " + random.nextInt(1_000_000));
+        task.put("completed", random.nextBoolean());
+        task.put("priority", PRIORITIES[random.nextInt(PRIORITIES.length)]);
+        if (withSubTasks && settings.subTaskInterval > 0 && random.nextInt(settings.subTaskInterval) == 0) {
+            List<Map<String, Object>> subTasks = new ArrayList<>();
+            for (int i = 1; i <= settings.subTasks; i++) {
+                subTasks.add(Map.of("description", "Load subtask " + i, "completed", false, "priority", i % 3));
+            }
+            task.put("subTasks", subTasks);
+        }
+        try {
+            return objectMapper.writeValueAsBytes(task);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int taskId(byte[] body) {
+        try {
+            return objectMapper.readTree(body).get("taskId").asInt();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void report() throws IOException {
+        double seconds = settings.duration.toMillis() / 1000.0;
+        List<Map<String, Object>> results = new ArrayList<>();
+        System.out.printf("%n%-22s %9s %7s %8s %10s %9s %9s %9s %9s%n", "Endpoint", "Requests", "Errors", "Skipped",
+                "Req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        statistics.forEach((endpoint, endpointStatistics) -> {
+            Histogram latencies = endpointStatistics.latencies;
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("endpoint", endpoint.getLabel());
+            result.put("targetRate", settings.rate(endpoint));
+            result.put("requests", latencies.getTotalCount());
+            result.put("errors", endpointStatistics.errors.sum());
+            result.put("skipped", endpointStatistics.skipped.sum());
+            result.put("throughput", latencies.getTotalCount() / seconds);
+            result.put("p50Millis", millis(latencies, 50));
+            result.put("p99Millis", millis(latencies, 99));
+            result.put("p999Millis", millis(latencies, 99.9));
+            result.put("maxMillis", latencies.getMaxValue() / 1000.0);
+            results.add(result);
+            System.out.printf("%-22s %9d %7d %8d %10.1f %9.2f %9.2f %9.2f %9.2f%n", result.get("endpoint"),
+                    result.get("requests"), result.get("errors"), result.get("skipped"), result.get("throughput"),
+                    result.get("p50Millis"), result.get("p99Millis"), result.get("p999Millis"), result.get("maxMillis"));
+        });
+        if (inFlight.get() > 0) {
+            System.out.printf("%d requests still unanswered after %ds%n", inFlight.get(), REQUEST_TIMEOUT.toSeconds());
+        }
+
+        Map<String, Object> settingsResult = new LinkedHashMap<>();
+        settingsResult.put("tasks", settings.tasks);
+        settingsResult.put("subTaskInterval", settings.subTaskInterval);
+        settingsResult.put("subTasks", settings.subTasks);
+        settingsResult.put("warmupSeconds", settings.warmup.toSeconds());
+        settingsResult.put("durationSeconds", settings.duration.toSeconds());
+        settingsResult.put("seed", settings.seed);
+        Files.createDirectories(RESULT_FILE.getParent());
+        objectMapper.enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(RESULT_FILE.toFile(), Map.of("settings", settingsResult, "endpoints", results));
+        System.out.printf("%nWritten to %s%n", RESULT_FILE.toAbsolutePath());
+    }
+
+    private static double millis(Histogram latencies, double percentile) {
+        return latencies.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static CustomizableThreadFactory daemonThreads(String prefix) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(prefix);
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+
+    private static final class Statistics {
+
+        // Microseconds of the answered requests, resizing to whatever the slowest takes
+        private final Histogram latencies = new ConcurrentHistogram(3);
+
+        private final LongAdder errors = new LongAdder();
+
+        private final LongAdder skipped = new LongAdder();
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.demo.benchmark;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dataset and workload of a load run, from name=value arguments. Rates are requests per second, durations seconds.
+ */
+final class LoadSettings {
+
+    final int tasks;
+
+    final int subTaskInterval;
+
+    final int subTasks;
+
+    final Duration warmup;
+
+    final Duration duration;
+
+    final long seed;
+
+    private final Map<LoadEndpoint, Double> rates = new EnumMap<>(LoadEndpoint.class);
+
+    private LoadSettings(Map<String, String> values) {
+        tasks = Integer.parseInt(take(values, "tasks", "100000"));
+        subTaskInterval = Integer.parseInt(take(values, "sub-task-interval", "10"));
+        subTasks = Integer.parseInt(take(values, "sub-tasks", "3"));
+        warmup = Duration.ofSeconds(Long.parseLong(take(values, "warmup", "15")));
+        duration = Duration.ofSeconds(Long.parseLong(take(values, "duration", "60")));
+        seed = Long.parseLong(take(values, "seed", "42"));
+        for (LoadEndpoint endpoint : LoadEndpoint.values()) {
+            rates.put(endpoint, Double.parseDouble(take(values, endpoint.getKey(), endpoint.getDefaultRate())));
+        }
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown settings " + values.keySet());
+        }
+        if (tasks < 1) {
+            throw new IllegalArgumentException("tasks must be positive");
+        }
+    }
+
+    static LoadSettings parse(String... args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 1) {
+                throw new IllegalArgumentException("Expected name=value, got " + arg);
+            }
+            values.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        return new LoadSettings(values);
+    }
+
+    double rate(LoadEndpoint endpoint) {
+        return rates.get(endpoint);
+    }
+
+    private static String take(Map<String, String> values, String name, String defaultValue) {
+        String value = values.remove(name);
+        return value == null ? defaultValue : value;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.DemoApplication;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Starts the application on an in-memory H2 database with the test profile's schema, optionally seeded with generated
+ * tasks before anything reads from it.
+ */
+final class SeededApplication {
+
+    // The test profile's migration seeds tasks 1 and 2
+    static final int FIRST_TASK_ID = 3;
+
+    // As arguments, because properties set on the builder are only defaults that application.properties overrides
+    private static final String[] COMMON_ARGS = {"--server.port=0", "--logging.level.root=WARN"};
+
+    // Cached entries expire at once and the in-memory indexes are off, so that every read measured goes to the database
+    private static final String[] DATABASE_ONLY_ARGS = {
+            "--task.cache.by-id.expire-after-write=0s",
+            "--task.cache.lists.expire-after-write=0s",
+            "--task.read-model.enabled=false",
+            "--task.search.enabled=false"
+    };
+
+    private SeededApplication() {
+    }
+
+    static ConfigurableApplicationContext start() {
+        return run(null, DATABASE_ONLY_ARGS);
+    }
+
+    /**
+     * Starts the application with the caches and indexes out of the way, and inserts tasks with ids from
+     * {@link #FIRST_TASK_ID}. Every tenth task gets three subtasks.
+     */
+    static ConfigurableApplicationContext start(int tasks) {
+        return run(jdbcTemplate -> seed(jdbcTemplate, tasks, 10, 3), DATABASE_ONLY_ARGS);
+    }
+
+    /**
+     * Starts the application as application.properties configures it, caches and search index included, and inserts
+     * tasks with ids from {@link #FIRST_TASK_ID}. Every subTaskInterval-th task gets subTasks subtasks.
+     */
+    static ConfigurableApplicationContext startDeployed(int tasks, int subTaskInterval, int subTasks) {
+        return run(jdbcTemplate -> seed(jdbcTemplate, tasks, subTaskInterval, subTasks));
+    }
+
+    private static ConfigurableApplicationContext run(Consumer<JdbcTemplate> seed, String... args) {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(DemoApplication.class).profiles("test");
+        if (seed != null) {
+            // Seeding right after the migrations keeps it ahead of the indexes and counters built at startup
+            FlywayMigrationStrategy migrateAndSeed = flyway -> {
+                flyway.migrate();
+                seed.accept(new JdbcTemplate(flyway.getConfiguration().getDataSource()));
+            };
+            builder.initializers(context -> context.getBeanFactory()
+                    .registerSingleton("migrateAndSeed", migrateAndSeed));
+        }
+        return builder.run(Stream.concat(Arrays.stream(COMMON_ARGS), Arrays.stream(args)).toArray(String[]::new));
+    }
+
+    // Spreads the tasks over priorities, completion and creation dates
+    private static void seed(JdbcTemplate jdbcTemplate, int tasks, int subTaskInterval, int subTasks) {
+        jdbcTemplate.update("INSERT INTO task_entity (task_id, description, completed, priority, created, updated) " +
+                "SELECT X + " + (FIRST_TASK_ID - 1) + ", 'Task ' || X, MOD(X, 2) = 0, " +
+                "CASE MOD(X, 3) WHEN 0 THEN 'LOW' WHEN 1 THEN 'MEDIUM' ELSE 'HIGH' END, " +
+                "DATEADD(SECOND, MOD(X * 7919, " + tasks + "), TIMESTAMP '2024-01-01 00:00:00'), " +
+                "DATEADD(SECOND, X, TIMESTAMP '2024-01-01 00:00:00') " +
+                "FROM SYSTEM_RANGE(1, " + tasks + ")");
+        int subTaskCount = subTaskInterval < 1 ? 0 : (tasks + subTaskInterval - 1) / subTaskInterval * subTasks;
+        if (subTaskCount > 0) {
+            jdbcTemplate.update("INSERT INTO sub_task_entity (sub_task_id, description, completed, priority, task_id) " +
+                    "SELECT X, 'Subtask ' || X, MOD(X, 2) = 0, MOD(X, 3), " +
+                    "(X - 1) / " + subTasks + " * " + subTaskInterval + " + " + FIRST_TASK_ID + " " +
+                    "FROM SYSTEM_RANGE(1, " + subTaskCount + ")");
+        }
+        // Ids handed out by Hibernate continue after the inserted rows
+        jdbcTemplate.update("ALTER SEQUENCE task_entity_seq RESTART WITH " + (tasks + FIRST_TASK_ID));
+        jdbcTemplate.update("ALTER SEQUENCE sub_task_entity_seq RESTART WITH " + (subTaskCount + 1));
+    }
+}
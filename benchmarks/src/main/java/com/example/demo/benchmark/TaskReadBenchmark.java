@@ -0,0 +1,96 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.repository.TaskRepository;
+import com.example.demo.service.TaskService;
+import com.example.demo.util.TaskField;
+import com.example.demo.view.TaskView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.demo.service.TaskService.filterSpecification;
+
+/**
+ * Repository and service reads against H2 seeded with each number of tasks, the caches out of the way.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class TaskReadBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    private static final Map<String, String> HIGH_PRIORITY = Map.of("priority", "HIGH");
+
+    private static final Map<String, String> OPEN_HIGH_PRIORITY = Map.of("priority", "HIGH", "completed", "false");
+
+    private static final Set<TaskField> WITHOUT_SUB_TASKS = TaskField.parse("taskId,description,completed,priority");
+
+    @Param({"10000", "100000", "1000000"})
+    int tasks;
+
+    private ConfigurableApplicationContext context;
+
+    private TaskRepository taskRepository;
+
+    private TaskService taskService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = SeededApplication.start(tasks);
+        taskRepository = context.getBean(TaskRepository.class);
+        taskService = context.getBean(TaskService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<TaskView> findViewById() {
+        return taskRepository.findViewById(randomTaskId());
+    }
+
+    @Benchmark
+    public List<TaskView> findFirstPage() {
+        return taskRepository.findViews(filterSpecification(HIGH_PRIORITY),
+                Sort.by("created").and(Sort.by("taskId")), PAGE_SIZE, TaskField.ALL);
+    }
+
+    @Benchmark
+    public List<TaskView> getAllTasks() {
+        return taskService.getAllTasks(OPEN_HIGH_PRIORITY, Sort.by("created"), TaskField.ALL);
+    }
+
+    @Benchmark
+    public List<TaskView> getAllTasksWithoutSubTasks() {
+        return taskService.getAllTasks(OPEN_HIGH_PRIORITY, Sort.by("created"), WITHOUT_SUB_TASKS);
+    }
+
+    private int randomTaskId() {
+        return SeededApplication.FIRST_TASK_ID + ThreadLocalRandom.current().nextInt(tasks);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.readmodel.TaskReadModel;
+import com.example.demo.repository.TaskRepository;
+import com.example.demo.view.TaskView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Sort;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.demo.service.TaskService.filterSpecification;
+
+/**
+ * Listing the ids of the matching tasks in order, from the read model and from the query it saves, whole and as the
+ * first page. The tasks themselves are read by id either way, so that read is left out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class TaskReadModelBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"100000", "1000000"})
+    int tasks;
+
+    // Query parameters as the controller receives them
+    @Param({"priority=HIGH", "completed=true", "priority=HIGH&completed=true"})
+    String query;
+
+    @Param({"created", "priority"})
+    String sortField;
+
+    private Map<String, String> filter;
+
+    private Sort sort;
+
+    private ConfigurableApplicationContext context;
+
+    private TaskRepository taskRepository;
+
+    private TaskReadModel taskReadModel;
+
+    @Setup(Level.Trial)
+    public void setUp() throws InterruptedException {
+        filter = new HashMap<>();
+        for (String parameter : query.split("&")) {
+            String[] pair = parameter.split("=");
+            filter.put(pair[0], pair[1]);
+        }
+        sort = Sort.by(sortField).and(Sort.by("taskId"));
+        context = SeededApplication.start(tasks);
+        taskRepository = context.getBean(TaskRepository.class);
+
+        // SeededApplication leaves the application's read model off, so that the queries are not answered by it
+        taskReadModel = new TaskReadModel(taskRepository, true);
+        taskReadModel.onApplicationReady();
+        while (!taskReadModel.isReady()) {
+            Thread.sleep(100);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        taskReadModel.shutdown();
+        context.close();
+    }
+
+    @Benchmark
+    public List<TaskView> listByQuery() {
+        return taskRepository.findViews(filterSpecification(filter), sort, -1, Set.of());
+    }
+
+    @Benchmark
+    public int[] listByReadModel() {
+        return taskReadModel.getTaskIds(filter, sort).orElseThrow();
+    }
+
+    @Benchmark
+    public List<TaskView> firstPageByQuery() {
+        return taskRepository.findViews(filterSpecification(filter), sort, PAGE_SIZE + 1, Set.of());
+    }
+
+    @Benchmark
+    public int[] firstPageByReadModel() {
+        return taskReadModel.getTaskIds(filter, sort, null, PAGE_SIZE + 1).orElseThrow();
+    }
+}
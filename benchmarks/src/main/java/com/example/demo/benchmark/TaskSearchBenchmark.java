@@ -0,0 +1,100 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.entity.TaskEntity;
+import com.example.demo.repository.TaskRepository;
+import com.example.demo.search.TaskSearchIndex;
+import com.example.demo.util.TaskField;
+import com.example.demo.view.TaskView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The search index against the LIKE scan it replaces, over descriptions built from a small vocabulary. Ranking needs
+ * every match, so the scan reads the ids of all of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class TaskSearchBenchmark {
+
+    private static final int LIMIT = 100;
+
+    private static final Map<String, String> COMPLETED = Map.of("completed", "true");
+
+    @Param({"100000", "1000000"})
+    int tasks;
+
+    @Param({"client 4242", "milk", "fix rep", "invoice"})
+    String query;
+
+    private ConfigurableApplicationContext context;
+
+    private TaskRepository taskRepository;
+
+    private TaskSearchIndex taskSearchIndex;
+
+    private Specification<TaskEntity> like;
+
+    @Setup(Level.Trial)
+    public void setUp() throws InterruptedException {
+        context = SeededApplication.start(tasks);
+        context.getBean(JdbcTemplate.class).update("UPDATE task_entity SET description = " +
+                "CASE MOD(task_id, 5) WHEN 0 THEN 'Buy' WHEN 1 THEN 'Call' WHEN 2 THEN 'Fix' WHEN 3 THEN 'Plan' " +
+                "ELSE 'Review' END || ' ' || " +
+                "CASE MOD(task_id, 7) WHEN 0 THEN 'milk' WHEN 1 THEN 'printer' WHEN 2 THEN 'report' " +
+                "WHEN 3 THEN 'budget' WHEN 4 THEN 'meeting' WHEN 5 THEN 'garden' ELSE 'invoice' END || " +
+                "' for client ' || MOD(task_id * 7919, 100000)");
+        taskRepository = context.getBean(TaskRepository.class);
+
+        String pattern = "%" + query.replace(' ', '%') + "%";
+        like = (root, criteriaQuery, criteriaBuilder) -> criteriaBuilder.and(
+                criteriaBuilder.like(criteriaBuilder.lower(root.get("description")), pattern),
+                criteriaBuilder.isTrue(root.get("completed")));
+
+        // SeededApplication leaves the application's index off, so this one is built after the descriptions changed
+        taskSearchIndex = new TaskSearchIndex(taskRepository, true);
+        taskSearchIndex.onApplicationReady();
+        while (!taskSearchIndex.isReady()) {
+            Thread.sleep(100);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        taskSearchIndex.shutdown();
+        context.close();
+    }
+
+    @Benchmark
+    public List<TaskView> likeScan() {
+        return taskRepository.findViews(like, Sort.unsorted(), -1, Set.of(TaskField.TASK_ID));
+    }
+
+    @Benchmark
+    public List<Integer> searchIndex() {
+        return taskSearchIndex.search(query, COMPLETED, LIMIT).orElseThrow();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.config.jackson.JacksonConfig;
+import com.example.demo.entity.SubTaskEntity;
+import com.example.demo.entity.TaskEntity;
+import com.example.demo.entity.TaskPriority;
+import com.example.demo.view.SubTaskView;
+import com.example.demo.view.TaskView;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing one task with its subtasks as JSON, both the entity the single task endpoints return and the view the
+ * listings return.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskSerializationBenchmark {
+
+    @Param({"0", "10", "1000"})
+    int subTasks;
+
+    private ObjectMapper objectMapper;
+
+    private TaskEntity entity;
+
+    private TaskView view;
+
+    @Setup
+    public void setUp() {
+        // Configured as the application configures its ObjectMapper
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        new JacksonConfig().taskFieldFilter().customize(builder);
+        objectMapper = builder.build();
+
+        Timestamp now = Timestamp.from(Instant.now());
+        entity = new TaskEntity(1, "Task 1", false, TaskPriority.HIGH, now, now, 3, null);
+        Set<SubTaskEntity> subTaskEntities = new HashSet<>();
+        List<SubTaskView> subTaskViews = new ArrayList<>();
+        for (int i = 1; i <= subTasks; i++) {
+            subTaskEntities.add(new SubTaskEntity(i, "Subtask " + i, i % 2 == 0, 1, i % 3, entity));
+            subTaskViews.add(new SubTaskView(i, "Subtask " + i, i % 2 == 0, 1, i % 3));
+        }
+        entity.setSubTasks(subTaskEntities);
+        view = new TaskView(1, "Task 1", false, TaskPriority.HIGH, now, now, 3, subTaskViews);
+    }
+
+    @Benchmark
+    public byte[] taskEntity() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(entity);
+    }
+
+    @Benchmark
+    public byte[] taskView() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(view);
+    }
+}
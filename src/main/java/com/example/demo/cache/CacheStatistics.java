@@ -0,0 +1,30 @@
+package com.example.demo.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.Value;
+
+@Value
+public class CacheStatistics {
+
+    long size;
+
+    long hitCount;
+
+    long missCount;
+
+    double hitRate;
+
+    long evictionCount;
+
+    long invalidationCount;
+
+    // Misses that waited for a load another caller had already started instead of querying themselves
+    long coalescedCount;
+
+    static CacheStatistics of(Cache<?, ?> cache, long invalidationCount, long coalescedCount) {
+        CacheStats stats = cache.stats();
+        return new CacheStatistics(cache.estimatedSize(), stats.hitCount(), stats.missCount(), stats.hitRate(),
+                stats.evictionCount(), invalidationCount, coalescedCount);
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.demo.cache;
+
+import com.example.demo.event.TaskChangedEvent;
+import com.example.demo.util.TaskField;
+import com.example.demo.view.TaskView;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntFunction;
+
+/**
+ * Read-through cache of assembled tasks by id.
+ * <p>
+ * Loads run outside the cache's map, so an invalidation never waits for a query. That matters because invalidation
+ * runs after commit on a thread still holding its connection, while a load can be waiting for one. A loaded task is
+ * stored only if its task was not invalidated since the load began, checked under the key's lock. An invalidation
+ * either comes before that check and the task is dropped, or it removes the key after the task was stored.
+ * <p>
+ * Invalidations are told apart by a stamp per stripe of task ids, so a write only discards the loads in flight for
+ * the tasks on its stripe, one in {@link #STAMP_STRIPES}, instead of every load. Concurrent misses for the same task
+ * share one load. The flights are keyed by the task's stamp, so a caller that comes after an invalidation never joins
+ * a load that started before it.
+ */
+@Component
+public class TaskCache {
+
+    static final int STAMP_STRIPES = 4096;
+
+    private final Cache<Integer, TaskView> cache;
+
+    private final SingleFlight<Flight, Optional<TaskView>> flights = new SingleFlight<>();
+
+    // Moved by invalidations of the ids on a stripe and by invalidateAll. Both only grow, so a task's stamp, their
+    // sum, changes with every invalidation that covers the task
+    private final AtomicLongArray stripeStamps = new AtomicLongArray(STAMP_STRIPES);
+
+    private final AtomicLong allStamp = new AtomicLong();
+
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public TaskCache(@Value("${task.cache.by-id.maximum-size:10000}") long maximumSize,
+                     @Value("${task.cache.by-id.expire-after-write:5m}") Duration expireAfterWrite) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    public Optional<TaskView> get(int id, IntFunction<Optional<TaskView>> loader) {
+        TaskView cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        long stamp = stamp(id);
+        return flights.run(new Flight(id, TaskField.ALL, stamp), () -> {
+            Optional<TaskView> task = loader.apply(id);
+            task.ifPresent(view -> cache.asMap()
+                    .compute(id, (key, current) -> stamp(id) == stamp ? view : current));
+            return task;
+        });
+    }
+
+    public Optional<TaskView> get(int id, Set<TaskField> fields, IntFunction<Optional<TaskView>> loader) {
+        TaskView cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        return flights.run(new Flight(id, fields, stamp(id)), () -> loader.apply(id));
+    }
+
+    public Optional<TaskView> getIfPresent(int id) {
+        return Optional.ofNullable(cache.getIfPresent(id));
+    }
+
+    public void invalidate(int id) {
+        invalidations.incrementAndGet();
+        stripeStamps.incrementAndGet(id & (STAMP_STRIPES - 1));
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        allStamp.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    public CacheStatistics statistics() {
+        return CacheStatistics.of(cache, invalidations.get(), flights.getCoalescedCount());
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskChanged(TaskChangedEvent event) {
+        if (event.isBulk()) {
+            invalidateAll();
+        } else if (event.getType() != TaskChangedEvent.Type.CREATED) {
+            invalidate(event.getTaskId());
+        }
+    }
+
+    private long stamp(int id) {
+        return allStamp.get() + stripeStamps.get(id & (STAMP_STRIPES - 1));
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static class Flight {
+
+        private final int id;
+
+        private final Set<TaskField> fields;
+
+        private final long stamp;
+    }
+}
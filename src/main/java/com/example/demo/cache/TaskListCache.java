@@ -0,0 +1,104 @@
+package com.example.demo.cache;
+
+import com.example.demo.event.TaskChangedEvent;
+import com.example.demo.view.TaskView;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Caches task listings by normalized filter, sort and page. Every committed write bumps a global version instead of
+ * touching the entries, and an entry only answers reads while its version is current. The version is read before
+ * the query runs, so a listing that raced with a write is stored as already stale. Concurrent misses for the same
+ * key and version share one query.
+ */
+@Component
+public class TaskListCache {
+
+    private final Cache<TaskListKey, Entry> cache;
+
+    private final SingleFlight<Flight, List<TaskView>> flights = new SingleFlight<>();
+
+    private final AtomicLong writeVersion = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    public TaskListCache(@Value("${task.cache.lists.maximum-weight:100000}") long maximumWeight,
+                         @Value("${task.cache.lists.expire-after-write:5m}") Duration expireAfterWrite) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher((TaskListKey key, Entry entry) -> entry.getTasks().size() + 1)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    public List<TaskView> get(TaskListKey key, Supplier<List<TaskView>> loader) {
+        long version = writeVersion.get();
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null && entry.getVersion() == version) {
+            hits.increment();
+            return entry.getTasks();
+        }
+
+        misses.increment();
+        return flights.run(new Flight(key, version), () -> {
+            List<TaskView> tasks = List.copyOf(loader.get());
+            cache.asMap().merge(key, new Entry(version, tasks),
+                    (current, loaded) -> current.getVersion() >= loaded.getVersion() ? current : loaded);
+            return tasks;
+        });
+    }
+
+    public long getWriteVersion() {
+        return writeVersion.get();
+    }
+
+    public CacheStatistics statistics() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long requests = hitCount + missCount;
+        return new CacheStatistics(cache.estimatedSize(), hitCount, missCount,
+                requests == 0 ? 1.0 : (double) hitCount / requests, cache.stats().evictionCount(), writeVersion.get(),
+                flights.getCoalescedCount());
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskChanged(TaskChangedEvent event) {
+        writeVersion.incrementAndGet();
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Entry {
+
+        private final long version;
+
+        private final List<TaskView> tasks;
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static class Flight {
+
+        private final TaskListKey key;
+
+        private final long version;
+    }
+}
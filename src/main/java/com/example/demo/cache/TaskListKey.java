@@ -0,0 +1,35 @@
+package com.example.demo.cache;
+
+import com.example.demo.entity.TaskPriority;
+import com.example.demo.util.TaskCursor;
+import com.example.demo.util.TaskField;
+import com.example.demo.util.TaskFilter;
+import lombok.Value;
+import org.springframework.data.domain.Sort;
+
+import java.util.Map;
+import java.util.Set;
+
+@Value
+public class TaskListKey {
+
+    TaskPriority priority;
+
+    Boolean completed;
+
+    Sort sort;
+
+    TaskCursor cursor;
+
+    int limit;
+
+    Set<TaskField> fields;
+
+    public static TaskListKey of(Map<String, String> filter, Sort sort, TaskCursor cursor, int limit,
+                                 Set<TaskField> fields) {
+        String priority = filter.get(TaskFilter.PRIORITY.getTaskFilter());
+        String completed = filter.get(TaskFilter.COMPLETED.getTaskFilter());
+        return new TaskListKey(priority == null ? null : TaskPriority.valueOf(priority),
+                completed == null ? null : Boolean.parseBoolean(completed), sort, cursor, limit, fields);
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.demo.config.jackson;
+
+import com.example.demo.view.TaskView;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JacksonConfig {
+
+    // TaskView carries a @JsonFilter for sparse fieldsets; without a fields selection every property is written
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer taskFieldFilter() {
+        return builder -> builder.filters(new SimpleFilterProvider()
+                .addFilter(TaskView.FIELD_FILTER, SimpleBeanPropertyFilter.serializeAll()));
+    }
+}
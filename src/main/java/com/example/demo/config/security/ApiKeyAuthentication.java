@@ -5,13 +5,17 @@ import org.springframework.security.core.GrantedAuthority;
 
 import java.util.Collection;
 
+/**
+ * Authentication of an API client, named by its principal. One is built per client when the keys are loaded and shared
+ * by every request the client makes, so it cannot be changed after construction.
+ */
 public class ApiKeyAuthentication extends AbstractAuthenticationToken {
-    private final String apiKey;
+    private final String client;
 
-    public ApiKeyAuthentication(String apiKey, Collection<? extends GrantedAuthority> authorities) {
+    public ApiKeyAuthentication(String client, Collection<? extends GrantedAuthority> authorities) {
         super(authorities);
-        this.apiKey = apiKey;
-        setAuthenticated(true);
+        this.client = client;
+        super.setAuthenticated(true);
     }
 
     @Override
@@ -21,6 +25,16 @@ public class ApiKeyAuthentication extends AbstractAuthenticationToken {
 
     @Override
     public Object getPrincipal() {
-        return apiKey;
+        return client;
     }
-}
\ No newline at end of file
+
+    @Override
+    public void setAuthenticated(boolean authenticated) {
+        throw new UnsupportedOperationException("API key authentications are shared and cannot be changed");
+    }
+
+    @Override
+    public void setDetails(Object details) {
+        throw new UnsupportedOperationException("API key authentications are shared and cannot be changed");
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.demo.config.security;
+
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.security.MessageDigest;
+import java.util.Map;
+
+/**
+ * Immutable open addressing table from the SHA-256 hash of an API key to the authentication of the client that owns
+ * it. Buckets are found by the first eight bytes of the hash and confirmed by comparing the whole hash in constant
+ * time, so a lookup costs the same however much of a guessed key is right. The hashes themselves give nothing away:
+ * a caller cannot choose which bucket a key lands in without knowing a key.
+ */
+final class ApiKeys {
+
+    static final int HASH_LENGTH = 32;
+
+    static final ApiKeys EMPTY = new ApiKeys(Map.of());
+
+    private final long[] prefixes;
+
+    private final byte[][] hashes;
+
+    private final ApiKeyAuthentication[] authentications;
+
+    // Keyed by client, valued by the hash of the client's key
+    ApiKeys(Map<String, byte[]> clientHashes) {
+        int capacity = Integer.highestOneBit(Math.max(clientHashes.size(), 4) * 2 - 1) << 1;
+        this.prefixes = new long[capacity];
+        this.hashes = new byte[capacity][];
+        this.authentications = new ApiKeyAuthentication[capacity];
+        int mask = capacity - 1;
+        clientHashes.forEach((client, hash) -> {
+            if (hash.length != HASH_LENGTH) {
+                throw new IllegalArgumentException("Key hash of " + client + " is not " + HASH_LENGTH + " bytes");
+            }
+            long prefix = prefix(hash);
+            int bucket = (int) prefix & mask;
+            while (hashes[bucket] != null) {
+                if (MessageDigest.isEqual(hashes[bucket], hash)) {
+                    throw new IllegalArgumentException(client + " has the same key as "
+                            + authentications[bucket].getPrincipal());
+                }
+                bucket = (bucket + 1) & mask;
+            }
+            prefixes[bucket] = prefix;
+            hashes[bucket] = hash.clone();
+            authentications[bucket] = new ApiKeyAuthentication(client, AuthorityUtils.NO_AUTHORITIES);
+        });
+    }
+
+    // The client's authentication, shared by all its requests, or null when no client has the key
+    ApiKeyAuthentication find(byte[] hash) {
+        long prefix = prefix(hash);
+        int mask = hashes.length - 1;
+        for (int bucket = (int) prefix & mask; hashes[bucket] != null; bucket = (bucket + 1) & mask) {
+            if (prefixes[bucket] == prefix && MessageDigest.isEqual(hashes[bucket], hash)) {
+                return authentications[bucket];
+            }
+        }
+        return null;
+    }
+
+    int size() {
+        int size = 0;
+        for (byte[] hash : hashes) {
+            if (hash != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    private static long prefix(byte[] hash) {
+        long prefix = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            prefix = (prefix << 8) | (hash[i] & 0xFF);
+        }
+        return prefix;
+    }
+}
@@ -1,7 +1,8 @@
 package com.example.demo.config.security;
 
-import org.springframework.security.core.Authentication;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.web.filter.GenericFilterBean;
 
 import javax.servlet.FilterChain;
@@ -14,15 +15,30 @@ import java.io.IOException;
 
 public class AuthenticationFilter extends GenericFilterBean {
 
+    private final AuthenticationService authenticationService;
+
+    private final AuthenticationEntryPoint entryPoint;
+
+    public AuthenticationFilter(AuthenticationService authenticationService, AuthenticationEntryPoint entryPoint) {
+        this.authenticationService = authenticationService;
+        this.entryPoint = entryPoint;
+    }
+
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain filterChain)
             throws IOException, ServletException {
-        try {
-            Authentication authentication = AuthenticationService.getAuthentication((HttpServletRequest) request);
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        String apiKey = httpRequest.getHeader(AuthenticationService.AUTH_TOKEN_HEADER_NAME);
+        if (apiKey != null) {
+            ApiKeyAuthentication authentication = authenticationService.authenticate(apiKey);
+            if (authentication == null) {
+                // Answered here, so the rest of the chain does no work for a request it would turn away anyway
+                SecurityContextHolder.clearContext();
+                entryPoint.commence(httpRequest, (HttpServletResponse) response,
+                        new BadCredentialsException("Invalid API Key"));
+                return;
+            }
             SecurityContextHolder.getContext().setAuthentication(authentication);
-        } catch (Exception exp) {
-            HttpServletResponse httpResponse = (HttpServletResponse) response;
-            httpResponse.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
         }
 
         filterChain.doFilter(request, response);
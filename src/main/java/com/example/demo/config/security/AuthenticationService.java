@@ -1,22 +1,177 @@
 package com.example.demo.config.security;
 
-import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.authority.AuthorityUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
 
-import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
 
+/**
+ * Authenticates requests by API key against the keys file, which names one client per line with the hex SHA-256 hash
+ * of its key, as in {@code reporting=9c6a54...}. Only hashes are kept, in memory as on disk.
+ * <p>
+ * The file is read again when it changes, and the new keys replace the old ones in one step: a request sees either the
+ * old set or the new one. A file that fails to load leaves the current keys in place.
+ * <p>
+ * Checking a key hashes it into buffers the thread keeps, and returns the authentication built for its client when
+ * the keys were loaded, so a request with a known key allocates nothing here.
+ */
+@Slf4j
+@Component
 public class AuthenticationService {
 
-    private static final String AUTH_TOKEN_HEADER_NAME = "X-API-KEY";
-    private static final String AUTH_TOKEN = "Guillermo";
+    public static final String AUTH_TOKEN_HEADER_NAME = "X-API-KEY";
 
-    public static Authentication getAuthentication(HttpServletRequest request) {
-        String apiKey = request.getHeader(AUTH_TOKEN_HEADER_NAME);
-        if (apiKey == null || !apiKey.equals(AUTH_TOKEN)) {
-            throw new BadCredentialsException("Invalid API Key");
+    // Longer keys are rejected without being hashed
+    static final int MAX_KEY_LENGTH = 256;
+
+    private static final ThreadLocal<KeyHasher> HASHER = ThreadLocal.withInitial(KeyHasher::new);
+
+    private final Resource keysLocation;
+
+    private volatile ApiKeys keys = ApiKeys.EMPTY;
+
+    private long keysModified;
+
+    public AuthenticationService(@Value("${task.security.api-keys.location:classpath:api-keys.properties}")
+                                         Resource keysLocation) {
+        this.keysLocation = keysLocation;
+        reload();
+    }
+
+    // The shared authentication of the key's client, or null when the key is unknown
+    public ApiKeyAuthentication authenticate(String apiKey) {
+        if (apiKey.length() > MAX_KEY_LENGTH) {
+            return null;
+        }
+        return keys.find(HASHER.get().hash(apiKey));
+    }
+
+    public int keyCount() {
+        return keys.size();
+    }
+
+    /**
+     * Loads the keys file and swaps its keys in for the current ones.
+     *
+     * @return the number of keys loaded
+     */
+    public synchronized int reload() {
+        long modified = lastModified();
+        ApiKeys loaded = load();
+        keys = loaded;
+        keysModified = modified;
+        return loaded.size();
+    }
+
+    @Scheduled(initialDelayString = "${task.security.api-keys.reload-interval:PT30S}",
+            fixedDelayString = "${task.security.api-keys.reload-interval:PT30S}")
+    public synchronized void reloadIfModified() {
+        if (lastModified() == keysModified) {
+            return;
+        }
+        try {
+            log.info("Reloaded {} API keys from {}", reload(), keysLocation);
+        } catch (RuntimeException e) {
+            log.warn("Keeping the current API keys, {} could not be loaded", keysLocation, e);
+        }
+    }
+
+    private ApiKeys load() {
+        Properties properties = new Properties();
+        try (InputStream in = keysLocation.getInputStream()) {
+            properties.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read API keys from " + keysLocation, e);
+        }
+        Map<String, byte[]> clientHashes = new HashMap<>();
+        for (String client : properties.stringPropertyNames()) {
+            clientHashes.put(client, parseHash(client, properties.getProperty(client).trim()));
         }
+        return new ApiKeys(clientHashes);
+    }
 
-        return new ApiKeyAuthentication(apiKey, AuthorityUtils.NO_AUTHORITIES);
+    // 0 for locations without a modification time, which are then loaded once
+    private long lastModified() {
+        try {
+            return keysLocation.lastModified();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static byte[] parseHash(String client, String hex) {
+        if (hex.length() != ApiKeys.HASH_LENGTH * 2) {
+            throw new IllegalArgumentException("Key hash of " + client + " is not a hex SHA-256 hash");
+        }
+        byte[] hash = new byte[ApiKeys.HASH_LENGTH];
+        for (int i = 0; i < hash.length; i++) {
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException("Key hash of " + client + " is not a hex SHA-256 hash");
+            }
+            hash[i] = (byte) (high << 4 | low);
+        }
+        return hash;
+    }
+
+    private static final class KeyHasher {
+
+        private final MessageDigest digest;
+
+        private final byte[] input = new byte[MAX_KEY_LENGTH * 3];
+
+        private final byte[] output = new byte[ApiKeys.HASH_LENGTH];
+
+        KeyHasher() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        // UTF-8 encodes the key by hand to stay off the allocating String.getBytes
+        byte[] hash(String key) {
+            int length = 0;
+            for (int i = 0; i < key.length(); i++) {
+                char c = key.charAt(i);
+                if (c < 0x80) {
+                    input[length++] = (byte) c;
+                } else if (c < 0x800) {
+                    input[length++] = (byte) (0xC0 | c >> 6);
+                    input[length++] = (byte) (0x80 | c & 0x3F);
+                } else if (Character.isHighSurrogate(c) && i + 1 < key.length()
+                        && Character.isLowSurrogate(key.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, key.charAt(++i));
+                    input[length++] = (byte) (0xF0 | codePoint >> 18);
+                    input[length++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                    input[length++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                    input[length++] = (byte) (0x80 | codePoint & 0x3F);
+                } else {
+                    input[length++] = (byte) (0xE0 | c >> 12);
+                    input[length++] = (byte) (0x80 | c >> 6 & 0x3F);
+                    input[length++] = (byte) (0x80 | c & 0x3F);
+                }
+            }
+            digest.update(input, 0, length);
+            try {
+                digest.digest(output, 0, output.length);
+            } catch (DigestException e) {
+                throw new IllegalStateException(e);
+            }
+            return output;
+        }
     }
 }
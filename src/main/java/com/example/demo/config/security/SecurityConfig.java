@@ -21,13 +21,19 @@ public class SecurityConfig {
             "/api-docs/**",
             "/swagger-resources/**",
             "/swagger-ui/**",
-            "/webjars/**"
+            "/webjars/**",
+            // -- Actuator, served on the management port
+            "/actuator/health",
+            "/actuator/prometheus"
     };
 
     private final AuthEntryPoint unauthorizedHandler;
 
-    public SecurityConfig(AuthEntryPoint unauthorizedHandler) {
+    private final AuthenticationService authenticationService;
+
+    public SecurityConfig(AuthEntryPoint unauthorizedHandler, AuthenticationService authenticationService) {
         this.unauthorizedHandler = unauthorizedHandler;
+        this.authenticationService = authenticationService;
     }
 
     @Bean
@@ -41,7 +47,8 @@ public class SecurityConfig {
                 .sessionManagement(
                         httpSecuritySessionManagementConfigurer ->
                                 httpSecuritySessionManagementConfigurer.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
-                .addFilterBefore(new AuthenticationFilter(), UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(new AuthenticationFilter(authenticationService, unauthorizedHandler),
+                        UsernamePasswordAuthenticationFilter.class)
                 .cors();
         return http.build();
     }
@@ -0,0 +1,36 @@
+package com.example.demo.controller;
+
+import com.example.demo.cache.CacheStatistics;
+import com.example.demo.cache.TaskCache;
+import com.example.demo.cache.TaskListCache;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@Tag(name = "Cache", description = "Cache Operations")
+@RestController
+@RequestMapping(path = "/cache")
+public class CacheController {
+
+    private final TaskCache taskCache;
+
+    private final TaskListCache taskListCache;
+
+    public CacheController(TaskCache taskCache, TaskListCache taskListCache) {
+        this.taskCache = taskCache;
+        this.taskListCache = taskListCache;
+    }
+
+    @Operation(summary = "Get cache statistics", description = "Get hit, miss and eviction counts of every cache")
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, CacheStatistics>> getStatistics() {
+        return ResponseEntity.ok().body(Map.of(
+                "tasks", taskCache.statistics(),
+                "task-lists", taskListCache.statistics()));
+    }
+}
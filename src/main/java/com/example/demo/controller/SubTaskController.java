@@ -0,0 +1,106 @@
+package com.example.demo.controller;
+
+import com.example.demo.entity.SubTaskEntity;
+import com.example.demo.service.SubTaskService;
+import com.example.demo.util.SubTaskCursor;
+import com.example.demo.util.SubTaskPage;
+import com.example.demo.view.SubTaskView;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Optional;
+
+@Tag(name = "Subtask", description = "Subtask Operations")
+@RestController
+@RequestMapping(path = "/task/{taskId}/subtasks")
+public class SubTaskController {
+
+    private final SubTaskService subTaskService;
+
+    public SubTaskController(SubTaskService subTaskService) {
+        this.subTaskService = subTaskService;
+    }
+
+    @Operation(summary = "Get subtasks", description = "Get one page of the subtasks of a task ordered by priority, " +
+            "and the cursor of the following page in the " + TaskController.NEXT_CURSOR_HEADER + " header",
+            parameters = {
+                    @Parameter(name = "taskId", description = "Task id", required = true),
+                    @Parameter(name = "limit", description = "Page size", schema = @Schema(implementation = Integer.class, maximum = "1000")),
+                    @Parameter(name = "next", description = "Cursor returned in the " + TaskController.NEXT_CURSOR_HEADER + " header")
+            })
+    @GetMapping
+    public ResponseEntity<List<SubTaskView>> getSubTasks(
+            @PathVariable int taskId,
+            @RequestParam(required = false, defaultValue = "" + TaskController.DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(required = false) String next
+    ) {
+        if (limit < 1 || limit > TaskController.MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        Optional<SubTaskPage> page = subTaskService.getSubTasks(taskId,
+                next == null ? null : SubTaskCursor.decode(next), limit);
+        if (page.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.get().getNext() != null) {
+            response.header(TaskController.NEXT_CURSOR_HEADER, page.get().getNext().encode());
+        }
+        return response.body(page.get().getSubTasks());
+    }
+
+    @Operation(summary = "Get subtask by id", description = "Get subtask by id", parameters = {
+            @Parameter(name = "taskId", description = "Task id", required = true),
+            @Parameter(name = "subTaskId", description = "Subtask id", required = true)
+    })
+    @GetMapping("/{subTaskId}")
+    public ResponseEntity<SubTaskView> getSubTask(@PathVariable int taskId, @PathVariable int subTaskId) {
+        return subTaskService.getSubTask(taskId, subTaskId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @Operation(summary = "Create subtask", description = "Add a subtask to a task", parameters = {
+            @Parameter(name = "taskId", description = "Task id", required = true)
+    })
+    @PostMapping
+    public ResponseEntity<SubTaskEntity> createSubTask(@PathVariable int taskId, @RequestBody SubTaskEntity subTask) {
+        return subTaskService.createSubTask(taskId, subTask)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @Operation(summary = "Update subtask", description = "Update subtask", parameters = {
+            @Parameter(name = "taskId", description = "Task id", required = true),
+            @Parameter(name = "subTaskId", description = "Subtask id", required = true)
+    })
+    @PutMapping("/{subTaskId}")
+    public ResponseEntity<?> updateSubTask(@PathVariable int taskId, @PathVariable int subTaskId,
+                                           @RequestBody SubTaskEntity subTask) {
+        return subTaskService.updateSubTask(taskId, subTaskId, subTask)
+                ? ResponseEntity.ok().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    @Operation(summary = "Toggle subtask", description = "Flip the completed flag of a subtask", parameters = {
+            @Parameter(name = "taskId", description = "Task id", required = true),
+            @Parameter(name = "subTaskId", description = "Subtask id", required = true)
+    })
+    @PostMapping("/{subTaskId}/toggle")
+    public ResponseEntity<?> toggleSubTask(@PathVariable int taskId, @PathVariable int subTaskId) {
+        return subTaskService.toggleSubTask(taskId, subTaskId)
+                ? ResponseEntity.ok().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<?> handleIllegalArgument() {
+        return ResponseEntity.badRequest().build();
+    }
+}
@@ -3,57 +3,252 @@ package com.example.demo.controller;
 import com.example.demo.entity.TaskEntity;
 import com.example.demo.entity.TaskPriority;
 import com.example.demo.service.TaskService;
+import com.example.demo.util.BulkResult;
 import com.example.demo.util.SortDirection;
 import com.example.demo.util.SortField;
+import com.example.demo.util.SyncToken;
+import com.example.demo.util.TaskBulkUpdate;
+import com.example.demo.util.TaskCursor;
+import com.example.demo.util.TaskETag;
+import com.example.demo.util.TaskField;
+import com.example.demo.util.TaskPage;
+import com.example.demo.util.TaskPatch;
+import com.example.demo.view.TaskView;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
 
 @Tag(name = "Task", description = "Task Operations")
 @RestController
 @RequestMapping(path = "/task")
 public class TaskController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final String SYNC_TOKEN_HEADER = "X-Sync-Token";
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 1000;
+    static final String NDJSON_VALUE = "application/x-ndjson";
+    static final int EXPORT_FLUSH_INTERVAL = 100;
+
+    private static final String EXPORT_TIMEOUT_INTERCEPTOR = TaskController.class.getName() + ".exportTimeout";
+
+    private static final FilterProvider ALL_FIELDS = new SimpleFilterProvider()
+            .addFilter(TaskView.FIELD_FILTER, SimpleBeanPropertyFilter.serializeAll());
+
     private final TaskService taskService;
 
-    public TaskController(TaskService taskService) {
+    private final ObjectMapper objectMapper;
+
+    private final Duration exportTimeout;
+
+    public TaskController(TaskService taskService, ObjectMapper objectMapper,
+                          @Value("${task.export.timeout:30m}") Duration exportTimeout) {
         this.taskService = taskService;
+        this.objectMapper = objectMapper;
+        this.exportTimeout = exportTimeout;
     }
 
-    @Operation(summary = "Get all tasks", description = "Get all tasks",
+    @Operation(summary = "Get all tasks", description = "Get all tasks. When limit or next is given, returns one " +
+            "page and the cursor of the following page in the " + NEXT_CURSOR_HEADER + " header. The " +
+            SYNC_TOKEN_HEADER + " header holds the since token for the changes after this listing, or after the " +
+            "first page",
             parameters = {
                     @Parameter(name = "priority", description = "Priority", in = ParameterIn.QUERY, schema = @Schema(implementation = TaskPriority.class)),
                     @Parameter(name = "completed", description = "Completed", in = ParameterIn.QUERY, schema = @Schema(implementation = Boolean.class)),
                     @Parameter(name = "sortDirection", description = "Sort tasks", schema = @Schema(implementation = SortDirection.class)),
-                    @Parameter(name = "sortField", description = "Sort field", schema = @Schema(implementation = SortField.class))
+                    @Parameter(name = "sortField", description = "Sort field", schema = @Schema(implementation = SortField.class)),
+                    @Parameter(name = "limit", description = "Page size", schema = @Schema(implementation = Integer.class, maximum = "1000")),
+                    @Parameter(name = "next", description = "Cursor returned in the " + NEXT_CURSOR_HEADER + " header"),
+                    @Parameter(name = "fields", description = "Comma separated task properties to return, all by default")
             })
     @GetMapping
-    public ResponseEntity<List<TaskEntity>> getAllTasks(
+    public ResponseEntity<MappingJacksonValue> getAllTasks(
             @RequestParam(required = false) @Parameter(hidden = true) Map<String, String> filter,
             @RequestParam(required = false, defaultValue = "ASC") SortDirection sortDirection,
-            @RequestParam(required = false, defaultValue = "PRIORITY") SortField sortField
+            @RequestParam(required = false, defaultValue = "PRIORITY") SortField sortField,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String next,
+            @RequestParam(required = false) String fields
     ) {
+        Set<TaskField> selected = TaskField.parse(fields);
+        SyncToken syncToken = taskService.currentSyncToken();
+        if (limit == null && next == null) {
+            List<TaskView> tasks = taskService.getAllTasks(filter,
+                    Sort.by(Sort.Direction.fromString(sortDirection.getSortDirection()), sortField.getSortField()),
+                    selected);
+            return ResponseEntity
+                    .ok()
+                    .eTag(TaskETag.of(tasks, null, selected))
+                    .header(SYNC_TOKEN_HEADER, syncToken.encode())
+                    .body(select(tasks, selected));
+        }
+
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        TaskPage page = taskService.getTaskPage(filter, sortField, sortDirection,
+                next == null ? null : TaskCursor.decode(next), pageSize, selected);
 
-        return ResponseEntity
-                .ok()
-                .body(taskService.getAllTasks(filter, Sort.by(Sort.Direction.fromString(sortDirection.getSortDirection()), sortField.getSortField())));
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(TaskETag.of(page.getTasks(), page.getNext(), selected))
+                .header(SYNC_TOKEN_HEADER, syncToken.encode());
+        if (page.getNext() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNext().encode());
+        }
+        return response.body(select(page.getTasks(), selected));
     }
 
-    @Operation(summary = "Get task by id", description = "Get task by id", parameters = {
-            @Parameter(name = "id", description = "Task id", required = true)
+    @Operation(summary = "Get changed tasks", description = "Get the tasks changed and the ids of the tasks deleted " +
+            "after the since token, oldest first. The token for the next call is in the " + SYNC_TOKEN_HEADER +
+            " header, and more tells whether it has changes waiting already. Changes may be repeated, so apply them " +
+            "by version. Answers 410 when the token is too old to know about every deletion; list all tasks again " +
+            "then", parameters = {
+            @Parameter(name = "since", description = "Token from the " + SYNC_TOKEN_HEADER + " header", required = true),
+            @Parameter(name = "limit", description = "Maximum number of changes", schema = @Schema(implementation = Integer.class, maximum = "1000")),
+            @Parameter(name = "fields", description = "Comma separated task properties to return, all by default")
+    })
+    @GetMapping(params = "since")
+    public ResponseEntity<MappingJacksonValue> getChangedTasks(
+            @RequestParam String since,
+            @RequestParam(required = false, defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(required = false) String fields
+    ) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        Set<TaskField> selected = TaskField.parse(fields);
+        return taskService.getChanges(SyncToken.decode(since), limit, selected)
+                .map(changes -> ResponseEntity.ok()
+                        .header(SYNC_TOKEN_HEADER, changes.getNext().encode())
+                        .body(select(changes, selected)))
+                .orElse(ResponseEntity.status(HttpStatus.GONE).build());
+    }
+
+    @Operation(summary = "Search tasks", description = "Find the tasks whose description or subtask descriptions " +
+            "hold every word of the query, or a word starting with it, best match first. Answers 503 until the " +
+            "search index is built",
+            parameters = {
+                    @Parameter(name = "q", description = "Words to search for", required = true),
+                    @Parameter(name = "priority", description = "Priority", in = ParameterIn.QUERY, schema = @Schema(implementation = TaskPriority.class)),
+                    @Parameter(name = "completed", description = "Completed", in = ParameterIn.QUERY, schema = @Schema(implementation = Boolean.class)),
+                    @Parameter(name = "limit", description = "Maximum number of tasks", schema = @Schema(implementation = Integer.class, maximum = "1000")),
+                    @Parameter(name = "fields", description = "Comma separated task properties to return, all by default")
+            })
+    @GetMapping("/search")
+    public ResponseEntity<MappingJacksonValue> searchTasks(
+            @RequestParam String q,
+            @RequestParam(required = false) @Parameter(hidden = true) Map<String, String> filter,
+            @RequestParam(required = false, defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(required = false) String fields
+    ) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        Set<TaskField> selected = TaskField.parse(fields);
+        return taskService.searchTasks(q, filter, limit, selected)
+                .map(tasks -> ResponseEntity.ok().body(select(tasks, selected)))
+                .orElse(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+    }
+
+    @Operation(summary = "Export all tasks",description = "Stream every task with its subtasks as newline-delimited JSON")
+    @GetMapping(path = "/export", produces = NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportTasks(NativeWebRequest request) {
+        // Only the export streams for that long, so its timeout goes on its own async request just before it starts
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(EXPORT_TIMEOUT_INTERCEPTOR,
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void beforeConcurrentHandling(NativeWebRequest asyncRequest, Callable<T> task) {
+                        ((AsyncWebRequest) asyncRequest).setTimeout(exportTimeout.toMillis());
+                    }
+                });
+
+        StreamingResponseBody body = outputStream -> {
+            ObjectWriter writer = objectMapper.writer()
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                    .withRootValueSeparator("");
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                int[] written = {0};
+                taskService.exportTasks(task -> {
+                    try {
+                        writer.writeValue(generator, task);
+                        generator.writeRaw('\n');
+                        if (written[0]++ % EXPORT_FLUSH_INTERVAL == 0) {
+                            generator.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON_VALUE))
+                .body(body);
+    }
+
+    @Operation(summary = "Get task by id", description = "Get task by id. Answers 304 when If-None-Match holds " +
+            "the current ETag", parameters = {
+            @Parameter(name = "id", description = "Task id", required = true),
+            @Parameter(name = "subTasks", description = "Include subtasks, use /task/{id}/subtasks to page through them"),
+            @Parameter(name = "fields", description = "Comma separated task properties to return, all by default")
     })
     @GetMapping("/{id}")
-    public ResponseEntity<TaskEntity> getTaskById(@PathVariable int id) {
-        return taskService.getTaskById(id)
-                .map(ResponseEntity::ok)
+    public ResponseEntity<MappingJacksonValue> getTaskById(
+            @PathVariable int id,
+            @RequestParam(required = false, defaultValue = "true") boolean subTasks,
+            @RequestParam(required = false) String fields,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        Set<TaskField> selected = TaskField.parse(fields);
+        if (!subTasks && selected.contains(TaskField.SUB_TASKS)) {
+            selected = EnumSet.copyOf(selected);
+            selected.remove(TaskField.SUB_TASKS);
+        }
+        Set<TaskField> etagFields = selected;
+        if (ifNoneMatch != null) {
+            Optional<String> etag = taskService.getTaskVersion(id).map(version -> TaskETag.of(id, version, etagFields));
+            if (etag.isPresent() && TaskETag.matches(ifNoneMatch, etag.get())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag.get()).build();
+            }
+        }
+        return taskService.getTaskById(id, selected)
+                .map(task -> ResponseEntity.ok().eTag(TaskETag.of(task, etagFields)).body(select(task, etagFields)))
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -63,23 +258,103 @@ public class TaskController {
         return ResponseEntity.ok().body(taskService.createTask(taskEntity));
     }
 
-    @Operation(summary = "Update task", description = "Update task", parameters = {
+    @Operation(summary = "Create tasks", description = "Create tasks and their subtasks in a single transaction")
+    @PostMapping("/batch")
+    public ResponseEntity<List<TaskEntity>> createTasks(@RequestBody List<TaskEntity> taskEntities) {
+        return ResponseEntity.ok().body(taskService.createTasks(taskEntities));
+    }
+
+    @Operation(summary = "Update task", description = "Update task. Answers 412 when If-Match does not hold the " +
+            "current ETag", parameters = {
             @Parameter(name = "id", description = "Task id", required = true)
     })
     @PutMapping("/{id}")
-    public ResponseEntity<?> updateTask(@PathVariable int id, @RequestBody TaskEntity taskEntity) {
-        return taskService.updateTask(id, taskEntity)
-                .map((task) -> ResponseEntity.ok().build())
+    public ResponseEntity<?> updateTask(
+            @PathVariable int id,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody TaskEntity taskEntity
+    ) {
+        return taskService.updateTask(id, taskEntity, TaskETag.expectedVersion(ifMatch, id))
+                .map((task) -> ResponseEntity.ok().eTag(TaskETag.of(id, task.getVersion())).build())
                 .orElse(ResponseEntity.notFound().build());
     }
 
-    @Operation(summary = "Delete task", description = "Delete task", parameters = {
+    @Operation(summary = "Patch task", description = "Set only the supplied fields. Subtasks, when supplied, are " +
+            "merged by subTaskId. Answers 412 when If-Match does not hold the current ETag", parameters = {
             @Parameter(name = "id", description = "Task id", required = true)
     })
-    @DeleteMapping("/{id}")
-    public ResponseEntity<?> deleteTask(@PathVariable int id) {
-        return taskService.deleteTask(id)
-                .map((task) -> ResponseEntity.ok().build())
+    @PatchMapping("/{id}")
+    public ResponseEntity<?> patchTask(
+            @PathVariable int id,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody TaskPatch patch
+    ) {
+        return taskService.patchTask(id, patch, TaskETag.expectedVersion(ifMatch, id))
+                .map((task) -> ResponseEntity.ok().eTag(TaskETag.of(id, task.getVersion())).build())
                 .orElse(ResponseEntity.notFound().build());
     }
+
+    @Operation(summary = "Update tasks", description = "Set completed and/or priority on every task matching the " +
+            "filter and the optional id list, with a single UPDATE statement",
+            parameters = {
+                    @Parameter(name = "priority", description = "Priority", in = ParameterIn.QUERY, schema = @Schema(implementation = TaskPriority.class)),
+                    @Parameter(name = "completed", description = "Completed", in = ParameterIn.QUERY, schema = @Schema(implementation = Boolean.class)),
+                    @Parameter(name = "ids", description = "Task ids")
+            })
+    @PutMapping("/bulk")
+    public ResponseEntity<BulkResult> updateTasks(
+            @RequestParam(required = false) @Parameter(hidden = true) Map<String, String> filter,
+            @RequestParam(required = false) List<Integer> ids,
+            @RequestBody TaskBulkUpdate update
+    ) {
+        return ResponseEntity.ok().body(taskService.updateTasks(filter, ids, update));
+    }
+
+    @Operation(summary = "Delete tasks", description = "Delete every task matching the filter and the optional id " +
+            "list, with a single DELETE statement",
+            parameters = {
+                    @Parameter(name = "priority", description = "Priority", in = ParameterIn.QUERY, schema = @Schema(implementation = TaskPriority.class)),
+                    @Parameter(name = "completed", description = "Completed", in = ParameterIn.QUERY, schema = @Schema(implementation = Boolean.class)),
+                    @Parameter(name = "ids", description = "Task ids")
+            })
+    @DeleteMapping("/bulk")
+    public ResponseEntity<BulkResult> deleteTasks(
+            @RequestParam(required = false) @Parameter(hidden = true) Map<String, String> filter,
+            @RequestParam(required = false) List<Integer> ids
+    ) {
+        return ResponseEntity.ok().body(taskService.deleteTasks(filter, ids));
+    }
+
+    @Operation(summary = "Delete task", description = "Delete task. Answers 412 when If-Match does not hold the " +
+            "current ETag", parameters = {
+            @Parameter(name = "id", description = "Task id", required = true)
+    })
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> deleteTask(
+            @PathVariable int id,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch
+    ) {
+        return taskService.deleteTask(id, TaskETag.expectedVersion(ifMatch, id))
+                ? ResponseEntity.ok().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    private static MappingJacksonValue select(Object body, Set<TaskField> fields) {
+        MappingJacksonValue value = new MappingJacksonValue(body);
+        value.setFilters(fields.equals(TaskField.ALL) ? ALL_FIELDS : new SimpleFilterProvider()
+                .addFilter(TaskView.FIELD_FILTER, SimpleBeanPropertyFilter.filterOutAllExcept(fields.stream()
+                        .map(TaskField::getTaskField)
+                        .collect(Collectors.toSet()))));
+        return value;
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<?> handleIllegalArgument() {
+        return ResponseEntity.badRequest().build();
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<?> handleOptimisticLockingFailure() {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+    }
 }
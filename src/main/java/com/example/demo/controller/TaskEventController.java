@@ -0,0 +1,45 @@
+package com.example.demo.controller;
+
+import com.example.demo.feed.TaskFeed;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@Tag(name = "Task", description = "Task Operations")
+@RestController
+@RequestMapping(path = "/task/events")
+public class TaskEventController {
+
+    static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+
+    private final TaskFeed taskFeed;
+
+    public TaskEventController(TaskFeed taskFeed) {
+        this.taskFeed = taskFeed;
+    }
+
+    @Operation(summary = "Stream task changes", description = "Server-sent events for every committed task " +
+            "change, named created, updated, deleted, bulk_updated or bulk_deleted, with the task id, version and " +
+            "changed fields. A resync event means events were dropped; reload with GET /task?since= then. Answers " +
+            "503 when the feed has as many subscribers as it takes", parameters = {
+            @Parameter(name = LAST_EVENT_ID_HEADER, in = ParameterIn.HEADER, description = "Id of the last event received, to resume after it")
+    })
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamEvents(
+            @RequestHeader(name = LAST_EVENT_ID_HEADER, required = false) String lastEventId
+    ) {
+        return taskFeed.subscribe(lastEventId)
+                .map(emitter -> ResponseEntity.ok().cacheControl(CacheControl.noStore()).body(emitter))
+                .orElse(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.demo.controller;
+
+import com.example.demo.stats.TaskCounters;
+import com.example.demo.util.TaskStatistics;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@Tag(name = "Task", description = "Task Operations")
+@RestController
+@RequestMapping(path = "/task/stats")
+public class TaskStatisticsController {
+
+    private final TaskCounters taskCounters;
+
+    public TaskStatisticsController(TaskCounters taskCounters) {
+        this.taskCounters = taskCounters;
+    }
+
+    @Operation(summary = "Get task statistics", description = "Open and completed tasks per priority, completion " +
+            "rates and subtask counts, from counters every write keeps up to date. The counters are checked against " +
+            "the database periodically")
+    @GetMapping
+    public ResponseEntity<TaskStatistics> getStatistics() {
+        return ResponseEntity.ok().body(taskCounters.getStatistics());
+    }
+}
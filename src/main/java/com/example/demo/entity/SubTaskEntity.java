@@ -1,14 +1,12 @@
 package com.example.demo.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
-import javax.persistence.Entity;
-import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
-import javax.persistence.Id;
+import javax.persistence.*;
 import java.io.Serializable;
 
 @Setter
@@ -19,15 +17,26 @@ import java.io.Serializable;
 public class SubTaskEntity implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sub_task_entity_seq")
+    @SequenceGenerator(name = "sub_task_entity_seq", sequenceName = "sub_task_entity_seq", allocationSize = 50)
     private int subTaskId;
 
     private String description;
 
     private boolean completed;
 
+    @Column(insertable = false, updatable = false)
     private int taskId;
 
     private int priority;
 
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "taskId")
+    private TaskEntity task;
+
+    @PostPersist
+    void copyTaskId() {
+        taskId = task.getTaskId();
+    }
 }
@@ -1,13 +1,16 @@
 package com.example.demo.entity;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
 
 import javax.persistence.*;
 import java.io.Serializable;
 import java.sql.Timestamp;
+import java.time.Instant;
 import java.util.Set;
 
 @Setter
@@ -17,8 +20,11 @@ import java.util.Set;
 @NoArgsConstructor
 public class TaskEntity implements Serializable {
 
+    public static final int SUB_TASK_BATCH_SIZE = 100;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "task_entity_seq")
+    @SequenceGenerator(name = "task_entity_seq", sequenceName = "task_entity_seq", allocationSize = 50)
     private int taskId;
 
     private String description;
@@ -28,10 +34,17 @@ public class TaskEntity implements Serializable {
     @Enumerated(EnumType.STRING)
     private TaskPriority priority;
 
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private Timestamp created;
 
-    @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER, orphanRemoval = true)
-    @JoinColumn(name = "taskId")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Timestamp updated;
+
+    @Version
+    private int version;
+
+    @OneToMany(mappedBy = "task", cascade = CascadeType.ALL, fetch = FetchType.LAZY, orphanRemoval = true)
+    @BatchSize(size = SUB_TASK_BATCH_SIZE)
     private Set<SubTaskEntity> subTasks;
 
     public TaskEntity(String description, boolean completed, TaskPriority priority, Set<SubTaskEntity> subTasks) {
@@ -40,4 +53,15 @@ public class TaskEntity implements Serializable {
         this.priority = priority;
         this.subTasks = subTasks;
     }
+
+    @PrePersist
+    void stampCreated() {
+        created = Timestamp.from(Instant.now());
+        updated = created;
+    }
+
+    @PreUpdate
+    void stampUpdated() {
+        updated = Timestamp.from(Instant.now());
+    }
 }
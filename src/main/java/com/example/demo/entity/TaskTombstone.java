@@ -0,0 +1,36 @@
+package com.example.demo.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.io.Serializable;
+import java.sql.Timestamp;
+
+@Setter
+@Getter
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+public class TaskTombstone implements Persistable<Integer>, Serializable {
+
+    @Id
+    private int taskId;
+
+    private Timestamp deleted;
+
+    @Override
+    public Integer getId() {
+        return taskId;
+    }
+
+    // Task ids are never reused, so saving a tombstone is always an insert and needs no select first
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.demo.event;
+
+import com.example.demo.util.TaskField;
+import com.example.demo.view.TaskView;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.util.Set;
+
+@Value
+@AllArgsConstructor
+public class TaskChangedEvent {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+        BULK_UPDATED,
+        BULK_DELETED
+    }
+
+    Type type;
+
+    int taskId;
+
+    // Version the write left the task at, 0 for deletions and bulk writes
+    int version;
+
+    // Task properties the write changed, every property for creations and none for deletions
+    Set<TaskField> fields;
+
+    // The task as the write left it, so that listeners need not read it back, or null when the writer does not hold
+    // the whole task
+    TaskView task;
+
+    public TaskChangedEvent(Type type, int taskId, int version, Set<TaskField> fields) {
+        this(type, taskId, version, fields, null);
+    }
+
+    public static TaskChangedEvent bulk(Type type, Set<TaskField> fields) {
+        return new TaskChangedEvent(type, 0, 0, fields);
+    }
+
+    public boolean isBulk() {
+        return type == Type.BULK_UPDATED || type == Type.BULK_DELETED;
+    }
+}
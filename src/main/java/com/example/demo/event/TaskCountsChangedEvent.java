@@ -0,0 +1,11 @@
+package com.example.demo.event;
+
+import com.example.demo.util.TaskCounts;
+import lombok.Value;
+
+// What a write added to or, with negative counts, removed from the task statistics
+@Value
+public class TaskCountsChangedEvent {
+
+    TaskCounts change;
+}
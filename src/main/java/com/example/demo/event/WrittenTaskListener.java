@@ -0,0 +1,23 @@
+package com.example.demo.event;
+
+import com.example.demo.view.TaskView;
+
+import java.util.List;
+
+/**
+ * Receives complete tasks as committed creations and updates left them, from {@link WrittenTaskPublisher}.
+ * Deletions and bulk writes still arrive as {@link TaskChangedEvent}s only.
+ */
+public interface WrittenTaskListener {
+
+    /**
+     * Whether the listener wants tasks at all, asked once at startup so that disabled listeners cost no reads.
+     */
+    boolean isEnabled();
+
+    /**
+     * Called after commit, from the writing thread or from the publisher's reader. A task may arrive after a newer
+     * version of it or after its deletion, so listeners compare versions and remember deleted ids.
+     */
+    void onTasksWritten(List<TaskView> tasks);
+}
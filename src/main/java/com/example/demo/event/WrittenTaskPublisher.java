@@ -0,0 +1,111 @@
+package com.example.demo.event;
+
+import com.example.demo.entity.TaskEntity;
+import com.example.demo.repository.TaskRepository;
+import com.example.demo.util.TaskField;
+import com.example.demo.view.TaskView;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Hands the tasks that committed creations and updates left to the enabled {@link WrittenTaskListener}s.
+ * <p>
+ * An event carrying its task is handed over on the committing thread without a read. Events without one come from
+ * writers that do not hold the whole task, such as subtask edits; their ids are queued and read back on a background
+ * thread, {@link #READ_BATCH_SIZE} ids per query, so a burst of them costs a few queries and none on the request
+ * thread. A task deleted before its read is skipped, as its deletion event reaches the listeners anyway.
+ */
+@Component
+public class WrittenTaskPublisher {
+
+    static final int READ_BATCH_SIZE = 1000;
+
+    private final TaskRepository taskRepository;
+
+    private final List<WrittenTaskListener> listeners;
+
+    private final ExecutorService reader;
+
+    private final Object lock = new Object();
+
+    // Guarded by lock, ids waiting to be read back
+    private BitSet queued = new BitSet();
+
+    // Guarded by lock
+    private boolean readRequested;
+
+    public WrittenTaskPublisher(TaskRepository taskRepository, List<WrittenTaskListener> listeners) {
+        this.taskRepository = taskRepository;
+        this.listeners = listeners.stream().filter(WrittenTaskListener::isEnabled).collect(Collectors.toList());
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("task-written-");
+        threadFactory.setDaemon(true);
+        this.reader = Executors.newSingleThreadExecutor(threadFactory);
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskChanged(TaskChangedEvent event) {
+        if (listeners.isEmpty() || event.isBulk() || event.getType() == TaskChangedEvent.Type.DELETED) {
+            return;
+        }
+        if (event.getTask() != null) {
+            publish(List.of(event.getTask()));
+            return;
+        }
+
+        synchronized (lock) {
+            queued.set(event.getTaskId());
+            if (readRequested) {
+                return;
+            }
+            readRequested = true;
+        }
+        reader.execute(this::readQueued);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reader.shutdownNow();
+    }
+
+    /**
+     * Reads back every queued task and hands them to the listeners. Ids queued while the reads run wait for the
+     * next call.
+     */
+    void readQueued() {
+        BitSet ids;
+        synchronized (lock) {
+            ids = queued;
+            queued = new BitSet();
+            readRequested = false;
+        }
+        List<Integer> taskIds = ids.stream().boxed().collect(Collectors.toList());
+        for (int from = 0; from < taskIds.size(); from += READ_BATCH_SIZE) {
+            List<Integer> batch = taskIds.subList(from, Math.min(from + READ_BATCH_SIZE, taskIds.size()));
+            List<TaskView> tasks = taskRepository.findViews(idIn(batch), Sort.unsorted(), -1, TaskField.ALL);
+            if (!tasks.isEmpty()) {
+                publish(tasks);
+            }
+        }
+    }
+
+    private void publish(List<TaskView> tasks) {
+        listeners.forEach(listener -> listener.onTasksWritten(tasks));
+    }
+
+    private static Specification<TaskEntity> idIn(List<Integer> ids) {
+        return (root, query, criteriaBuilder) -> root.get("taskId").in(ids);
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.demo.feed;
+
+import com.example.demo.event.TaskChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes committed task changes to the subscribers of GET /task/events.
+ * <p>
+ * Events are numbered, and the most recent ones are kept so that a client reconnecting with Last-Event-ID gets what
+ * it missed. Every subscriber has a bounded buffer drained by its own sender task. A subscriber that falls a whole
+ * buffer behind loses the buffered events and gets a resync event instead, so a slow client never holds up a write
+ * or the other clients. Ids carry a generation that changes on restart, as the numbering starts over.
+ */
+@Component
+public class TaskFeed {
+
+    static final String RESYNC_EVENT = "resync";
+
+    private static final String ID_SEPARATOR = ".";
+
+    private final String generation = Long.toString(System.currentTimeMillis(), 36);
+
+    private final Deque<TaskFeedEvent> history = new ArrayDeque<>();
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService sender;
+
+    private final int historySize;
+
+    private final int bufferSize;
+
+    private final int maxSubscribers;
+
+    private final long timeoutMillis;
+
+    private long sequence;
+
+    public TaskFeed(@Value("${task.events.history-size:1000}") int historySize,
+                    @Value("${task.events.buffer-size:256}") int bufferSize,
+                    @Value("${task.events.max-subscribers:1000}") int maxSubscribers,
+                    @Value("${task.events.timeout:30m}") Duration timeout) {
+        this.historySize = historySize;
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMillis = timeout.toMillis();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("task-feed-");
+        threadFactory.setDaemon(true);
+        this.sender = Executors.newCachedThreadPool(threadFactory);
+    }
+
+    /**
+     * Opens a stream that starts after the event with the given id, or with the next event when there is none.
+     * Empty when the feed has as many subscribers as it takes.
+     */
+    public Optional<SseEmitter> subscribe(String lastEventId) {
+        if (subscribers.size() >= maxSubscribers) {
+            return Optional.empty();
+        }
+        Subscriber subscriber = new Subscriber(new SseEmitter(timeoutMillis));
+        subscriber.emitter.onCompletion(() -> subscribers.remove(subscriber));
+        subscriber.emitter.onTimeout(() -> subscribers.remove(subscriber));
+        subscriber.emitter.onError(error -> subscribers.remove(subscriber));
+
+        synchronized (history) {
+            if (lastEventId != null) {
+                replay(subscriber, lastEventId);
+            }
+            subscribers.add(subscriber);
+        }
+        subscriber.heartbeat();
+        return Optional.of(subscriber.emitter);
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    // Runs after the caches, read model, search index and counters have taken the change in, so that a client
+    // re-fetching on an event reads what the write left
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskChanged(TaskChangedEvent event) {
+        if (event.getType() == TaskChangedEvent.Type.UPDATED && event.getFields().isEmpty()) {
+            return;
+        }
+        synchronized (history) {
+            TaskFeedEvent feedEvent = TaskFeedEvent.of(++sequence, event);
+            history.addLast(feedEvent);
+            if (history.size() > historySize) {
+                history.removeFirst();
+            }
+            subscribers.forEach(subscriber -> subscriber.offer(feedEvent));
+        }
+    }
+
+    // Keeps idle connections from being closed by proxies, and finds the clients that went away
+    @Scheduled(fixedDelayString = "${task.events.heartbeat-interval:PT15S}")
+    public void heartbeat() {
+        subscribers.forEach(Subscriber::heartbeat);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        sender.shutdownNow();
+    }
+
+    // Called with the history lock held
+    private void replay(Subscriber subscriber, String lastEventId) {
+        long after = parseSequence(lastEventId);
+        long oldest = history.isEmpty() ? sequence + 1 : history.getFirst().getSequence();
+        if (after < oldest - 1 || after > sequence) {
+            subscriber.resync();
+            return;
+        }
+        history.stream()
+                .filter(event -> event.getSequence() > after)
+                .forEach(subscriber::offer);
+    }
+
+    private long parseSequence(String eventId) {
+        int separator = eventId.lastIndexOf(ID_SEPARATOR);
+        if (separator < 0 || !eventId.substring(0, separator).equals(generation)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private String eventId(long sequence) {
+        return generation + ID_SEPARATOR + sequence;
+    }
+
+    private class Subscriber {
+
+        private final SseEmitter emitter;
+
+        private final BlockingQueue<TaskFeedEvent> buffer = new ArrayBlockingQueue<>(bufferSize);
+
+        private final AtomicBoolean resyncPending = new AtomicBoolean();
+
+        private final AtomicBoolean heartbeatPending = new AtomicBoolean();
+
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private volatile long resyncSequence;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void offer(TaskFeedEvent event) {
+            if (!buffer.offer(event)) {
+                buffer.clear();
+                resyncSequence = event.getSequence();
+                resyncPending.set(true);
+            }
+            schedule();
+        }
+
+        void resync() {
+            resyncSequence = sequence;
+            resyncPending.set(true);
+            schedule();
+        }
+
+        void heartbeat() {
+            heartbeatPending.set(true);
+            schedule();
+        }
+
+        private void schedule() {
+            if (draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                while (true) {
+                    if (resyncPending.getAndSet(false)) {
+                        emitter.send(SseEmitter.event().id(eventId(resyncSequence)).name(RESYNC_EVENT).data(""));
+                    }
+                    TaskFeedEvent event = buffer.poll();
+                    if (event != null) {
+                        emitter.send(SseEmitter.event()
+                                .id(eventId(event.getSequence()))
+                                .name(event.getType().name().toLowerCase(Locale.ROOT))
+                                .data(event, MediaType.APPLICATION_JSON));
+                    } else if (heartbeatPending.getAndSet(false)) {
+                        emitter.send(SseEmitter.event().comment(""));
+                    } else {
+                        break;
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The container reports the broken connection to the emitter, which only needs dropping here
+                subscribers.remove(this);
+                return;
+            } finally {
+                draining.set(false);
+            }
+            if (!buffer.isEmpty() || resyncPending.get() || heartbeatPending.get()) {
+                schedule();
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.demo.feed;
+
+import com.example.demo.event.TaskChangedEvent;
+import com.example.demo.util.TaskField;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Value;
+
+import java.util.Set;
+
+@Value
+public class TaskFeedEvent {
+
+    @JsonIgnore
+    long sequence;
+
+    TaskChangedEvent.Type type;
+
+    int taskId;
+
+    int version;
+
+    Set<TaskField> fields;
+
+    public static TaskFeedEvent of(long sequence, TaskChangedEvent event) {
+        return new TaskFeedEvent(sequence, event.getType(), event.getTaskId(), event.getVersion(), event.getFields());
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.demo.metrics;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Statements one request executed: how many, how long they took in total, and how often each shape of SQL ran. The
+ * shape is the SQL with its literals and IN lists collapsed, so that an N+1 shows as one shape run N times whatever
+ * ids it was run with. Touched by one thread at a time: the request's, or the one running its async callable while
+ * the request's thread has let go of it.
+ */
+final class RequestStatements {
+
+    // Past this many distinct shapes further ones are counted but not told apart
+    static final int MAX_SHAPES = 100;
+
+    static final String OTHER_SHAPES = "(other statements)";
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\b(in) \\(\\?(?: ?, ?\\?)*\\)");
+
+    private long statements;
+
+    private long elapsedNanos;
+
+    private final Map<String, Shape> shapes = new HashMap<>();
+
+    void add(String sql, long nanos) {
+        statements++;
+        elapsedNanos += nanos;
+        String shape = shape(sql);
+        if (shapes.size() >= MAX_SHAPES && !shapes.containsKey(shape)) {
+            shape = OTHER_SHAPES;
+        }
+        Shape counts = shapes.computeIfAbsent(shape, key -> new Shape());
+        counts.statements++;
+        counts.elapsedNanos += nanos;
+    }
+
+    long getStatements() {
+        return statements;
+    }
+
+    long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    Map<String, Long> getShapeCounts() {
+        return shapes.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().statements));
+    }
+
+    // The shapes that ran most often, as "count x total ms: sql"
+    List<String> describeTopShapes(int limit) {
+        return shapes.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().statements, a.getValue().statements))
+                .limit(limit)
+                .map(e -> e.getValue().statements + " x " + millis(e.getValue().elapsedNanos) + " ms: " + e.getKey())
+                .collect(Collectors.toList());
+    }
+
+    static String shape(String sql) {
+        String shape = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        shape = STRING_LITERAL.matcher(shape).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        return IN_LIST.matcher(shape).replaceAll("$1 (...)");
+    }
+
+    static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+
+    private static final class Shape {
+
+        private long statements;
+
+        private long elapsedNanos;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.demo.metrics;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Wraps every DataSource in a proxy reporting to a {@link StatementListener}, so that JPA, Flyway and plain JDBC are
+ * all counted. The proxy unwraps to the pool, which the pool metrics rely on.
+ */
+@Component
+public class StatementDataSourcePostProcessor implements BeanPostProcessor {
+
+    private final StatementListener listener;
+
+    public StatementDataSourcePostProcessor(@Value("${task.statements.slow-statement:200ms}") Duration slowStatement) {
+        this.listener = new StatementListener(slowStatement);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource && !(bean instanceof ProxyDataSource)) {
+            return ProxyDataSourceBuilder.create(beanName, (DataSource) bean).listener(listener).build();
+        }
+        return bean;
+    }
+}
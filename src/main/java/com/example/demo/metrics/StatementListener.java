@@ -0,0 +1,74 @@
+package com.example.demo.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Counts every statement the application's DataSource executes, and the time it takes, for the thread that executed
+ * it. {@link TaskServiceMetrics} reads the running totals around each service call, and while a request is being
+ * recorded by {@link StatementStatisticsFilter} each statement is also added to that request's statistics.
+ * <p>
+ * A batch counts as one statement, since it is one round trip. Statements slower than the threshold are logged one by
+ * one with their SQL.
+ */
+@Slf4j
+public class StatementListener implements QueryExecutionListener {
+
+    private static final String START_NANOS = StatementListener.class.getName() + ".start";
+
+    private static final ThreadLocal<long[]> TOTALS = ThreadLocal.withInitial(() -> new long[2]);
+
+    private static final ThreadLocal<RequestStatements> REQUEST = new ThreadLocal<>();
+
+    private final long slowStatementNanos;
+
+    public StatementListener(Duration slowStatement) {
+        this.slowStatementNanos = slowStatement.toNanos();
+    }
+
+    public static long statements() {
+        return TOTALS.get()[0];
+    }
+
+    public static long elapsedNanos() {
+        return TOTALS.get()[1];
+    }
+
+    // Statements executed on this thread until endRequest are added to the request's statistics
+    static void startRequest(RequestStatements request) {
+        REQUEST.set(request);
+    }
+
+    static void endRequest() {
+        REQUEST.remove();
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        execInfo.addCustomValue(START_NANOS, System.nanoTime());
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        long elapsed = System.nanoTime() - execInfo.getCustomValue(START_NANOS, Long.class);
+        long[] totals = TOTALS.get();
+        totals[0]++;
+        totals[1] += elapsed;
+        RequestStatements request = REQUEST.get();
+        if (request != null) {
+            request.add(sql(queryInfoList), elapsed);
+        }
+        if (elapsed > slowStatementNanos) {
+            log.warn("Slow statement took {} ms: {}", RequestStatements.millis(elapsed), sql(queryInfoList));
+        }
+    }
+
+    private static String sql(List<QueryInfo> queryInfoList) {
+        return queryInfoList.isEmpty() ? "" : queryInfoList.get(0).getQuery();
+    }
+}
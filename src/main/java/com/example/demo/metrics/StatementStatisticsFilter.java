@@ -0,0 +1,174 @@
+package com.example.demo.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+/**
+ * Records the statements each request executes and logs the request, with the shapes of SQL it ran most, when it
+ * executes more statements or spends longer in the database than configured. With task.statements.response-headers
+ * on, the count and database time are also returned as X-Statement-Count and Server-Timing headers, which is how the
+ * tests hold each endpoint to a statement budget.
+ * <p>
+ * An async request, such as the streamed export, keeps its statistics in a request attribute. The thread that runs its
+ * callable adds to them, and the dispatch that completes it does the logging. Reads the application runs on its own
+ * threads, such as the written-task read-back and the read model and search index loads, belong to no request and are
+ * only counted by the DataSource meters.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class StatementStatisticsFilter extends OncePerRequestFilter {
+
+    public static final String STATEMENT_COUNT_HEADER = "X-Statement-Count";
+    public static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    static final String STATEMENTS_ATTRIBUTE = StatementStatisticsFilter.class.getName() + ".statements";
+
+    private static final int LOGGED_SHAPES = 5;
+
+    private final long maxStatements;
+
+    private final long maxDatabaseNanos;
+
+    private final boolean responseHeaders;
+
+    public StatementStatisticsFilter(@Value("${task.statements.max-per-request:50}") long maxStatements,
+                                     @Value("${task.statements.max-database-time:500ms}") Duration maxDatabaseTime,
+                                     @Value("${task.statements.response-headers:false}") boolean responseHeaders) {
+        this.maxStatements = maxStatements;
+        this.maxDatabaseNanos = maxDatabaseTime.toNanos();
+        this.responseHeaders = responseHeaders;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestStatements statements = (RequestStatements) request.getAttribute(STATEMENTS_ATTRIBUTE);
+        if (statements == null) {
+            statements = new RequestStatements();
+            request.setAttribute(STATEMENTS_ATTRIBUTE, statements);
+            WebAsyncUtils.getAsyncManager(request)
+                    .registerCallableInterceptor(STATEMENTS_ATTRIBUTE, new AsyncStatementsInterceptor(statements));
+        }
+        StatementListener.startRequest(statements);
+        try {
+            if (responseHeaders) {
+                StatementHeadersResponse headersResponse = new StatementHeadersResponse(response, statements);
+                filterChain.doFilter(request, headersResponse);
+                if (!isAsyncStarted(request)) {
+                    headersResponse.writeHeaders();
+                }
+            } else {
+                filterChain.doFilter(request, response);
+            }
+        } finally {
+            StatementListener.endRequest();
+            if (!isAsyncStarted(request)
+                    && (statements.getStatements() > maxStatements || statements.getElapsedNanos() > maxDatabaseNanos)) {
+                log.warn("{} {} executed {} statements in {} ms:\n  {}", request.getMethod(), request.getRequestURI(),
+                        statements.getStatements(), RequestStatements.millis(statements.getElapsedNanos()),
+                        String.join("\n  ", statements.describeTopShapes(LOGGED_SHAPES)));
+            }
+        }
+    }
+
+    // Adds the statements of an async request's callable, which runs on a thread of its own, to the request
+    private static final class AsyncStatementsInterceptor implements CallableProcessingInterceptor {
+
+        private final RequestStatements statements;
+
+        AsyncStatementsInterceptor(RequestStatements statements) {
+            this.statements = statements;
+        }
+
+        @Override
+        public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+            StatementListener.startRequest(statements);
+        }
+
+        @Override
+        public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+            StatementListener.endRequest();
+        }
+    }
+
+    // Headers have to be set before the body commits the response, so they are written on the first sign of a body
+    private static final class StatementHeadersResponse extends HttpServletResponseWrapper {
+
+        private final RequestStatements statements;
+
+        private boolean written;
+
+        StatementHeadersResponse(HttpServletResponse response, RequestStatements statements) {
+            super(response);
+            this.statements = statements;
+        }
+
+        void writeHeaders() {
+            if (!written && !isCommitted()) {
+                written = true;
+                setHeader(STATEMENT_COUNT_HEADER, Long.toString(statements.getStatements()));
+                setHeader(SERVER_TIMING_HEADER, "db;dur=" + RequestStatements.millis(statements.getElapsedNanos()));
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeHeaders();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeHeaders();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeHeaders();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeHeaders();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeHeaders();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            writeHeaders();
+            super.sendRedirect(location);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.demo.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every public TaskService call, and the part of it spent executing statements in the database, as two timers
+ * tagged by method, and counts the statements it executed. The gap between the timers is time spent in the
+ * application, waiting for a connection included. Ordered first so that the timing wraps the transaction and counts
+ * the flush and commit.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class TaskServiceMetrics {
+
+    static final String TOTAL_TIMER = "task.service";
+    static final String DATABASE_TIMER = "task.service.database";
+    static final String STATEMENTS_SUMMARY = "task.service.statements";
+
+    private final MeterRegistry meterRegistry;
+
+    public TaskServiceMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(public * com.example.demo.service.TaskService.*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        long statementsBefore = StatementListener.statements();
+        long databaseBefore = StatementListener.elapsedNanos();
+        long start = System.nanoTime();
+        String exception = "none";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            long total = System.nanoTime() - start;
+            long database = StatementListener.elapsedNanos() - databaseBefore;
+            Tags tags = Tags.of("method", joinPoint.getSignature().getName(), "exception", exception);
+            meterRegistry.timer(TOTAL_TIMER, tags).record(total, TimeUnit.NANOSECONDS);
+            meterRegistry.timer(DATABASE_TIMER, tags).record(database, TimeUnit.NANOSECONDS);
+            meterRegistry.summary(STATEMENTS_SUMMARY, tags).record(StatementListener.statements() - statementsBefore);
+        }
+    }
+}
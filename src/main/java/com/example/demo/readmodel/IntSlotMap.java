@@ -0,0 +1,97 @@
+package com.example.demo.readmodel;
+
+/**
+ * Open addressing map from task id to slot on primitive arrays. Task ids start at 1, so 0 marks a free bucket.
+ */
+class IntSlotMap {
+
+    static final int MISSING = -1;
+
+    private static final int FREE = 0;
+
+    private int[] keys;
+
+    private int[] values;
+
+    private int size;
+
+    IntSlotMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+        this.keys = new int[capacity];
+        this.values = new int[capacity];
+    }
+
+    int get(int key) {
+        int mask = keys.length - 1;
+        for (int bucket = hash(key) & mask; keys[bucket] != FREE; bucket = (bucket + 1) & mask) {
+            if (keys[bucket] == key) {
+                return values[bucket];
+            }
+        }
+        return MISSING;
+    }
+
+    void put(int key, int value) {
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int bucket = hash(key) & mask;
+        while (keys[bucket] != FREE && keys[bucket] != key) {
+            bucket = (bucket + 1) & mask;
+        }
+        if (keys[bucket] == FREE) {
+            size++;
+        }
+        keys[bucket] = key;
+        values[bucket] = value;
+    }
+
+    int remove(int key) {
+        int mask = keys.length - 1;
+        int bucket = hash(key) & mask;
+        while (keys[bucket] != key) {
+            if (keys[bucket] == FREE) {
+                return MISSING;
+            }
+            bucket = (bucket + 1) & mask;
+        }
+        int value = values[bucket];
+        size--;
+
+        // Shift the rest of the probe run back so that lookups never stop early at the freed bucket
+        int free = bucket;
+        for (int next = (free + 1) & mask; keys[next] != FREE; next = (next + 1) & mask) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                free = next;
+            }
+        }
+        keys[free] = FREE;
+        return value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[capacity];
+        values = new int[capacity];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
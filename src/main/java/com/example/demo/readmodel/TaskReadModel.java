@@ -0,0 +1,548 @@
+package com.example.demo.readmodel;
+
+import com.example.demo.entity.TaskEntity;
+import com.example.demo.entity.TaskPriority;
+import com.example.demo.event.TaskChangedEvent;
+import com.example.demo.event.WrittenTaskListener;
+import com.example.demo.repository.TaskRepository;
+import com.example.demo.util.SortField;
+import com.example.demo.util.TaskCursor;
+import com.example.demo.util.TaskField;
+import com.example.demo.util.TaskFilter;
+import com.example.demo.view.TaskView;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Optional in-process index of every task that answers listings and pages with the ids of the matching tasks in
+ * order, so that the database only reads those tasks by id and neither filters nor sorts.
+ * <p>
+ * Tasks sit in slots of primitive columns (id, version, priority, created and a completed bitmap) and are found by id
+ * through an int keyed map. Slot arrays sorted by (priority, taskId) and (created, taskId) give the order, and a
+ * listing walks one of them from its cursor, found by binary search, testing each slot against the filter until it
+ * has its limit. A write moves its slot within those arrays by a binary search and an array shift, so reads never
+ * sort. Committed writes arrive as the tasks they left from {@link com.example.demo.event.WrittenTaskPublisher}, a
+ * bulk write reloads everything. Until a load has finished the model is not ready and listings go to the database.
+ */
+@Component
+public class TaskReadModel implements WrittenTaskListener {
+
+    static final int LOAD_CHUNK_SIZE = 10_000;
+
+    // The columns a row keeps besides the id and version, all a load reads
+    static final Set<TaskField> ROW_FIELDS = Collections.unmodifiableSet(
+            EnumSet.of(TaskField.COMPLETED, TaskField.PRIORITY, TaskField.CREATED));
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final TaskRepository taskRepository;
+
+    private final boolean enabled;
+
+    private final ExecutorService loader;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock
+    private Rows rows = new Rows(INITIAL_CAPACITY);
+
+    // Guarded by lock, the rows a load is filling
+    private Rows building;
+
+    // Guarded by lock
+    private boolean reloadRequested;
+
+    private volatile boolean ready;
+
+    public TaskReadModel(TaskRepository taskRepository,
+                         @Value("${task.read-model.enabled:false}") boolean enabled) {
+        this.taskRepository = taskRepository;
+        this.enabled = enabled;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("task-read-model-");
+        threadFactory.setDaemon(true);
+        this.loader = Executors.newSingleThreadExecutor(threadFactory);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Lists the ids of the tasks matching the filter in the given order, or nothing when the model is disabled, still
+     * loading or cannot order by the requested property. Ties are broken by taskId in the direction of the sort.
+     */
+    public Optional<int[]> getTaskIds(Map<String, String> filter, Sort sort) {
+        return getTaskIds(filter, sort, null, -1);
+    }
+
+    /**
+     * Lists at most limit ids, all of them when negative, of the matching tasks that follow the cursor in the given
+     * order. The sort may name taskId as its second property in the same direction, as pages do.
+     */
+    public Optional<int[]> getTaskIds(Map<String, String> filter, Sort sort, TaskCursor cursor, int limit) {
+        if (!ready) {
+            return Optional.empty();
+        }
+        Iterator<Sort.Order> orders = sort.iterator();
+        if (!orders.hasNext()) {
+            return Optional.empty();
+        }
+        Sort.Order order = orders.next();
+        if (!(order.getProperty().equals(SortField.PRIORITY.getSortField())
+                || order.getProperty().equals(SortField.CREATED.getSortField()))) {
+            return Optional.empty();
+        }
+        if (orders.hasNext()) {
+            Sort.Order tieBreak = orders.next();
+            if (orders.hasNext() || !tieBreak.getProperty().equals("taskId")
+                    || tieBreak.getDirection() != order.getDirection()) {
+                return Optional.empty();
+            }
+        }
+
+        TaskPriority priority = null;
+        Boolean completed = null;
+        for (Map.Entry<String, String> entry : filter.entrySet()) {
+            if (entry.getKey().equals(TaskFilter.PRIORITY.getTaskFilter())) {
+                priority = TaskPriority.valueOf(entry.getValue());
+            } else if (entry.getKey().equals(TaskFilter.COMPLETED.getTaskFilter())) {
+                completed = Boolean.parseBoolean(entry.getValue());
+            }
+        }
+        boolean byPriority = order.getProperty().equals(SortField.PRIORITY.getSortField());
+        long cursorKey = 0;
+        if (cursor != null) {
+            cursorKey = byPriority
+                    ? TaskPriority.valueOf(cursor.getValue()).ordinal()
+                    : micros(cursor.getValue() == null ? null : Timestamp.from(Instant.parse(cursor.getValue())));
+        }
+
+        lock.readLock().lock();
+        try {
+            if (!ready) {
+                return Optional.empty();
+            }
+            return Optional.of(rows.select(priority, completed, byPriority, order.isAscending(), cursor != null,
+                    cursorKey, cursor == null ? 0 : cursor.getTaskId(), limit));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rows.slots.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            requestReload();
+        }
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskChanged(TaskChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.isBulk()) {
+            requestReload();
+            return;
+        }
+        if (event.getType() != TaskChangedEvent.Type.DELETED) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            rows.remove(event.getTaskId());
+            if (building != null) {
+                building.remove(event.getTaskId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void onTasksWritten(List<TaskView> tasks) {
+        lock.writeLock().lock();
+        try {
+            for (TaskView task : tasks) {
+                rows.upsert(task);
+                if (building != null) {
+                    building.upsert(task);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loader.shutdownNow();
+    }
+
+    /**
+     * Reads every task in chunks of {@link #LOAD_CHUNK_SIZE} into a new set of rows, sorts them once and swaps them
+     * in. Writes that commit in the meantime go to the new rows as well; task versions keep a chunk read earlier from
+     * undoing them, and deleted ids are remembered so that no chunk brings a task back.
+     */
+    void load() {
+        Rows loaded = new Rows(INITIAL_CAPACITY);
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            building = loaded;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            int after = 0;
+            List<TaskView> chunk;
+            do {
+                chunk = taskRepository.findViews(idAfter(after), Sort.by("taskId"), LOAD_CHUNK_SIZE, ROW_FIELDS);
+                lock.writeLock().lock();
+                try {
+                    chunk.forEach(loaded::upsert);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                after = chunk.isEmpty() ? after : chunk.get(chunk.size() - 1).getTaskId();
+            } while (chunk.size() == LOAD_CHUNK_SIZE);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                building = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            loaded.sort();
+            rows = loaded;
+            building = null;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void requestReload() {
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            if (reloadRequested) {
+                return;
+            }
+            reloadRequested = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        loader.execute(() -> {
+            lock.writeLock().lock();
+            try {
+                reloadRequested = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            load();
+        });
+    }
+
+    private static Specification<TaskEntity> idAfter(int taskId) {
+        return (root, query, criteriaBuilder) -> criteriaBuilder.greaterThan(root.get("taskId"), taskId);
+    }
+
+    static long micros(Timestamp timestamp) {
+        if (timestamp == null) {
+            return Long.MIN_VALUE;
+        }
+        return TimeUnit.SECONDS.toMicros(Math.floorDiv(timestamp.getTime(), 1000)) + timestamp.getNanos() / 1000;
+    }
+
+    private static final class Rows {
+
+        private final IntSlotMap slots;
+
+        private final BitSet live = new BitSet();
+
+        private final BitSet completed = new BitSet();
+
+        // Task ids that were deleted, so that a write or chunk read before the deletion cannot bring a task back
+        private final BitSet deleted = new BitSet();
+
+        private final SlotOrder priorityOrder;
+
+        private final SlotOrder createdOrder;
+
+        // Slots handed out so far, and the ones freed by deletions to be handed out again
+        private int size;
+
+        private int[] freeSlots = new int[16];
+
+        private int freeCount;
+
+        private int[] ids;
+
+        private int[] versions;
+
+        private byte[] priorities;
+
+        private long[] created;
+
+        // Whether the slot orders are kept, which a load only starts once all of its rows are in
+        private boolean sorted;
+
+        Rows(int capacity) {
+            this.slots = new IntSlotMap(capacity);
+            this.ids = new int[capacity];
+            this.versions = new int[capacity];
+            this.priorities = new byte[capacity];
+            this.created = new long[capacity];
+            this.priorityOrder = new SlotOrder(slot -> priorities[slot], slot -> ids[slot]);
+            this.createdOrder = new SlotOrder(slot -> created[slot], slot -> ids[slot]);
+        }
+
+        void upsert(TaskView view) {
+            int id = view.getTaskId();
+            if (deleted.get(id)) {
+                return;
+            }
+            byte priority = (byte) view.getPriority().ordinal();
+            long createdMicros = micros(view.getCreated());
+            int slot = slots.get(id);
+            boolean priorityMoved = true;
+            boolean createdMoved = true;
+            if (slot == IntSlotMap.MISSING) {
+                slot = allocate();
+                slots.put(id, slot);
+                live.set(slot);
+                ids[slot] = id;
+            } else if (versions[slot] > view.getVersion()) {
+                return;
+            } else {
+                // Leave the orders before the columns they compare change
+                priorityMoved = priorities[slot] != priority;
+                createdMoved = created[slot] != createdMicros;
+                if (sorted && priorityMoved) {
+                    priorityOrder.remove(slot);
+                }
+                if (sorted && createdMoved) {
+                    createdOrder.remove(slot);
+                }
+            }
+
+            versions[slot] = view.getVersion();
+            priorities[slot] = priority;
+            completed.set(slot, view.isCompleted());
+            created[slot] = createdMicros;
+            if (sorted && priorityMoved) {
+                priorityOrder.add(slot);
+            }
+            if (sorted && createdMoved) {
+                createdOrder.add(slot);
+            }
+        }
+
+        void remove(int id) {
+            deleted.set(id);
+            int slot = slots.remove(id);
+            if (slot == IntSlotMap.MISSING) {
+                return;
+            }
+            if (sorted) {
+                priorityOrder.remove(slot);
+                createdOrder.remove(slot);
+            }
+            live.clear(slot);
+            completed.clear(slot);
+            if (freeCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+            }
+            freeSlots[freeCount++] = slot;
+        }
+
+        // Walks the order from the cursor, or from its start, testing each slot against the filter columns, so that a
+        // page costs the slots it passes and nothing is copied but the ids returned
+        int[] select(TaskPriority priority, Boolean completedFilter, boolean byPriorityOrder, boolean ascending,
+                     boolean seek, long cursorKey, int cursorId, int limit) {
+            SlotOrder order = byPriorityOrder ? priorityOrder : createdOrder;
+            int i;
+            if (!seek) {
+                i = ascending ? 0 : order.size - 1;
+            } else {
+                // Ids are whole numbers, so the first slot not before (key, id + 1) is the first one after the cursor
+                i = ascending ? order.position(cursorKey, cursorId + 1L) : order.position(cursorKey, cursorId) - 1;
+            }
+            int step = ascending ? 1 : -1;
+            int priorityOrdinal = priority == null ? -1 : priority.ordinal();
+            boolean filterCompleted = completedFilter != null;
+            boolean completedValue = Boolean.TRUE.equals(completedFilter);
+
+            int[] taskIds = new int[limit < 0 ? order.size : Math.min(limit, order.size)];
+            int count = 0;
+            for (; i >= 0 && i < order.size && count < taskIds.length; i += step) {
+                int slot = order.slots[i];
+                if ((priorityOrdinal < 0 || priorities[slot] == priorityOrdinal)
+                        && (!filterCompleted || completed.get(slot) == completedValue)) {
+                    taskIds[count++] = ids[slot];
+                }
+            }
+            return count == taskIds.length ? taskIds : Arrays.copyOf(taskIds, count);
+        }
+
+        void sort() {
+            int[] liveSlots = live.stream().toArray();
+            priorityOrder.sort(liveSlots.clone());
+            createdOrder.sort(liveSlots);
+            sorted = true;
+        }
+
+        private int allocate() {
+            if (freeCount > 0) {
+                return freeSlots[--freeCount];
+            }
+            if (size == ids.length) {
+                int capacity = ids.length * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                versions = Arrays.copyOf(versions, capacity);
+                priorities = Arrays.copyOf(priorities, capacity);
+                created = Arrays.copyOf(created, capacity);
+            }
+            return size++;
+        }
+    }
+
+    /**
+     * Live slots in the order of (key, taskId) over their columns. A slot is found by binary search, so it has to be
+     * removed before the columns it is ordered by change and added back after.
+     */
+    private static final class SlotOrder {
+
+        private final SlotColumn key;
+
+        private final SlotColumn id;
+
+        private int[] slots = new int[0];
+
+        private int size;
+
+        SlotOrder(SlotColumn key, SlotColumn id) {
+            this.key = key;
+            this.id = id;
+        }
+
+        void add(int slot) {
+            int i = position(key.of(slot), id.of(slot));
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, Math.max(16, size * 2));
+            }
+            System.arraycopy(slots, i, slots, i + 1, size - i);
+            slots[i] = slot;
+            size++;
+        }
+
+        void remove(int slot) {
+            int i = position(key.of(slot), id.of(slot));
+            System.arraycopy(slots, i + 1, slots, i, size - i - 1);
+            size--;
+        }
+
+        // Merge sort on primitive slots, as Arrays.sort only takes a comparator for boxed values
+        void sort(int[] liveSlots) {
+            int[] sorted = liveSlots;
+            int[] buffer = new int[sorted.length];
+            for (int width = 1; width < sorted.length; width *= 2) {
+                for (int low = 0; low < sorted.length; low += 2 * width) {
+                    int middle = Math.min(low + width, sorted.length);
+                    int high = Math.min(low + 2 * width, sorted.length);
+                    int left = low;
+                    int right = middle;
+                    for (int i = low; i < high; i++) {
+                        if (left < middle && (right >= high || compare(sorted[left], sorted[right]) <= 0)) {
+                            buffer[i] = sorted[left++];
+                        } else {
+                            buffer[i] = sorted[right++];
+                        }
+                    }
+                }
+                int[] swap = sorted;
+                sorted = buffer;
+                buffer = swap;
+            }
+            slots = sorted;
+            size = sorted.length;
+        }
+
+        // Index of the first slot that does not order before (key, id), which is the slot itself when present, as
+        // taskIds make every key unique
+        int position(long keyValue, long idValue) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                int slot = slots[middle];
+                long slotKey = key.of(slot);
+                if (slotKey < keyValue || slotKey == keyValue && id.of(slot) < idValue) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private int compare(int a, int b) {
+            int byKey = Long.compare(key.of(a), key.of(b));
+            return byKey != 0 ? byKey : Long.compare(id.of(a), id.of(b));
+        }
+    }
+
+    @FunctionalInterface
+    private interface SlotColumn {
+
+        long of(int slot);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.SubTaskEntity;
+import com.example.demo.view.SubTaskView;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface SubTaskRepository extends JpaRepository<SubTaskEntity, Integer> {
+
+    @Query("select new com.example.demo.view.SubTaskView(s.subTaskId, s.description, s.completed, s.taskId, s.priority) " +
+            "from SubTaskEntity s where s.taskId = :taskId " +
+            "and (s.priority > :priority or (s.priority = :priority and s.subTaskId > :subTaskId)) " +
+            "order by s.priority, s.subTaskId")
+    List<SubTaskView> findViewsAfter(@Param("taskId") int taskId, @Param("priority") int priority,
+                                     @Param("subTaskId") int subTaskId, Pageable pageable);
+
+    @Query("select new com.example.demo.view.SubTaskView(s.subTaskId, s.description, s.completed, s.taskId, s.priority) " +
+            "from SubTaskEntity s where s.taskId = :taskId and s.subTaskId = :subTaskId")
+    Optional<SubTaskView> findViewById(@Param("taskId") int taskId, @Param("subTaskId") int subTaskId);
+
+    @Modifying
+    @Query("update SubTaskEntity s set s.description = :description, s.completed = :completed, s.priority = :priority " +
+            "where s.taskId = :taskId and s.subTaskId = :subTaskId")
+    int updateSubTask(@Param("taskId") int taskId, @Param("subTaskId") int subTaskId,
+                      @Param("description") String description, @Param("completed") boolean completed,
+                      @Param("priority") int priority);
+
+    @Modifying
+    @Query("update SubTaskEntity s set s.completed = case when s.completed = true then false else true end " +
+            "where s.taskId = :taskId and s.subTaskId = :subTaskId")
+    int toggleCompleted(@Param("taskId") int taskId, @Param("subTaskId") int subTaskId);
+}
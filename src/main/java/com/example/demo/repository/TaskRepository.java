@@ -1,8 +1,47 @@
 package com.example.demo.repository;
 
 import com.example.demo.entity.TaskEntity;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
-public interface TaskRepository extends JpaRepository<TaskEntity, Integer>, JpaSpecificationExecutor<TaskEntity> {
+import javax.persistence.QueryHint;
+import java.sql.Timestamp;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+public interface TaskRepository extends JpaRepository<TaskEntity, Integer>, JpaSpecificationExecutor<TaskEntity>,
+        TaskRepositoryCustom {
+
+    int STREAM_FETCH_SIZE = 500;
+
+    @Override
+    @EntityGraph(attributePaths = "subTasks")
+    Optional<TaskEntity> findById(Integer id);
+
+    @Query("select t.version from TaskEntity t where t.taskId = :id")
+    Optional<Integer> findVersionById(@Param("id") int id);
+
+    @Modifying
+    @Query("update TaskEntity t set t.version = t.version + 1, t.updated = :updated where t.taskId = :id")
+    int incrementVersion(@Param("id") int id, @Param("updated") Timestamp updated);
+
+    // Subtasks go with the ON DELETE CASCADE on sub_task_entity.task_id
+    @Modifying
+    @Query("delete from TaskEntity t where t.taskId = :id")
+    int deleteTaskById(@Param("id") int id);
+
+    @Modifying
+    @Query("delete from TaskEntity t where t.taskId = :id and t.version = :version")
+    int deleteTaskByIdAndVersion(@Param("id") int id, @Param("version") int version);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    @Query("select t from TaskEntity t order by t.taskId")
+    Stream<TaskEntity> streamAll();
 }
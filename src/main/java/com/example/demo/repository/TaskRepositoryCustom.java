@@ -0,0 +1,54 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.TaskEntity;
+import com.example.demo.entity.TaskPriority;
+import com.example.demo.util.TaskCounts;
+import com.example.demo.util.TaskField;
+import com.example.demo.view.TaskView;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+public interface TaskRepositoryCustom {
+
+    int INSERT_BATCH_SIZE = 50;
+
+    @Transactional(readOnly = true)
+    Optional<TaskView> findViewById(int id);
+
+    @Transactional(readOnly = true)
+    Optional<TaskView> findViewById(int id, Set<TaskField> fields);
+
+    @Transactional(readOnly = true)
+    List<TaskView> findViews(Specification<TaskEntity> spec, Sort sort);
+
+    @Transactional(readOnly = true)
+    List<TaskView> findViews(Specification<TaskEntity> spec, Sort sort, int limit);
+
+    @Transactional(readOnly = true)
+    List<TaskView> findViews(Specification<TaskEntity> spec, Sort sort, int limit, Set<TaskField> fields);
+
+    void insertAll(List<TaskEntity> tasks);
+
+    List<Integer> findIdsForUpdate(Specification<TaskEntity> spec);
+
+    int bulkUpdate(Specification<TaskEntity> spec, Boolean completed, TaskPriority priority, Timestamp updated);
+
+    int bulkDelete(Specification<TaskEntity> spec);
+
+    // Tasks matching the specification, or all of them when it is null, grouped by priority and completion, plus
+    // their subtasks
+    @Transactional(readOnly = true)
+    TaskCounts countTasks(Specification<TaskEntity> spec);
+
+    // The one task with the given id and its subtasks, in a single statement, or nothing when it does not exist
+    @Transactional(readOnly = true)
+    TaskCounts countTask(int id);
+
+    void detach(TaskEntity task);
+}
@@ -0,0 +1,253 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.SubTaskEntity;
+import com.example.demo.entity.TaskEntity;
+import com.example.demo.entity.TaskPriority;
+import com.example.demo.util.TaskCounts;
+import com.example.demo.util.TaskField;
+import com.example.demo.view.SubTaskView;
+import com.example.demo.view.TaskView;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaDelete;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.jpa.repository.query.QueryUtils.toOrders;
+
+public class TaskRepositoryImpl implements TaskRepositoryCustom {
+
+    private static final int IN_CLAUSE_SIZE = 1000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Optional<TaskView> findViewById(int id) {
+        return findViewById(id, TaskField.ALL);
+    }
+
+    @Override
+    public Optional<TaskView> findViewById(int id, Set<TaskField> fields) {
+        Specification<TaskEntity> byId = (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("taskId"), id);
+        return findViews(byId, Sort.unsorted(), 1, fields).stream().findFirst();
+    }
+
+    @Override
+    public List<TaskView> findViews(Specification<TaskEntity> spec, Sort sort) {
+        return findViews(spec, sort, -1);
+    }
+
+    @Override
+    public List<TaskView> findViews(Specification<TaskEntity> spec, Sort sort, int limit) {
+        return findViews(spec, sort, limit, TaskField.ALL);
+    }
+
+    /**
+     * Selects only the requested columns, plus the id and version that ETags need and the sort columns that cursors
+     * need. Subtasks are only queried when requested. Columns that were not selected are left null, or false for
+     * completed.
+     */
+    @Override
+    public List<TaskView> findViews(Specification<TaskEntity> spec, Sort sort, int limit, Set<TaskField> fields) {
+        Set<String> columns = new LinkedHashSet<>(List.of("taskId", "version"));
+        fields.stream()
+                .filter(field -> field != TaskField.SUB_TASKS)
+                .forEach(field -> columns.add(field.getTaskField()));
+        sort.forEach(order -> columns.add(order.getProperty()));
+
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<TaskEntity> root = query.from(TaskEntity.class);
+        query.multiselect(columns.stream()
+                .map(column -> root.get(column).alias(column))
+                .collect(Collectors.toList()));
+        if (spec != null) {
+            query.where(spec.toPredicate(root, query, criteriaBuilder));
+        }
+        query.orderBy(toOrders(sort, root, criteriaBuilder));
+
+        TypedQuery<Tuple> typedQuery = entityManager.createQuery(query);
+        if (limit >= 0) {
+            typedQuery.setMaxResults(limit);
+        }
+        List<Tuple> rows = typedQuery.getResultList();
+
+        Map<Integer, List<SubTaskView>> subTasks = null;
+        if (fields.contains(TaskField.SUB_TASKS)) {
+            List<Integer> taskIds = new ArrayList<>(rows.size());
+            rows.forEach(row -> taskIds.add(row.get("taskId", Integer.class)));
+            subTasks = findSubTaskViews(taskIds);
+        }
+
+        List<TaskView> views = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            int taskId = row.get("taskId", Integer.class);
+            views.add(new TaskView(taskId, column(row, columns, "description", String.class),
+                    Boolean.TRUE.equals(column(row, columns, "completed", Boolean.class)),
+                    column(row, columns, "priority", TaskPriority.class),
+                    column(row, columns, "created", Timestamp.class), column(row, columns, "updated", Timestamp.class),
+                    row.get("version", Integer.class),
+                    subTasks == null ? null : Collections.unmodifiableList(subTasks.getOrDefault(taskId, List.of()))));
+        }
+        return views;
+    }
+
+    @Override
+    public void insertAll(List<TaskEntity> tasks) {
+        for (int i = 0; i < tasks.size(); i++) {
+            entityManager.persist(tasks.get(i));
+            if ((i + 1) % INSERT_BATCH_SIZE == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Override
+    public List<Integer> findIdsForUpdate(Specification<TaskEntity> spec) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Integer> query = criteriaBuilder.createQuery(Integer.class);
+        Root<TaskEntity> root = query.from(TaskEntity.class);
+        query.select(root.get("taskId"));
+        query.where(spec.toPredicate(root, query, criteriaBuilder));
+
+        return entityManager.createQuery(query)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+    }
+
+    @Override
+    public int bulkUpdate(Specification<TaskEntity> spec, Boolean completed, TaskPriority priority,
+                          Timestamp updated) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<TaskEntity> update = criteriaBuilder.createCriteriaUpdate(TaskEntity.class);
+        Root<TaskEntity> root = update.from(TaskEntity.class);
+        if (completed != null) {
+            update.set(root.<Boolean>get("completed"), completed);
+        }
+        if (priority != null) {
+            update.set(root.<TaskPriority>get("priority"), priority);
+        }
+        Path<Integer> version = root.get("version");
+        update.set(version, criteriaBuilder.sum(version, 1));
+        update.set(root.<Timestamp>get("updated"), updated);
+        update.where(spec.toPredicate(root, null, criteriaBuilder));
+
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    @Override
+    public int bulkDelete(Specification<TaskEntity> spec) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaDelete<TaskEntity> delete = criteriaBuilder.createCriteriaDelete(TaskEntity.class);
+        Root<TaskEntity> root = delete.from(TaskEntity.class);
+        delete.where(spec.toPredicate(root, null, criteriaBuilder));
+
+        // Subtasks are removed by the ON DELETE CASCADE foreign key
+        return entityManager.createQuery(delete).executeUpdate();
+    }
+
+    @Override
+    public TaskCounts countTasks(Specification<TaskEntity> spec) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<TaskEntity> root = query.from(TaskEntity.class);
+        query.multiselect(root.get("priority"), root.get("completed"), criteriaBuilder.count(root));
+        if (spec != null) {
+            query.where(spec.toPredicate(root, query, criteriaBuilder));
+        }
+        query.groupBy(root.get("priority"), root.get("completed"));
+
+        TaskCounts counts = new TaskCounts();
+        for (Tuple row : entityManager.createQuery(query).getResultList()) {
+            counts.addTasks(row.get(0, TaskPriority.class), row.get(1, Boolean.class), row.get(2, Long.class));
+        }
+
+        CriteriaQuery<Tuple> subTaskQuery = criteriaBuilder.createTupleQuery();
+        Root<SubTaskEntity> subTask = subTaskQuery.from(SubTaskEntity.class);
+        subTaskQuery.multiselect(criteriaBuilder.count(subTask), criteriaBuilder.sum(criteriaBuilder.<Long>selectCase()
+                .when(criteriaBuilder.isTrue(subTask.get("completed")), 1L)
+                .otherwise(0L)));
+        if (spec != null) {
+            Subquery<Integer> taskIds = subTaskQuery.subquery(Integer.class);
+            Root<TaskEntity> task = taskIds.from(TaskEntity.class);
+            taskIds.select(task.get("taskId")).where(spec.toPredicate(task, subTaskQuery, criteriaBuilder));
+            subTaskQuery.where(subTask.get("taskId").in(taskIds));
+        }
+
+        Tuple subTasks = entityManager.createQuery(subTaskQuery).getSingleResult();
+        Long completed = subTasks.get(1, Long.class);
+        return counts.addSubTasks(subTasks.get(0, Long.class), completed == null ? 0 : completed);
+    }
+
+    @Override
+    public TaskCounts countTask(int id) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<TaskEntity> root = query.from(TaskEntity.class);
+        Join<TaskEntity, SubTaskEntity> subTask = root.join("subTasks", JoinType.LEFT);
+        query.multiselect(root.get("priority"), root.get("completed"), criteriaBuilder.count(subTask),
+                        criteriaBuilder.sum(criteriaBuilder.<Long>selectCase()
+                                .when(criteriaBuilder.isTrue(subTask.get("completed")), 1L)
+                                .otherwise(0L)))
+                .where(criteriaBuilder.equal(root.get("taskId"), id))
+                .groupBy(root.get("priority"), root.get("completed"));
+
+        TaskCounts counts = new TaskCounts();
+        for (Tuple row : entityManager.createQuery(query).getResultList()) {
+            Long completed = row.get(3, Long.class);
+            counts.addTasks(row.get(0, TaskPriority.class), row.get(1, Boolean.class), 1)
+                    .addSubTasks(row.get(2, Long.class), completed == null ? 0 : completed);
+        }
+        return counts;
+    }
+
+    @Override
+    public void detach(TaskEntity task) {
+        entityManager.detach(task);
+    }
+
+    private static <T> T column(Tuple row, Set<String> columns, String column, Class<T> type) {
+        return columns.contains(column) ? row.get(column, type) : null;
+    }
+
+    private Map<Integer, List<SubTaskView>> findSubTaskViews(List<Integer> taskIds) {
+        Map<Integer, List<SubTaskView>> subTasks = new HashMap<>();
+        for (int from = 0; from < taskIds.size(); from += IN_CLAUSE_SIZE) {
+            List<Integer> chunk = taskIds.subList(from, Math.min(from + IN_CLAUSE_SIZE, taskIds.size()));
+            entityManager.createQuery("select new com.example.demo.view.SubTaskView(" +
+                            "s.subTaskId, s.description, s.completed, s.taskId, s.priority) " +
+                            "from SubTaskEntity s where s.taskId in :taskIds " +
+                            "order by s.taskId, s.priority, s.subTaskId", SubTaskView.class)
+                    .setParameter("taskIds", chunk)
+                    .getResultList()
+                    .forEach(subTask -> subTasks.computeIfAbsent(subTask.getTaskId(), id -> new ArrayList<>()).add(subTask));
+        }
+        return subTasks;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.TaskTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+public interface TaskTombstoneRepository extends JpaRepository<TaskTombstone, Integer> {
+
+    @Query("select t from TaskTombstone t " +
+            "where t.deleted > :deleted or (t.deleted = :deleted and t.taskId > :taskId) " +
+            "order by t.deleted, t.taskId")
+    List<TaskTombstone> findAfter(@Param("deleted") Timestamp deleted, @Param("taskId") int taskId,
+                                  Pageable pageable);
+
+    @Modifying
+    @Query("delete from TaskTombstone t where t.deleted < :deleted")
+    int deleteDeletedBefore(@Param("deleted") Timestamp deleted);
+}
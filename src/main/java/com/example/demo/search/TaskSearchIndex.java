@@ -0,0 +1,656 @@
+package com.example.demo.search;
+
+import com.example.demo.entity.TaskEntity;
+import com.example.demo.entity.TaskPriority;
+import com.example.demo.event.TaskChangedEvent;
+import com.example.demo.event.WrittenTaskListener;
+import com.example.demo.repository.TaskRepository;
+import com.example.demo.util.TaskField;
+import com.example.demo.util.TaskFilter;
+import com.example.demo.view.SubTaskView;
+import com.example.demo.view.TaskView;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * In-process inverted index over task and subtask descriptions.
+ * <p>
+ * Descriptions are split into lower case words of letters and digits. Every word points to the tasks containing it,
+ * sorted by task id, with a weight that counts a word in the task description twice and a word in one of its subtasks
+ * once. A query matches the tasks that hold each of its words, or a word starting with it, and ranks them by those
+ * weights scaled by how rare the words are, exact words above prefixes. Priority and completion sit in one byte per
+ * task id, so filters cost no lookup.
+ * <p>
+ * The index is built once the application is ready, and a committed write indexes the task as it left it, handed
+ * over by {@link com.example.demo.event.WrittenTaskPublisher}. A bulk write builds a new index in the background
+ * while the current one keeps answering, and writes in the meantime go to both. Until the first build finishes,
+ * searches answer nothing.
+ */
+@Component
+public class TaskSearchIndex implements WrittenTaskListener {
+
+    static final int LOAD_CHUNK_SIZE = 10_000;
+
+    // Words a prefix expands to at most, the most common first
+    static final int MAX_EXPANSIONS = 64;
+
+    private static final int MAX_WORD_LENGTH = 64;
+
+    private static final int TASK_WEIGHT = 2;
+
+    private static final int SUB_TASK_WEIGHT = 1;
+
+    private static final float PREFIX_FACTOR = 0.5f;
+
+    // A task's flags hold completion in the lowest bit and the priority ordinal above it. The highest bit is set for
+    // every indexed task, so that 0 marks an id that is not
+    private static final int COMPLETED_FLAG = 1;
+
+    private static final int PRIORITY_MASK = 0x7e;
+
+    private static final int PRESENT = 0x80;
+
+    private static final float[] DAMPENED_WEIGHTS = new float[64];
+
+    static {
+        for (int weight = 0; weight < DAMPENED_WEIGHTS.length; weight++) {
+            DAMPENED_WEIGHTS[weight] = (float) Math.log1p(weight);
+        }
+    }
+
+    private final TaskRepository taskRepository;
+
+    private final boolean enabled;
+
+    private final ExecutorService builder;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock
+    private Index index = new Index();
+
+    // Guarded by lock, the index a build is filling
+    private Index building;
+
+    // Guarded by lock
+    private boolean buildRequested;
+
+    private volatile boolean ready;
+
+    public TaskSearchIndex(TaskRepository taskRepository,
+                           @Value("${task.search.enabled:true}") boolean enabled) {
+        this.taskRepository = taskRepository;
+        this.enabled = enabled;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("task-search-");
+        threadFactory.setDaemon(true);
+        this.builder = Executors.newSingleThreadExecutor(threadFactory);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Finds the ids of at most limit tasks matching every word of the query and the priority and completed filters,
+     * best match first and ties by taskId, or nothing when the index is disabled or not built yet.
+     */
+    public Optional<List<Integer>> search(String query, Map<String, String> filter, int limit) {
+        if (!ready) {
+            return Optional.empty();
+        }
+        int flagMask = 0;
+        int flagValue = 0;
+        for (Map.Entry<String, String> entry : filter.entrySet()) {
+            if (entry.getKey().equals(TaskFilter.PRIORITY.getTaskFilter())) {
+                flagMask |= PRIORITY_MASK;
+                flagValue |= TaskPriority.valueOf(entry.getValue()).ordinal() << 1;
+            } else if (entry.getKey().equals(TaskFilter.COMPLETED.getTaskFilter())) {
+                flagMask |= COMPLETED_FLAG;
+                flagValue |= Boolean.parseBoolean(entry.getValue()) ? COMPLETED_FLAG : 0;
+            }
+        }
+        Set<String> words = new LinkedHashSet<>(words(query));
+        if (words.isEmpty()) {
+            return Optional.of(List.of());
+        }
+
+        lock.readLock().lock();
+        try {
+            return Optional.of(index.search(words, flagMask, flagValue, limit));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            requestBuild();
+        }
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskChanged(TaskChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.isBulk()) {
+            requestBuild();
+            return;
+        }
+        if (event.getType() != TaskChangedEvent.Type.DELETED) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            index.remove(event.getTaskId());
+            if (building != null) {
+                building.remove(event.getTaskId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void onTasksWritten(List<TaskView> tasks) {
+        List<Document> documents = tasks.stream().map(Document::of).collect(Collectors.toList());
+        lock.writeLock().lock();
+        try {
+            for (Document document : documents) {
+                index.upsert(document);
+                if (building != null) {
+                    building.upsert(document);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        builder.shutdownNow();
+    }
+
+    /**
+     * Reads every task in chunks of {@link #LOAD_CHUNK_SIZE} into a new index and swaps it in. Writes that commit in
+     * the meantime go to the new index as well; task versions keep a chunk read earlier from undoing them, and
+     * deleted ids are remembered so that no chunk brings a task back.
+     */
+    void build() {
+        Index built = new Index();
+        lock.writeLock().lock();
+        try {
+            building = built;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            int after = 0;
+            List<TaskView> chunk;
+            do {
+                chunk = taskRepository.findViews(idAfter(after), Sort.by("taskId"), LOAD_CHUNK_SIZE, TaskField.ALL);
+                List<Document> documents = chunk.stream().map(Document::of).collect(Collectors.toList());
+                lock.writeLock().lock();
+                try {
+                    documents.forEach(built::upsert);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                after = chunk.isEmpty() ? after : chunk.get(chunk.size() - 1).getTaskId();
+            } while (chunk.size() == LOAD_CHUNK_SIZE);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                building = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            index = built;
+            building = null;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void requestBuild() {
+        lock.writeLock().lock();
+        try {
+            if (buildRequested) {
+                return;
+            }
+            buildRequested = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        builder.execute(() -> {
+            lock.writeLock().lock();
+            try {
+                buildRequested = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            build();
+        });
+    }
+
+    // Dampens repeated words: a word said four times counts less than four times as much
+    private static float score(int weight, float rarity) {
+        return (weight < DAMPENED_WEIGHTS.length ? DAMPENED_WEIGHTS[weight] : (float) Math.log1p(weight)) * rarity;
+    }
+
+    private static Specification<TaskEntity> idAfter(int taskId) {
+        return (root, query, criteriaBuilder) -> criteriaBuilder.greaterThan(root.get("taskId"), taskId);
+    }
+
+    /**
+     * Splits text into lower case words of letters and digits, cutting words longer than {@value #MAX_WORD_LENGTH}
+     * characters.
+     */
+    static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        String lowerCase = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lowerCase.length(); i++) {
+            boolean wordCharacter = i < lowerCase.length() && Character.isLetterOrDigit(lowerCase.charAt(i));
+            if (wordCharacter && start < 0) {
+                start = i;
+            } else if (!wordCharacter && start >= 0) {
+                words.add(lowerCase.substring(start, Math.min(i, start + MAX_WORD_LENGTH)));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * The words of one task with their weights, computed before taking the lock.
+     */
+    private static final class Document {
+
+        private final int taskId;
+
+        private final int version;
+
+        private final byte flags;
+
+        private final String[] words;
+
+        private final int[] weights;
+
+        private Document(int taskId, int version, byte flags, String[] words, int[] weights) {
+            this.taskId = taskId;
+            this.version = version;
+            this.flags = flags;
+            this.words = words;
+            this.weights = weights;
+        }
+
+        static Document of(TaskView view) {
+            Map<String, Integer> weights = new HashMap<>();
+            words(view.getDescription()).forEach(word -> weights.merge(word, TASK_WEIGHT, Integer::sum));
+            if (view.getSubTasks() != null) {
+                for (SubTaskView subTask : view.getSubTasks()) {
+                    words(subTask.getDescription()).forEach(word -> weights.merge(word, SUB_TASK_WEIGHT, Integer::sum));
+                }
+            }
+            String[] words = weights.keySet().toArray(new String[0]);
+            Arrays.sort(words);
+            int[] sortedWeights = new int[words.length];
+            for (int i = 0; i < words.length; i++) {
+                sortedWeights[i] = weights.get(words[i]);
+            }
+            int flags = PRESENT | view.getPriority().ordinal() << 1 | (view.isCompleted() ? COMPLETED_FLAG : 0);
+            return new Document(view.getTaskId(), view.getVersion(), (byte) flags, words, sortedWeights);
+        }
+
+        int weight(String word) {
+            int i = Arrays.binarySearch(words, word);
+            return i < 0 ? 0 : weights[i];
+        }
+    }
+
+    /**
+     * Task ids holding a word, ascending, with the word's weight in each.
+     */
+    private static final class Postings {
+
+        private int[] ids = new int[4];
+
+        private int[] weights = new int[4];
+
+        private int size;
+
+        void set(int id, int weight) {
+            // Tasks mostly arrive in id order, so try the end first
+            int i = size > 0 && ids[size - 1] < id ? -size - 1 : Arrays.binarySearch(ids, 0, size, id);
+            if (i >= 0) {
+                weights[i] = weight;
+                return;
+            }
+            i = -i - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            System.arraycopy(ids, i, ids, i + 1, size - i);
+            System.arraycopy(weights, i, weights, i + 1, size - i);
+            ids[i] = id;
+            weights[i] = weight;
+            size++;
+        }
+
+        void remove(int id) {
+            int i = Arrays.binarySearch(ids, 0, size, id);
+            if (i < 0) {
+                return;
+            }
+            System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+            System.arraycopy(weights, i + 1, weights, i, size - i - 1);
+            size--;
+        }
+    }
+
+    /**
+     * Tasks matching one query word, ascending by id. The postings of a single word are scored as they are read, the
+     * merged postings of a prefix carry their scores.
+     */
+    private static final class Matches {
+
+        private final int[] ids;
+
+        private final int size;
+
+        private final int[] weights;
+
+        private final float rarity;
+
+        private final float[] scores;
+
+        private Matches(int[] ids, int size, int[] weights, float rarity, float[] scores) {
+            this.ids = ids;
+            this.size = size;
+            this.weights = weights;
+            this.rarity = rarity;
+            this.scores = scores;
+        }
+
+        float score(int i) {
+            return scores == null ? TaskSearchIndex.score(weights[i], rarity) : scores[i];
+        }
+
+        // Position of the id at or after from, galloping ahead so that walking a short list through a long one costs
+        // a logarithm per step, or the negative insertion point minus one
+        int find(int id, int from) {
+            int low = from;
+            int high = from;
+            for (int step = 1; high < size && ids[high] < id; step *= 2) {
+                low = high + 1;
+                high = from + step;
+            }
+            return Arrays.binarySearch(ids, low, Math.min(high + 1, size), id);
+        }
+    }
+
+    /**
+     * The best matches seen so far in a min-heap of (score, reversed id) packed into longs, so that a larger long is
+     * a better match.
+     */
+    private static final class TopTasks {
+
+        private final long[] heap;
+
+        private int size;
+
+        TopTasks(int limit) {
+            this.heap = new long[limit];
+        }
+
+        void offer(int id, float score) {
+            long key = (long) Float.floatToIntBits(score) << 32 | (Integer.MAX_VALUE - id);
+            if (size < heap.length) {
+                heap[size] = key;
+                for (int i = size++; i > 0 && heap[(i - 1) / 2] > heap[i]; i = (i - 1) / 2) {
+                    swap(i, (i - 1) / 2);
+                }
+            } else if (key > heap[0]) {
+                heap[0] = key;
+                for (int i = 0, smallest = 0; ; i = smallest) {
+                    for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child++) {
+                        if (heap[child] < heap[smallest]) {
+                            smallest = child;
+                        }
+                    }
+                    if (smallest == i) {
+                        break;
+                    }
+                    swap(i, smallest);
+                }
+            }
+        }
+
+        List<Integer> ids() {
+            long[] sorted = Arrays.copyOf(heap, size);
+            Arrays.sort(sorted);
+            List<Integer> ids = new ArrayList<>(size);
+            for (int i = size - 1; i >= 0; i--) {
+                ids.add(Integer.MAX_VALUE - (int) sorted[i]);
+            }
+            return ids;
+        }
+
+        private void swap(int i, int j) {
+            long swapped = heap[i];
+            heap[i] = heap[j];
+            heap[j] = swapped;
+        }
+    }
+
+    private static final class Index {
+
+        private final NavigableMap<String, Postings> postings = new TreeMap<>();
+
+        private final Map<Integer, Document> documents = new HashMap<>();
+
+        // Deleted task ids, so that a chunk read before a deletion cannot bring the task back
+        private final BitSet deleted = new BitSet();
+
+        // Flags by task id, 0 for tasks that are not indexed
+        private byte[] flags = new byte[1024];
+
+        void upsert(Document document) {
+            int id = document.taskId;
+            if (deleted.get(id)) {
+                return;
+            }
+            Document previous = documents.get(id);
+            if (previous != null && previous.version > document.version) {
+                return;
+            }
+
+            if (previous != null) {
+                for (int i = 0; i < previous.words.length; i++) {
+                    if (document.weight(previous.words[i]) == 0) {
+                        removePosting(previous.words[i], id);
+                    }
+                }
+            }
+            for (int i = 0; i < document.words.length; i++) {
+                if (previous == null || previous.weight(document.words[i]) != document.weights[i]) {
+                    postings.computeIfAbsent(document.words[i], word -> new Postings()).set(id, document.weights[i]);
+                }
+            }
+            documents.put(id, document);
+            if (id >= flags.length) {
+                flags = Arrays.copyOf(flags, Math.max(flags.length * 2, id + 1));
+            }
+            flags[id] = document.flags;
+        }
+
+        void remove(int id) {
+            deleted.set(id);
+            Document document = documents.remove(id);
+            if (document == null) {
+                return;
+            }
+            for (String word : document.words) {
+                removePosting(word, id);
+            }
+            flags[id] = 0;
+        }
+
+        List<Integer> search(Set<String> words, int flagMask, int flagValue, int limit) {
+            List<Matches> matches = new ArrayList<>(words.size());
+            for (String word : words) {
+                Matches wordMatches = matches(word);
+                if (wordMatches.size == 0) {
+                    return List.of();
+                }
+                matches.add(wordMatches);
+            }
+            matches.sort(Comparator.comparingInt(wordMatches -> wordMatches.size));
+
+            // Walk the rarest word's tasks and look each one up in the other words' lists, which only move forward
+            TopTasks top = new TopTasks(limit);
+            Matches rarest = matches.get(0);
+            int[] positions = new int[matches.size()];
+            candidates:
+            for (int i = 0; i < rarest.size; i++) {
+                int id = rarest.ids[i];
+                if ((flags[id] & flagMask) != flagValue) {
+                    continue;
+                }
+                float score = rarest.score(i);
+                for (int m = 1; m < matches.size(); m++) {
+                    Matches other = matches.get(m);
+                    int j = other.find(id, positions[m]);
+                    if (j < 0) {
+                        positions[m] = -j - 1;
+                        if (positions[m] == other.size) {
+                            break candidates;
+                        }
+                        continue candidates;
+                    }
+                    positions[m] = j;
+                    score += other.score(j);
+                }
+                top.offer(id, score);
+            }
+            return top.ids();
+        }
+
+        // Matches the tasks holding the word or, for at most MAX_EXPANSIONS of the most common ones, a longer word
+        // starting with it
+        private Matches matches(String word) {
+            List<Map.Entry<String, Postings>> expansions = new ArrayList<>(
+                    postings.subMap(word, true, word + Character.MAX_VALUE, false).entrySet());
+            if (expansions.size() > MAX_EXPANSIONS) {
+                expansions.sort(Comparator.comparing((Map.Entry<String, Postings> entry) -> !entry.getKey().equals(word))
+                        .thenComparing(entry -> -entry.getValue().size));
+                expansions = expansions.subList(0, MAX_EXPANSIONS);
+            }
+            if (expansions.isEmpty()) {
+                return new Matches(new int[0], 0, new int[0], 0, null);
+            }
+            if (expansions.size() == 1) {
+                Map.Entry<String, Postings> expansion = expansions.get(0);
+                Postings wordPostings = expansion.getValue();
+                return new Matches(wordPostings.ids, wordPostings.size, wordPostings.weights,
+                        rarity(wordPostings, expansion.getKey().equals(word)), null);
+            }
+
+            // Pack (id, score) pairs into longs, sort them and keep the best score per id, which sorts last
+            int total = expansions.stream().mapToInt(expansion -> expansion.getValue().size).sum();
+            long[] packed = new long[total];
+            int n = 0;
+            for (Map.Entry<String, Postings> expansion : expansions) {
+                Postings wordPostings = expansion.getValue();
+                float rarity = rarity(wordPostings, expansion.getKey().equals(word));
+                for (int i = 0; i < wordPostings.size; i++) {
+                    float score = score(wordPostings.weights[i], rarity);
+                    packed[n++] = (long) wordPostings.ids[i] << 32 | Float.floatToIntBits(score);
+                }
+            }
+            Arrays.sort(packed);
+            int[] ids = new int[total];
+            float[] scores = new float[total];
+            int size = 0;
+            for (int i = 0; i < total; i++) {
+                int id = (int) (packed[i] >>> 32);
+                if (i + 1 < total && (int) (packed[i + 1] >>> 32) == id) {
+                    continue;
+                }
+                ids[size] = id;
+                scores[size++] = Float.intBitsToFloat((int) packed[i]);
+            }
+            return new Matches(ids, size, null, 0, scores);
+        }
+
+        private float rarity(Postings wordPostings, boolean exact) {
+            float rarity = (float) Math.log1p((double) documents.size() / wordPostings.size);
+            return exact ? rarity : rarity * PREFIX_FACTOR;
+        }
+
+        private void removePosting(String word, int id) {
+            Postings wordPostings = postings.get(word);
+            wordPostings.remove(id);
+            if (wordPostings.size == 0) {
+                postings.remove(word);
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.SubTaskEntity;
+import com.example.demo.event.TaskChangedEvent;
+import com.example.demo.event.TaskCountsChangedEvent;
+import com.example.demo.repository.SubTaskRepository;
+import com.example.demo.repository.TaskRepository;
+import com.example.demo.util.SubTaskCursor;
+import com.example.demo.util.SubTaskPage;
+import com.example.demo.util.TaskCounts;
+import com.example.demo.util.TaskField;
+import com.example.demo.view.SubTaskView;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+@Service
+public class SubTaskService {
+
+    private final SubTaskRepository subTaskRepository;
+
+    private final TaskRepository taskRepository;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public SubTaskService(SubTaskRepository subTaskRepository, TaskRepository taskRepository,
+                          ApplicationEventPublisher eventPublisher) {
+        this.subTaskRepository = subTaskRepository;
+        this.taskRepository = taskRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    public Optional<SubTaskPage> getSubTasks(int taskId, SubTaskCursor cursor, int limit) {
+        PageRequest pageRequest = PageRequest.of(0, limit + 1);
+        List<SubTaskView> subTasks = cursor == null
+                ? subTaskRepository.findViewsAfter(taskId, Integer.MIN_VALUE, Integer.MIN_VALUE, pageRequest)
+                : subTaskRepository.findViewsAfter(taskId, cursor.getPriority(), cursor.getSubTaskId(), pageRequest);
+        if (subTasks.isEmpty() && !taskRepository.existsById(taskId)) {
+            return Optional.empty();
+        }
+        if (subTasks.size() <= limit) {
+            return Optional.of(new SubTaskPage(subTasks, null));
+        }
+        List<SubTaskView> page = subTasks.subList(0, limit);
+        return Optional.of(new SubTaskPage(page, SubTaskCursor.after(page.get(limit - 1))));
+    }
+
+    public Optional<SubTaskView> getSubTask(int taskId, int subTaskId) {
+        return subTaskRepository.findViewById(taskId, subTaskId);
+    }
+
+    @Transactional
+    public Optional<SubTaskEntity> createSubTask(int taskId, SubTaskEntity subTask) {
+        if (taskRepository.incrementVersion(taskId, Timestamp.from(Instant.now())) == 0) {
+            return Optional.empty();
+        }
+        subTask.setSubTaskId(0);
+        subTask.setTask(taskRepository.getReferenceById(taskId));
+        SubTaskEntity created = subTaskRepository.save(subTask);
+        publishChanged(taskId);
+        publishCompletedChange(1, subTask.isCompleted() ? 1 : 0);
+        return Optional.of(created);
+    }
+
+    @Transactional
+    public boolean updateSubTask(int taskId, int subTaskId, SubTaskEntity subTask) {
+        Optional<SubTaskView> current = subTaskRepository.findViewById(taskId, subTaskId);
+        boolean changed = taskChanged(taskId, subTaskRepository.updateSubTask(taskId, subTaskId,
+                subTask.getDescription(), subTask.isCompleted(), subTask.getPriority()));
+        if (changed && current.isPresent() && current.get().isCompleted() != subTask.isCompleted()) {
+            publishCompletedChange(0, subTask.isCompleted() ? 1 : -1);
+        }
+        return changed;
+    }
+
+    // The toggled row is locked by now, so reading it back gives the state the toggle left
+    @Transactional
+    public boolean toggleSubTask(int taskId, int subTaskId) {
+        if (!taskChanged(taskId, subTaskRepository.toggleCompleted(taskId, subTaskId))) {
+            return false;
+        }
+        subTaskRepository.findViewById(taskId, subTaskId)
+                .ifPresent(toggled -> publishCompletedChange(0, toggled.isCompleted() ? 1 : -1));
+        return true;
+    }
+
+    // A subtask write changes its task, so the task version and the cached views have to move with it
+    private boolean taskChanged(int taskId, int affected) {
+        if (affected == 0) {
+            return false;
+        }
+        taskRepository.incrementVersion(taskId, Timestamp.from(Instant.now()));
+        publishChanged(taskId);
+        return true;
+    }
+
+    private void publishCompletedChange(int subTasks, int completed) {
+        eventPublisher.publishEvent(new TaskCountsChangedEvent(new TaskCounts().addSubTasks(subTasks, completed)));
+    }
+
+    private void publishChanged(int taskId) {
+        eventPublisher.publishEvent(new TaskChangedEvent(TaskChangedEvent.Type.UPDATED, taskId,
+                taskRepository.findVersionById(taskId).orElse(0), Set.of(TaskField.SUB_TASKS)));
+    }
+}
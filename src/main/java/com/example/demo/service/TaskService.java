@@ -1,23 +1,88 @@
 package com.example.demo.service;
 
+import com.example.demo.cache.TaskCache;
+import com.example.demo.cache.TaskListCache;
+import com.example.demo.cache.TaskListKey;
+import com.example.demo.entity.SubTaskEntity;
 import com.example.demo.entity.TaskEntity;
 import com.example.demo.entity.TaskPriority;
+import com.example.demo.entity.TaskTombstone;
+import com.example.demo.event.TaskChangedEvent;
+import com.example.demo.event.TaskCountsChangedEvent;
+import com.example.demo.readmodel.TaskReadModel;
 import com.example.demo.repository.TaskRepository;
+import com.example.demo.repository.TaskTombstoneRepository;
+import com.example.demo.search.TaskSearchIndex;
+import com.example.demo.util.BulkResult;
+import com.example.demo.util.SortDirection;
+import com.example.demo.util.SortField;
+import com.example.demo.util.SyncToken;
+import com.example.demo.util.TaskBulkUpdate;
+import com.example.demo.util.TaskChanges;
+import com.example.demo.util.TaskCounts;
+import com.example.demo.util.TaskCursor;
+import com.example.demo.util.TaskField;
 import com.example.demo.util.TaskFilter;
+import com.example.demo.util.TaskPage;
+import com.example.demo.util.TaskPatch;
+import com.example.demo.view.TaskView;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class TaskService {
 
+    // Ids read per query when tasks are listed by id, more than the largest page and the id that tells a next one
+    private static final int ID_BATCH_SIZE = 1024;
+
     private final TaskRepository taskRepository;
 
+    private final TaskTombstoneRepository taskTombstoneRepository;
+
+    private final TaskCache taskCache;
+
+    private final TaskListCache taskListCache;
+
+    private final TaskReadModel taskReadModel;
+
+    private final TaskSearchIndex taskSearchIndex;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Duration syncLag;
+
+    private final Duration tombstoneRetention;
+
     static Specification<TaskEntity> priorityEquals(TaskPriority priority) {
         return (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("priority"), priority);
     }
@@ -26,17 +91,71 @@ public class TaskService {
         return (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("completed"), completed);
     }
 
-    public TaskService(TaskRepository taskRepository) {
-        this.taskRepository = taskRepository;
+    /**
+     * Matches the tasks that come after the cursor in (sortField, taskId) order. NULL creation dates sort first
+     * in ascending order, which is the default for both MySQL and H2.
+     */
+    static Specification<TaskEntity> after(TaskCursor cursor) {
+        return (root, query, criteriaBuilder) -> {
+            boolean ascending = cursor.getSortDirection() == SortDirection.ASC;
+            Path<Integer> taskId = root.get("taskId");
+            Predicate idAfter = ascending
+                    ? criteriaBuilder.greaterThan(taskId, cursor.getTaskId())
+                    : criteriaBuilder.lessThan(taskId, cursor.getTaskId());
+
+            if (cursor.getSortField() == SortField.PRIORITY) {
+                TaskPriority priority = TaskPriority.valueOf(cursor.getValue());
+                Path<TaskPriority> priorityPath = root.get("priority");
+                List<TaskPriority> following = Arrays.stream(TaskPriority.values())
+                        .filter(other -> ascending ? other.compareTo(priority) > 0 : other.compareTo(priority) < 0)
+                        .collect(Collectors.toList());
+                Predicate samePriority = criteriaBuilder.and(criteriaBuilder.equal(priorityPath, priority), idAfter);
+                return following.isEmpty() ? samePriority : criteriaBuilder.or(samePriority, priorityPath.in(following));
+            }
+
+            Path<Timestamp> created = root.get("created");
+            if (cursor.getValue() == null) {
+                Predicate sameCreated = criteriaBuilder.and(criteriaBuilder.isNull(created), idAfter);
+                return ascending ? criteriaBuilder.or(sameCreated, criteriaBuilder.isNotNull(created)) : sameCreated;
+            }
+            Timestamp value = Timestamp.from(Instant.parse(cursor.getValue()));
+            Predicate sameCreated = criteriaBuilder.and(criteriaBuilder.equal(created, value), idAfter);
+            return ascending
+                    ? criteriaBuilder.or(criteriaBuilder.greaterThan(created, value), sameCreated)
+                    : criteriaBuilder.or(criteriaBuilder.lessThan(created, value), sameCreated, criteriaBuilder.isNull(created));
+        };
     }
 
-    public Optional<TaskEntity> getTaskById(int id) {
-        return taskRepository.findById(id);
+    // Matches the tasks changed after the token in (updated, taskId) order
+    static Specification<TaskEntity> changedAfter(SyncToken token) {
+        return (root, query, criteriaBuilder) -> {
+            Path<Timestamp> updated = root.get("updated");
+            Timestamp changed = Timestamp.from(token.getChanged());
+            return criteriaBuilder.or(criteriaBuilder.greaterThan(updated, changed),
+                    criteriaBuilder.and(criteriaBuilder.equal(updated, changed),
+                            criteriaBuilder.greaterThan(root.get("taskId"), token.getTaskId())));
+        };
     }
 
-    public List<TaskEntity> getAllTasks(Map<String, String> filter, Sort sort) {
+    static Specification<TaskEntity> idIn(List<Integer> ids) {
+        return (root, query, criteriaBuilder) -> root.get("taskId").in(ids);
+    }
+
+    static Specification<TaskEntity> bulkSpecification(Map<String, String> filter, List<Integer> ids) {
+        Specification<TaskEntity> spec = filterSpecification(filter);
+        if (ids != null) {
+            spec = spec == null ? idIn(ids) : spec.and(idIn(ids));
+        }
+        if (spec == null) {
+            throw new IllegalArgumentException("Bulk operations need a filter or a list of ids");
+        }
+        return spec;
+    }
 
+    public static Specification<TaskEntity> filterSpecification(Map<String, String> filter) {
         List<Specification<TaskEntity>> specs = filter.entrySet().stream()
+                .filter(entry -> entry.getKey().equals(TaskFilter.PRIORITY.getTaskFilter())
+                        || entry.getKey().equals(TaskFilter.COMPLETED.getTaskFilter()))
                 .map(entry -> {
                     if (entry.getKey().equals(TaskFilter.PRIORITY.getTaskFilter())) {
                         return priorityEquals(TaskPriority.valueOf(entry.getValue()));
@@ -46,35 +165,413 @@ public class TaskService {
                 })
                 .collect(Collectors.toList());
 
-        return taskRepository.findAll(specs.stream().reduce(Specification::and).orElse(null),
-                sort);
+        return specs.stream().reduce(Specification::and).orElse(null);
+    }
+
+    public TaskService(TaskRepository taskRepository, TaskTombstoneRepository taskTombstoneRepository,
+                       TaskCache taskCache, TaskListCache taskListCache, TaskReadModel taskReadModel,
+                       TaskSearchIndex taskSearchIndex, ApplicationEventPublisher eventPublisher,
+                       @Value("${task.sync.lag:5s}") Duration syncLag,
+                       @Value("${task.sync.tombstone-retention:7d}") Duration tombstoneRetention) {
+        this.taskRepository = taskRepository;
+        this.taskTombstoneRepository = taskTombstoneRepository;
+        this.taskCache = taskCache;
+        this.taskListCache = taskListCache;
+        this.taskReadModel = taskReadModel;
+        this.taskSearchIndex = taskSearchIndex;
+        this.eventPublisher = eventPublisher;
+        this.syncLag = syncLag;
+        this.tombstoneRetention = tombstoneRetention;
+    }
+
+    public Optional<TaskView> getTaskById(int id) {
+        return taskCache.get(id, taskRepository::findViewById);
+    }
+
+    // Only complete tasks are cached; a partial read uses the cached task when there is one and queries otherwise
+    public Optional<TaskView> getTaskById(int id, Set<TaskField> fields) {
+        if (fields.equals(TaskField.ALL)) {
+            return getTaskById(id);
+        }
+        return taskCache.get(id, fields, key -> taskRepository.findViewById(key, fields));
+    }
+
+    public Optional<Integer> getTaskVersion(int id) {
+        return taskCache.getIfPresent(id)
+                .map(TaskView::getVersion)
+                .or(() -> taskRepository.findVersionById(id));
+    }
+
+    // The read model lists the matching ids in order when it is enabled and loaded, and only those tasks are read
+    public List<TaskView> getAllTasks(Map<String, String> filter, Sort sort, Set<TaskField> fields) {
+        return taskListCache.get(TaskListKey.of(filter, sort, null, -1, fields),
+                () -> taskReadModel.getTaskIds(filter, sort)
+                        .map(ids -> findViewsInOrder(ids, fields))
+                        .orElseGet(() -> taskRepository.findViews(filterSpecification(filter), sort, -1, fields)));
+    }
+
+    /**
+     * Best matches for the query first, or nothing while the search index is not built. The index ranks task ids
+     * and those tasks are read by id; a task deleted in between is left out.
+     */
+    public Optional<List<TaskView>> searchTasks(String query, Map<String, String> filter, int limit,
+                                                Set<TaskField> fields) {
+        return taskSearchIndex.search(query, filter, limit)
+                .map(ids -> findViewsInOrder(ids.stream().mapToInt(Integer::intValue).toArray(), fields));
+    }
+
+    // Reads the tasks in the order of their ids, ID_BATCH_SIZE ids per query, leaving out tasks deleted since the
+    // ids were listed
+    private List<TaskView> findViewsInOrder(int[] ids, Set<TaskField> fields) {
+        Map<Integer, TaskView> tasks = new HashMap<>(ids.length * 2);
+        for (int from = 0; from < ids.length; from += ID_BATCH_SIZE) {
+            List<Integer> batch = Arrays.stream(ids, from, Math.min(from + ID_BATCH_SIZE, ids.length))
+                    .boxed()
+                    .collect(Collectors.toList());
+            taskRepository.findViews(idIn(batch), Sort.unsorted(), -1, fields)
+                    .forEach(task -> tasks.put(task.getTaskId(), task));
+        }
+        return Arrays.stream(ids)
+                .mapToObj(tasks::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    public TaskPage getTaskPage(Map<String, String> filter, SortField sortField, SortDirection sortDirection,
+                                TaskCursor cursor, int limit, Set<TaskField> fields) {
+        if (cursor != null && (cursor.getSortField() != sortField || cursor.getSortDirection() != sortDirection)) {
+            throw new IllegalArgumentException("Cursor does not match the requested sort");
+        }
+
+        Sort.Direction direction = Sort.Direction.fromString(sortDirection.getSortDirection());
+        Sort sort = Sort.by(direction, sortField.getSortField()).and(Sort.by(direction, "taskId"));
+
+        // One task past the page tells whether there is a next one; the read model seeks the cursor when it can
+        List<TaskView> tasks = taskListCache.get(TaskListKey.of(filter, sort, cursor, limit + 1, fields),
+                () -> taskReadModel.getTaskIds(filter, sort, cursor, limit + 1)
+                        .map(ids -> findViewsInOrder(ids, fields))
+                        .orElseGet(() -> {
+                            Specification<TaskEntity> spec = filterSpecification(filter);
+                            if (cursor != null) {
+                                spec = spec == null ? after(cursor) : spec.and(after(cursor));
+                            }
+                            return taskRepository.findViews(spec, sort, limit + 1, fields);
+                        }));
+        if (tasks.size() <= limit) {
+            return new TaskPage(tasks, null);
+        }
+        List<TaskView> page = tasks.subList(0, limit);
+        return new TaskPage(page, TaskCursor.after(page.get(limit - 1), sortField, sortDirection));
+    }
+
+    /**
+     * Token for GET /task?since= that covers the changes after a listing read now. It trails the clock by the sync
+     * lag, so that a write that took its timestamp before committing is not skipped.
+     */
+    public SyncToken currentSyncToken() {
+        return SyncToken.of(Instant.now().minus(syncLag));
+    }
+
+    /**
+     * Returns the tasks changed and deleted after the token, oldest first, at most limit of them. Changes within
+     * the sync lag are repeated by the next call, so clients apply them by version. Empty when the token is older
+     * than the tombstone retention and deletions may have been missed.
+     */
+    @Transactional(readOnly = true)
+    public Optional<TaskChanges> getChanges(SyncToken since, int limit, Set<TaskField> fields) {
+        Instant now = Instant.now();
+        if (since.getChanged().isBefore(now.minus(tombstoneRetention))) {
+            return Optional.empty();
+        }
+
+        List<TaskView> tasks = taskRepository.findViews(changedAfter(since), Sort.by("updated", "taskId"),
+                limit + 1, fields);
+        List<TaskTombstone> tombstones = taskTombstoneRepository.findAfter(Timestamp.from(since.getChanged()),
+                since.getTaskId(), PageRequest.of(0, limit + 1));
+
+        List<TaskView> changed = new ArrayList<>();
+        List<Integer> deleted = new ArrayList<>();
+        SyncToken last = since;
+        int t = 0;
+        int d = 0;
+        while (changed.size() + deleted.size() < limit && (t < tasks.size() || d < tombstones.size())) {
+            SyncToken task = t < tasks.size()
+                    ? new SyncToken(tasks.get(t).getUpdated().toInstant(), tasks.get(t).getTaskId()) : null;
+            SyncToken tombstone = d < tombstones.size()
+                    ? new SyncToken(tombstones.get(d).getDeleted().toInstant(), tombstones.get(d).getTaskId()) : null;
+            if (tombstone == null || (task != null && task.isBefore(tombstone))) {
+                changed.add(tasks.get(t++));
+                last = task;
+            } else {
+                deleted.add(tombstones.get(d++).getTaskId());
+                last = tombstone;
+            }
+        }
+
+        boolean more = t < tasks.size() || d < tombstones.size();
+        if (more) {
+            return Optional.of(new TaskChanges(changed, deleted, true, last));
+        }
+        SyncToken settled = SyncToken.of(now.minus(syncLag));
+        return Optional.of(new TaskChanges(changed, deleted, false, since.isBefore(settled) ? settled : since));
+    }
+
+    @Scheduled(initialDelayString = "${task.sync.tombstone-purge-interval:PT1H}",
+            fixedDelayString = "${task.sync.tombstone-purge-interval:PT1H}")
+    @Transactional
+    public int purgeTombstones() {
+        return taskTombstoneRepository.deleteDeletedBefore(Timestamp.from(Instant.now().minus(tombstoneRetention)));
+    }
+
+    @Transactional(readOnly = true)
+    public void exportTasks(Consumer<TaskEntity> consumer) {
+        List<TaskEntity> chunk = new ArrayList<>(TaskEntity.SUB_TASK_BATCH_SIZE);
+        try (Stream<TaskEntity> tasks = taskRepository.streamAll()) {
+            tasks.forEach(task -> {
+                chunk.add(task);
+                if (chunk.size() == TaskEntity.SUB_TASK_BATCH_SIZE) {
+                    exportChunk(chunk, consumer);
+                }
+            });
+        }
+        exportChunk(chunk, consumer);
+    }
+
+    // Subtasks are batch-loaded for every task still attached, so a chunk costs one subtask query
+    private void exportChunk(List<TaskEntity> chunk, Consumer<TaskEntity> consumer) {
+        chunk.forEach(consumer);
+        chunk.forEach(taskRepository::detach);
+        chunk.clear();
     }
 
     public TaskEntity createTask(TaskEntity taskEntity) {
-        return taskRepository.save(taskEntity);
+        attachSubTasks(taskEntity);
+        TaskEntity task = taskRepository.save(taskEntity);
+        eventPublisher.publishEvent(new TaskChangedEvent(TaskChangedEvent.Type.CREATED, task.getTaskId(),
+                task.getVersion(), TaskField.ALL, TaskView.of(task)));
+        publishCounts(TaskCounts.of(task));
+        return task;
+    }
+
+    @Transactional
+    public List<TaskEntity> createTasks(List<TaskEntity> taskEntities) {
+        taskEntities.forEach(task -> {
+            task.setTaskId(0);
+            if (task.getSubTasks() != null) {
+                task.getSubTasks().forEach(subTask -> subTask.setSubTaskId(0));
+            }
+            attachSubTasks(task);
+        });
+        taskRepository.insertAll(taskEntities);
+        taskEntities.forEach(task -> eventPublisher.publishEvent(new TaskChangedEvent(TaskChangedEvent.Type.CREATED,
+                task.getTaskId(), task.getVersion(), TaskField.ALL, TaskView.of(task))));
+        publishCounts(taskEntities.stream().map(TaskCounts::of).reduce(new TaskCounts(), TaskCounts::add));
+        return taskEntities;
     }
 
     public Optional<TaskEntity> updateTask(int id, TaskEntity taskEntity) {
+        return updateTask(id, taskEntity, OptionalInt.empty());
+    }
+
+    @Transactional
+    public Optional<TaskEntity> updateTask(int id, TaskEntity taskEntity, OptionalInt expectedVersion) {
+        return modifyTask(id, expectedVersion, task -> {
+            task.setCompleted(taskEntity.isCompleted());
+            task.setDescription(taskEntity.getDescription());
+            task.setPriority(taskEntity.getPriority());
+            return taskEntity.getSubTasks() != null && mergeSubTasks(task, taskEntity.getSubTasks());
+        });
+    }
+
+    @Transactional
+    public Optional<TaskEntity> patchTask(int id, TaskPatch patch, OptionalInt expectedVersion) {
+        return modifyTask(id, expectedVersion, task -> {
+            if (patch.getDescription() != null) {
+                task.setDescription(patch.getDescription());
+            }
+            if (patch.getCompleted() != null) {
+                task.setCompleted(patch.getCompleted());
+            }
+            if (patch.getPriority() != null) {
+                task.setPriority(patch.getPriority());
+            }
+            return patch.getSubTasks() != null && mergeSubTasks(task, patch.getSubTasks());
+        });
+    }
+
+    // changes returns whether a subtask was modified in place, which Hibernate does not count as a task change, so
+    // the task is touched to get its version and updated timestamp moved. The flush settles the version and the new
+    // subtask ids the event carries.
+    private Optional<TaskEntity> modifyTask(int id, OptionalInt expectedVersion, Function<TaskEntity, Boolean> changes) {
         return taskRepository
                 .findById(id)
-                .flatMap(task -> {
-                    task.setCompleted(taskEntity.isCompleted());
-                    task.setDescription(taskEntity.getDescription());
-                    task.setPriority(taskEntity.getPriority());
-                    if (taskEntity.getSubTasks() != null) {
-                        task.getSubTasks().clear();
-                        task.getSubTasks().addAll(taskEntity.getSubTasks());
+                .map(task -> {
+                    checkVersion(task, expectedVersion);
+                    TaskEntity before = new TaskEntity(task.getDescription(), task.isCompleted(), task.getPriority(),
+                            task.getSubTasks() == null ? Set.of() : new HashSet<>(task.getSubTasks()));
+                    TaskCounts countsBefore = TaskCounts.of(task);
+                    boolean subTasksModified = changes.apply(task);
+                    if (subTasksModified) {
+                        task.setUpdated(Timestamp.from(Instant.now()));
                     }
-                    return Optional.of(taskRepository.save(task));
+                    TaskEntity updated = taskRepository.saveAndFlush(task);
+                    Set<TaskField> fields = changedFields(before, updated, subTasksModified);
+                    eventPublisher.publishEvent(new TaskChangedEvent(TaskChangedEvent.Type.UPDATED, id,
+                            updated.getVersion(), Collections.unmodifiableSet(fields), TaskView.of(updated)));
+                    publishCounts(TaskCounts.of(updated).subtract(countsBefore));
+                    return updated;
                 });
     }
 
-    public Optional<TaskEntity> deleteTask(int id) {
-        return taskRepository.findById(id)
-                .map(task -> {
-                    taskRepository.deleteById(id);
-                    return Optional.of(task);
-                })
-                .orElse(Optional.empty());
+    @Transactional
+    public BulkResult updateTasks(Map<String, String> filter, List<Integer> ids, TaskBulkUpdate update) {
+        if (update.getCompleted() == null && update.getPriority() == null) {
+            throw new IllegalArgumentException("Bulk update has nothing to set");
+        }
+        Specification<TaskEntity> spec = bulkSpecification(filter, ids);
+        TaskCounts matched = taskRepository.countTasks(spec);
+        int affected = taskRepository.bulkUpdate(spec, update.getCompleted(), update.getPriority(),
+                Timestamp.from(Instant.now()));
+        Set<TaskField> fields = EnumSet.noneOf(TaskField.class);
+        if (update.getCompleted() != null) {
+            fields.add(TaskField.COMPLETED);
+        }
+        if (update.getPriority() != null) {
+            fields.add(TaskField.PRIORITY);
+        }
+        eventPublisher.publishEvent(TaskChangedEvent.bulk(TaskChangedEvent.Type.BULK_UPDATED,
+                Collections.unmodifiableSet(fields)));
+        publishCounts(movedCounts(matched, update));
+        return new BulkResult(affected);
+    }
+
+    // The matching rows are locked while their tombstones are written, so the DELETE removes exactly those
+    @Transactional
+    public BulkResult deleteTasks(Map<String, String> filter, List<Integer> ids) {
+        Specification<TaskEntity> spec = bulkSpecification(filter, ids);
+        Timestamp deleted = Timestamp.from(Instant.now());
+        taskTombstoneRepository.saveAll(taskRepository.findIdsForUpdate(spec).stream()
+                .map(id -> new TaskTombstone(id, deleted))
+                .collect(Collectors.toList()));
+        TaskCounts removed = taskRepository.countTasks(spec);
+        int affected = taskRepository.bulkDelete(spec);
+        eventPublisher.publishEvent(TaskChangedEvent.bulk(TaskChangedEvent.Type.BULK_DELETED, Set.of()));
+        publishCounts(new TaskCounts().subtract(removed));
+        return new BulkResult(affected);
+    }
+
+    @Transactional
+    public boolean deleteTask(int id) {
+        return deleteTask(id, OptionalInt.empty());
+    }
+
+    // The counters take what the deletion removed from the cached task when there is one, which costs nothing, and
+    // from a one-row count otherwise. A task cached just before a concurrent write leaves them off until the next
+    // reconciliation.
+    @Transactional
+    public boolean deleteTask(int id, OptionalInt expectedVersion) {
+        TaskCounts removed = taskCache.getIfPresent(id)
+                .map(TaskCounts::of)
+                .orElseGet(() -> taskRepository.countTask(id));
+        int affected = expectedVersion.isPresent()
+                ? taskRepository.deleteTaskByIdAndVersion(id, expectedVersion.getAsInt())
+                : taskRepository.deleteTaskById(id);
+        if (affected == 0) {
+            if (expectedVersion.isPresent() && taskRepository.findVersionById(id).isPresent()) {
+                throw new OptimisticLockingFailureException("Task " + id + " is not at version "
+                        + expectedVersion.getAsInt());
+            }
+            return false;
+        }
+        taskTombstoneRepository.save(new TaskTombstone(id, Timestamp.from(Instant.now())));
+        eventPublisher.publishEvent(new TaskChangedEvent(TaskChangedEvent.Type.DELETED, id, 0, Set.of()));
+        publishCounts(new TaskCounts().subtract(removed));
+        return true;
+    }
+
+    private void publishCounts(TaskCounts change) {
+        if (!change.isEmpty()) {
+            eventPublisher.publishEvent(new TaskCountsChangedEvent(change));
+        }
+    }
+
+    // Moves the matched tasks from their priority and completion to the ones the bulk update sets
+    private static TaskCounts movedCounts(TaskCounts matched, TaskBulkUpdate update) {
+        TaskCounts moved = new TaskCounts();
+        for (TaskPriority priority : TaskPriority.values()) {
+            for (boolean completed : new boolean[]{false, true}) {
+                long count = matched.getTasks(priority, completed);
+                if (count != 0) {
+                    moved.addTasks(priority, completed, -count);
+                    moved.addTasks(update.getPriority() == null ? priority : update.getPriority(),
+                            update.getCompleted() == null ? completed : update.getCompleted(), count);
+                }
+            }
+        }
+        return moved;
+    }
+
+    private static Set<TaskField> changedFields(TaskEntity before, TaskEntity after, boolean subTasksModified) {
+        Set<TaskField> fields = EnumSet.noneOf(TaskField.class);
+        if (!Objects.equals(before.getDescription(), after.getDescription())) {
+            fields.add(TaskField.DESCRIPTION);
+        }
+        if (before.isCompleted() != after.isCompleted()) {
+            fields.add(TaskField.COMPLETED);
+        }
+        if (before.getPriority() != after.getPriority()) {
+            fields.add(TaskField.PRIORITY);
+        }
+        Set<SubTaskEntity> subTasks = after.getSubTasks() == null ? Set.of() : after.getSubTasks();
+        if (subTasksModified || !before.getSubTasks().equals(subTasks)) {
+            fields.add(TaskField.SUB_TASKS);
+        }
+        return fields;
+    }
+
+    private static void checkVersion(TaskEntity task, OptionalInt expectedVersion) {
+        if (expectedVersion.isPresent() && expectedVersion.getAsInt() != task.getVersion()) {
+            throw new OptimisticLockingFailureException("Task " + task.getTaskId() + " is at version "
+                    + task.getVersion() + ", not " + expectedVersion.getAsInt());
+        }
+    }
+
+    /**
+     * Applies the incoming subtasks as a diff keyed on subTaskId: unknown ids are inserted, known ones are updated
+     * in place when a field differs and missing ones are removed, so unchanged subtasks cost no SQL. Returns whether
+     * an existing subtask was updated.
+     */
+    static boolean mergeSubTasks(TaskEntity task, Collection<SubTaskEntity> incoming) {
+        Map<Integer, SubTaskEntity> existing = task.getSubTasks().stream()
+                .collect(Collectors.toMap(SubTaskEntity::getSubTaskId, Function.identity()));
+        Set<Integer> kept = new HashSet<>();
+        boolean modified = false;
+        for (SubTaskEntity subTask : incoming) {
+            SubTaskEntity current = existing.get(subTask.getSubTaskId());
+            if (current == null) {
+                subTask.setSubTaskId(0);
+                subTask.setTask(task);
+                task.getSubTasks().add(subTask);
+                continue;
+            }
+            kept.add(current.getSubTaskId());
+            if (!Objects.equals(current.getDescription(), subTask.getDescription())
+                    || current.isCompleted() != subTask.isCompleted()
+                    || current.getPriority() != subTask.getPriority()) {
+                current.setDescription(subTask.getDescription());
+                current.setCompleted(subTask.isCompleted());
+                current.setPriority(subTask.getPriority());
+                modified = true;
+            }
+        }
+        task.getSubTasks().removeIf(subTask -> existing.containsKey(subTask.getSubTaskId())
+                && !kept.contains(subTask.getSubTaskId()));
+        return modified;
+    }
+
+    private static void attachSubTasks(TaskEntity task) {
+        if (task.getSubTasks() != null) {
+            task.getSubTasks().forEach(subTask -> subTask.setTask(task));
+        }
     }
 }
@@ -0,0 +1,81 @@
+package com.example.demo.stats;
+
+import com.example.demo.event.TaskCountsChangedEvent;
+import com.example.demo.repository.TaskRepository;
+import com.example.demo.util.TaskCounts;
+import com.example.demo.util.TaskStatistics;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Keeps the counts behind GET /task/stats in memory. Every committed write adds the change it made, and the counts
+ * are replaced by a GROUP BY over the tables on first use and then periodically.
+ * <p>
+ * Changes that commit while the GROUP BY runs are added on top of its result. A write that commits just before the
+ * query reads its rows is counted twice until the next reconciliation, which is the drift the periodic query is
+ * there to remove.
+ */
+@Component
+public class TaskCounters {
+
+    private final TaskRepository taskRepository;
+
+    private final Object lock = new Object();
+
+    // Guarded by lock
+    private TaskCounts counts;
+
+    // Guarded by lock, changes applied since the running reconciliation started
+    private TaskCounts duringReconciliation;
+
+    public TaskCounters(TaskRepository taskRepository) {
+        this.taskRepository = taskRepository;
+    }
+
+    public TaskStatistics getStatistics() {
+        synchronized (lock) {
+            if (counts != null) {
+                return TaskStatistics.of(counts);
+            }
+        }
+        return TaskStatistics.of(reconcile());
+    }
+
+    @Scheduled(initialDelayString = "${task.stats.reconcile-interval:PT5M}",
+            fixedDelayString = "${task.stats.reconcile-interval:PT5M}")
+    public synchronized TaskCounts reconcile() {
+        synchronized (lock) {
+            duringReconciliation = new TaskCounts();
+        }
+        TaskCounts actual;
+        try {
+            actual = taskRepository.countTasks(null);
+        } catch (RuntimeException e) {
+            synchronized (lock) {
+                duringReconciliation = null;
+            }
+            throw e;
+        }
+        synchronized (lock) {
+            counts = actual.copy().add(duringReconciliation);
+            duringReconciliation = null;
+            return counts.copy();
+        }
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskCountsChanged(TaskCountsChangedEvent event) {
+        synchronized (lock) {
+            if (counts != null) {
+                counts.add(event.getChange());
+            }
+            if (duringReconciliation != null) {
+                duringReconciliation.add(event.getChange());
+            }
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.demo.util;
+
+import lombok.Value;
+
+@Value
+public class BulkResult {
+
+    int affected;
+}
@@ -0,0 +1,38 @@
+package com.example.demo.util;
+
+import com.example.demo.view.SubTaskView;
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+@Value
+public class SubTaskCursor {
+
+    private static final String SEPARATOR = "|";
+
+    int priority;
+    int subTaskId;
+
+    public static SubTaskCursor after(SubTaskView subTask) {
+        return new SubTaskCursor(subTask.getPriority(), subTask.getSubTaskId());
+    }
+
+    public static SubTaskCursor decode(String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = decoded.split("\\" + SEPARATOR, -1);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            return new SubTaskCursor(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+    }
+
+    public String encode() {
+        String raw = priority + SEPARATOR + subTaskId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.demo.util;
+
+import com.example.demo.view.SubTaskView;
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class SubTaskPage {
+
+    List<SubTaskView> subTasks;
+
+    SubTaskCursor next;
+}
@@ -0,0 +1,47 @@
+package com.example.demo.util;
+
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Position in the (updated, taskId) order of task changes, handed out by GET /task and GET /task?since=.
+ */
+@Value
+public class SyncToken {
+
+    private static final String SEPARATOR = "|";
+
+    Instant changed;
+    int taskId;
+
+    public static SyncToken of(Instant changed) {
+        return new SyncToken(changed, 0);
+    }
+
+    public static SyncToken decode(String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = decoded.split("\\" + SEPARATOR, -1);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Malformed sync token");
+            }
+            return new SyncToken(Instant.parse(parts[0]), Integer.parseInt(parts[1]));
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new IllegalArgumentException("Malformed sync token", e);
+        }
+    }
+
+    public boolean isBefore(SyncToken other) {
+        int byTime = changed.compareTo(other.changed);
+        return byTime < 0 || (byTime == 0 && taskId < other.taskId);
+    }
+
+    public String encode() {
+        String raw = changed + SEPARATOR + taskId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.demo.util;
+
+import com.example.demo.entity.TaskPriority;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class TaskBulkUpdate {
+
+    private Boolean completed;
+
+    private TaskPriority priority;
+}
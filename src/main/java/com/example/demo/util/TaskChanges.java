@@ -0,0 +1,20 @@
+package com.example.demo.util;
+
+import com.example.demo.view.TaskView;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class TaskChanges {
+
+    List<TaskView> tasks;
+
+    List<Integer> deleted;
+
+    boolean more;
+
+    @JsonIgnore
+    SyncToken next;
+}
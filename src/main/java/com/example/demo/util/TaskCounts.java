@@ -0,0 +1,95 @@
+package com.example.demo.util;
+
+import com.example.demo.entity.SubTaskEntity;
+import com.example.demo.entity.TaskEntity;
+import com.example.demo.entity.TaskPriority;
+import com.example.demo.view.SubTaskView;
+import com.example.demo.view.TaskView;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.util.Arrays;
+
+/**
+ * Task counts by priority and completion plus subtask counts. Holds both totals and the difference a write made to
+ * them, which may be negative.
+ */
+@EqualsAndHashCode
+@ToString
+public class TaskCounts {
+
+    private static final TaskPriority[] PRIORITIES = TaskPriority.values();
+
+    private final long[] tasks = new long[PRIORITIES.length * 2];
+
+    private long subTasks;
+
+    private long completedSubTasks;
+
+    public static TaskCounts of(TaskEntity task) {
+        TaskCounts counts = new TaskCounts().addTasks(task.getPriority(), task.isCompleted(), 1);
+        if (task.getSubTasks() != null) {
+            counts.addSubTasks(task.getSubTasks().size(),
+                    task.getSubTasks().stream().filter(SubTaskEntity::isCompleted).count());
+        }
+        return counts;
+    }
+
+    public static TaskCounts of(TaskView task) {
+        TaskCounts counts = new TaskCounts().addTasks(task.getPriority(), task.isCompleted(), 1);
+        if (task.getSubTasks() != null) {
+            counts.addSubTasks(task.getSubTasks().size(),
+                    task.getSubTasks().stream().filter(SubTaskView::isCompleted).count());
+        }
+        return counts;
+    }
+
+    public TaskCounts addTasks(TaskPriority priority, boolean completed, long count) {
+        tasks[index(priority, completed)] += count;
+        return this;
+    }
+
+    public TaskCounts addSubTasks(long count, long completed) {
+        subTasks += count;
+        completedSubTasks += completed;
+        return this;
+    }
+
+    public TaskCounts add(TaskCounts other) {
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] += other.tasks[i];
+        }
+        return addSubTasks(other.subTasks, other.completedSubTasks);
+    }
+
+    public TaskCounts subtract(TaskCounts other) {
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] -= other.tasks[i];
+        }
+        return addSubTasks(-other.subTasks, -other.completedSubTasks);
+    }
+
+    public TaskCounts copy() {
+        return new TaskCounts().add(this);
+    }
+
+    public long getTasks(TaskPriority priority, boolean completed) {
+        return tasks[index(priority, completed)];
+    }
+
+    public long getSubTasks() {
+        return subTasks;
+    }
+
+    public long getCompletedSubTasks() {
+        return completedSubTasks;
+    }
+
+    public boolean isEmpty() {
+        return subTasks == 0 && completedSubTasks == 0 && Arrays.stream(tasks).allMatch(count -> count == 0);
+    }
+
+    private static int index(TaskPriority priority, boolean completed) {
+        return priority.ordinal() * 2 + (completed ? 1 : 0);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.demo.util;
+
+import com.example.demo.view.TaskView;
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+@Value
+public class TaskCursor {
+
+    private static final String SEPARATOR = "|";
+
+    SortField sortField;
+    SortDirection sortDirection;
+    String value;
+    int taskId;
+
+    public static TaskCursor after(TaskView task, SortField sortField, SortDirection sortDirection) {
+        String value;
+        if (sortField == SortField.PRIORITY) {
+            value = task.getPriority().name();
+        } else {
+            value = task.getCreated() == null ? null : task.getCreated().toInstant().toString();
+        }
+        return new TaskCursor(sortField, sortDirection, value, task.getTaskId());
+    }
+
+    public static TaskCursor decode(String token) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+
+        String[] parts = decoded.split("\\" + SEPARATOR, -1);
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        try {
+            return new TaskCursor(SortField.valueOf(parts[0]), SortDirection.valueOf(parts[1]),
+                    parts[2].isEmpty() ? null : parts[2], Integer.parseInt(parts[3]));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+    }
+
+    public String encode() {
+        String raw = String.join(SEPARATOR, sortField.name(), sortDirection.name(), value == null ? "" : value,
+                Integer.toString(taskId));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.demo.util;
+
+import com.example.demo.view.TaskView;
+import org.springframework.util.DigestUtils;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.Set;
+
+public final class TaskETag {
+
+    private static final String ANY = "*";
+    private static final String WEAK_PREFIX = "W/";
+
+    private TaskETag() {
+    }
+
+    public static String of(int taskId, int version) {
+        return of(taskId, version, TaskField.ALL);
+    }
+
+    // Every field set is its own representation, so it gets its own ETag
+    public static String of(int taskId, int version, Set<TaskField> fields) {
+        return "\"" + taskId + "." + version + suffix(fields) + "\"";
+    }
+
+    public static String of(TaskView task, Set<TaskField> fields) {
+        return of(task.getTaskId(), task.getVersion(), fields);
+    }
+
+    public static String of(List<TaskView> tasks, TaskCursor next, Set<TaskField> fields) {
+        ByteBuffer buffer = ByteBuffer.allocate(tasks.size() * 2 * Integer.BYTES);
+        tasks.forEach(task -> buffer.putInt(task.getTaskId()).putInt(task.getVersion()));
+        String digest = DigestUtils.md5DigestAsHex(buffer.array());
+        return "\"" + digest + (next == null ? "" : "." + next.encode()) + suffix(fields) + "\"";
+    }
+
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.startsWith(WEAK_PREFIX)) {
+                trimmed = trimmed.substring(WEAK_PREFIX.length());
+            }
+            if (trimmed.equals(ANY) || trimmed.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the version a PUT or DELETE expects from its If-Match header, nothing when any version is accepted,
+     * and -1 when the header cannot match this task.
+     */
+    public static OptionalInt expectedVersion(String ifMatch, int taskId) {
+        if (ifMatch == null || ifMatch.trim().equals(ANY)) {
+            return OptionalInt.empty();
+        }
+        String value = ifMatch.trim();
+        String prefix = "\"" + taskId + ".";
+        if (!value.startsWith(prefix) || !value.endsWith("\"")) {
+            return OptionalInt.of(-1);
+        }
+        String version = value.substring(prefix.length(), value.length() - 1);
+        int fieldsSeparator = version.indexOf('.');
+        try {
+            return OptionalInt.of(Integer.parseInt(fieldsSeparator < 0 ? version : version.substring(0, fieldsSeparator)));
+        } catch (NumberFormatException e) {
+            return OptionalInt.of(-1);
+        }
+    }
+
+    private static String suffix(Set<TaskField> fields) {
+        if (fields.equals(TaskField.ALL)) {
+            return "";
+        }
+        return "." + Integer.toHexString(fields.stream().mapToInt(field -> 1 << field.ordinal()).sum());
+    }
+}
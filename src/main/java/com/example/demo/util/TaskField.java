@@ -0,0 +1,46 @@
+package com.example.demo.util;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+public enum TaskField {
+    TASK_ID("taskId"),
+    DESCRIPTION("description"),
+    COMPLETED("completed"),
+    PRIORITY("priority"),
+    CREATED("created"),
+    UPDATED("updated"),
+    VERSION("version"),
+    SUB_TASKS("subTasks");
+
+    public static final Set<TaskField> ALL = Collections.unmodifiableSet(EnumSet.allOf(TaskField.class));
+
+    private final String taskField;
+
+    TaskField(String taskField) {
+        this.taskField = taskField;
+    }
+
+    @JsonValue
+    public String getTaskField() {
+        return taskField;
+    }
+
+    public static Set<TaskField> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+        EnumSet<TaskField> parsed = EnumSet.noneOf(TaskField.class);
+        for (String name : fields.split(",")) {
+            parsed.add(Arrays.stream(values())
+                    .filter(field -> field.getTaskField().equals(name.trim()))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown field " + name)));
+        }
+        return Collections.unmodifiableSet(parsed);
+    }
+}
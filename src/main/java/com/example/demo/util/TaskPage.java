@@ -0,0 +1,14 @@
+package com.example.demo.util;
+
+import com.example.demo.view.TaskView;
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class TaskPage {
+
+    List<TaskView> tasks;
+
+    TaskCursor next;
+}
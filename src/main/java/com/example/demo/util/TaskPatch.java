@@ -0,0 +1,25 @@
+package com.example.demo.util;
+
+import com.example.demo.entity.SubTaskEntity;
+import com.example.demo.entity.TaskPriority;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class TaskPatch {
+
+    private String description;
+
+    private Boolean completed;
+
+    private TaskPriority priority;
+
+    private List<SubTaskEntity> subTasks;
+}
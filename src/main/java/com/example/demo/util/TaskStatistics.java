@@ -0,0 +1,56 @@
+package com.example.demo.util;
+
+import com.example.demo.entity.TaskPriority;
+import lombok.Value;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+@Value
+public class TaskStatistics {
+
+    long tasks;
+
+    long completedTasks;
+
+    double completionRate;
+
+    Map<TaskPriority, PriorityStatistics> priorities;
+
+    long subTasks;
+
+    long completedSubTasks;
+
+    double subTaskCompletionRate;
+
+    @Value
+    public static class PriorityStatistics {
+
+        long open;
+
+        long completed;
+
+        double completionRate;
+    }
+
+    public static TaskStatistics of(TaskCounts counts) {
+        Map<TaskPriority, PriorityStatistics> priorities = new EnumMap<>(TaskPriority.class);
+        long tasks = 0;
+        long completedTasks = 0;
+        for (TaskPriority priority : TaskPriority.values()) {
+            long open = counts.getTasks(priority, false);
+            long completed = counts.getTasks(priority, true);
+            priorities.put(priority, new PriorityStatistics(open, completed, rate(completed, open + completed)));
+            tasks += open + completed;
+            completedTasks += completed;
+        }
+        return new TaskStatistics(tasks, completedTasks, rate(completedTasks, tasks),
+                Collections.unmodifiableMap(priorities), counts.getSubTasks(), counts.getCompletedSubTasks(),
+                rate(counts.getCompletedSubTasks(), counts.getSubTasks()));
+    }
+
+    private static double rate(long part, long total) {
+        return total == 0 ? 0.0 : (double) part / total;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.demo.view;
+
+import lombok.Value;
+
+@Value
+public class SubTaskView {
+
+    int subTaskId;
+
+    String description;
+
+    boolean completed;
+
+    int taskId;
+
+    int priority;
+}
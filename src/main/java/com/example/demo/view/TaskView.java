@@ -0,0 +1,48 @@
+package com.example.demo.view;
+
+import com.example.demo.entity.SubTaskEntity;
+import com.example.demo.entity.TaskEntity;
+import com.example.demo.entity.TaskPriority;
+import com.fasterxml.jackson.annotation.JsonFilter;
+import lombok.Value;
+
+import java.sql.Timestamp;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Value
+@JsonFilter(TaskView.FIELD_FILTER)
+public class TaskView {
+
+    public static final String FIELD_FILTER = "taskFields";
+
+    int taskId;
+
+    String description;
+
+    boolean completed;
+
+    TaskPriority priority;
+
+    Timestamp created;
+
+    Timestamp updated;
+
+    int version;
+
+    List<SubTaskView> subTasks;
+
+    /**
+     * The complete view of a task as its entity holds it, subtasks in the order the repository reads them.
+     */
+    public static TaskView of(TaskEntity task) {
+        List<SubTaskView> subTasks = task.getSubTasks() == null ? List.of() : task.getSubTasks().stream()
+                .sorted(Comparator.comparingInt(SubTaskEntity::getPriority).thenComparingInt(SubTaskEntity::getSubTaskId))
+                .map(subTask -> new SubTaskView(subTask.getSubTaskId(), subTask.getDescription(),
+                        subTask.isCompleted(), task.getTaskId(), subTask.getPriority()))
+                .collect(Collectors.toUnmodifiableList());
+        return new TaskView(task.getTaskId(), task.getDescription(), task.isCompleted(), task.getPriority(),
+                task.getCreated(), task.getUpdated(), task.getVersion(), subTasks);
+    }
+}
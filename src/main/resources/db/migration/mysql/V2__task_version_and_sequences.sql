@@ -0,0 +1,23 @@
+-- Row version behind ETags and If-Match
+ALTER TABLE task_entity
+    ADD COLUMN version INT NOT NULL DEFAULT 0;
+
+-- Hibernate's table-backed sequences hand out ids in blocks of 50 from next_val, so they start after the ids
+-- AUTO_INCREMENT has already given out
+CREATE TABLE task_entity_seq
+(
+    next_val BIGINT
+) ENGINE=INNODB;
+
+CREATE TABLE sub_task_entity_seq
+(
+    next_val BIGINT
+) ENGINE=INNODB;
+
+INSERT INTO task_entity_seq (next_val)
+SELECT COALESCE(MAX(task_id), 0) + 1
+FROM task_entity;
+
+INSERT INTO sub_task_entity_seq (next_val)
+SELECT COALESCE(MAX(sub_task_id), 0) + 1
+FROM sub_task_entity;
@@ -0,0 +1,11 @@
+-- One index per filter x sort combination of GET /task. InnoDB appends the primary key to every secondary index,
+-- so each index also yields the task_id tie-break of the keyset pages.
+CREATE INDEX idx_task_priority ON task_entity (priority);
+CREATE INDEX idx_task_created ON task_entity (created);
+CREATE INDEX idx_task_priority_created ON task_entity (priority, created);
+CREATE INDEX idx_task_completed_priority ON task_entity (completed, priority);
+CREATE INDEX idx_task_completed_created ON task_entity (completed, created);
+CREATE INDEX idx_task_priority_completed_created ON task_entity (priority, completed, created);
+
+-- Subtask pages and the per-task subtask lookups of the list views read in (task_id, priority, sub_task_id) order
+CREATE INDEX idx_sub_task_task_priority ON sub_task_entity (task_id, priority, sub_task_id);
@@ -0,0 +1,16 @@
+-- Microsecond timestamps, so the changes of one second can be told apart by GET /task?since=
+ALTER TABLE task_entity
+    MODIFY created TIMESTAMP(6) NULL DEFAULT CURRENT_TIMESTAMP(6),
+    ADD COLUMN updated TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6);
+
+CREATE INDEX idx_task_updated ON task_entity (updated, task_id);
+
+-- Deleted task ids, kept for task.sync.tombstone-retention so that polling clients learn about deletions
+CREATE TABLE task_tombstone
+(
+    task_id INT          NOT NULL,
+    deleted TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (task_id)
+) ENGINE=INNODB;
+
+CREATE INDEX idx_task_tombstone_deleted ON task_tombstone (deleted, task_id);
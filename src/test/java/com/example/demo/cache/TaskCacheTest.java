@@ -0,0 +1,210 @@
+package com.example.demo.cache;
+
+import com.example.demo.entity.TaskPriority;
+import com.example.demo.event.TaskChangedEvent;
+import com.example.demo.util.TaskField;
+import com.example.demo.view.TaskView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class TaskCacheTest {
+
+    private TaskCache taskCache;
+
+    @BeforeEach
+    void setUp() {
+        taskCache = new TaskCache(100, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void whenGetTwice_thenCountMissAndHit() {
+        taskCache.get(1, id -> Optional.of(buildView(id, "old")));
+        taskCache.get(1, id -> Optional.of(buildView(id, "new")));
+
+        CacheStatistics statistics = taskCache.statistics();
+        assertThat(statistics.getHitCount(), is(1L));
+        assertThat(statistics.getMissCount(), is(1L));
+        assertThat(taskCache.getIfPresent(1).orElseThrow().getDescription(), is("old"));
+    }
+
+    @Test
+    void whenTaskMissing_thenDoNotCache() {
+        taskCache.get(1, id -> Optional.empty());
+
+        assertThat(taskCache.get(1, id -> Optional.of(buildView(id, "new"))).orElseThrow().getDescription(), is("new"));
+    }
+
+    @Test
+    void whenInvalidatedDuringLoad_thenStaleValueIsNotKept() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch committed = new CountDownLatch(1);
+
+        CompletableFuture<Optional<TaskView>> reader = CompletableFuture.supplyAsync(() -> taskCache.get(1, id -> {
+            loading.countDown();
+            await(committed);
+            return Optional.of(buildView(id, "old"));
+        }));
+        assertThat(loading.await(5, TimeUnit.SECONDS), is(true));
+
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() ->
+                taskCache.onTaskChanged(new TaskChangedEvent(TaskChangedEvent.Type.UPDATED, 1, 1, Set.of(TaskField.DESCRIPTION))));
+        committed.countDown();
+
+        assertThat(reader.get(5, TimeUnit.SECONDS).orElseThrow().getDescription(), is("old"));
+        writer.get(5, TimeUnit.SECONDS);
+        assertThat(taskCache.get(1, id -> Optional.of(buildView(id, "new"))).orElseThrow().getDescription(), is("new"));
+    }
+
+    @Test
+    void whenOtherTaskInvalidatedDuringLoad_thenKeepTheLoadedTask() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Optional<TaskView>> reader = CompletableFuture.supplyAsync(() -> taskCache.get(1, id -> {
+            loading.countDown();
+            await(release);
+            return Optional.of(buildView(id, "loaded"));
+        }));
+        assertThat(loading.await(5, TimeUnit.SECONDS), is(true));
+
+        taskCache.onTaskChanged(new TaskChangedEvent(TaskChangedEvent.Type.UPDATED, 2, 1, Set.of(TaskField.DESCRIPTION)));
+        release.countDown();
+
+        assertThat(reader.get(5, TimeUnit.SECONDS).orElseThrow().getDescription(), is("loaded"));
+        assertThat(taskCache.getIfPresent(1).orElseThrow().getDescription(), is("loaded"));
+    }
+
+    @Test
+    void whenLoadInProgress_thenInvalidationDoesNotWaitForIt() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Optional<TaskView>> reader = CompletableFuture.supplyAsync(() -> taskCache.get(1, id -> {
+            loading.countDown();
+            await(release);
+            return Optional.of(buildView(id, "old"));
+        }));
+        assertThat(loading.await(5, TimeUnit.SECONDS), is(true));
+
+        CompletableFuture.runAsync(() -> taskCache.invalidate(1)).get(5, TimeUnit.SECONDS);
+        release.countDown();
+
+        assertThat(reader.get(5, TimeUnit.SECONDS).orElseThrow().getDescription(), is("old"));
+        assertThat(taskCache.getIfPresent(1).isPresent(), is(false));
+    }
+
+    @Test
+    void whenConcurrentWritersAndReaders_thenLastReadSeesLastWrite() throws Exception {
+        AtomicReference<String> database = new AtomicReference<>("v0");
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 1; i <= 200; i++) {
+            String version = "v" + i;
+            futures.add(CompletableFuture.runAsync(() -> taskCache.get(1, id -> Optional.of(buildView(id, database.get())))));
+            futures.add(CompletableFuture.runAsync(() -> {
+                database.set(version);
+                taskCache.onTaskChanged(new TaskChangedEvent(TaskChangedEvent.Type.UPDATED, 1, 1, Set.of(TaskField.DESCRIPTION)));
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+
+        String cached = taskCache.get(1, id -> Optional.of(buildView(id, database.get()))).orElseThrow().getDescription();
+        assertThat(cached, is(database.get()));
+    }
+
+    @Test
+    void whenConcurrentMisses_thenShareOneLoad() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        IntFunction<Optional<TaskView>> loader = id -> {
+            loads.incrementAndGet();
+            await(release);
+            return Optional.of(buildView(id, "shared"));
+        };
+
+        CompletableFuture<Optional<TaskView>> first = CompletableFuture.supplyAsync(() -> taskCache.get(1, loader));
+        CompletableFuture<Optional<TaskView>> second = CompletableFuture.supplyAsync(() -> {
+            awaitLoads(loads, 1);
+            return taskCache.get(1, loader);
+        });
+        awaitCoalesced(1);
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS).orElseThrow().getDescription(), is("shared"));
+        assertThat(second.get(5, TimeUnit.SECONDS).orElseThrow().getDescription(), is("shared"));
+        assertThat(loads.get(), is(1));
+    }
+
+    @Test
+    void whenInvalidatedDuringPartialLoad_thenLaterCallerLoadsAgain() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<Optional<TaskView>> before = CompletableFuture.supplyAsync(() ->
+                taskCache.get(1, Set.of(TaskField.DESCRIPTION), id -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return Optional.of(buildView(id, "old"));
+                }));
+        awaitLoads(loads, 1);
+
+        taskCache.onTaskChanged(new TaskChangedEvent(TaskChangedEvent.Type.UPDATED, 1, 1, Set.of(TaskField.DESCRIPTION)));
+        Optional<TaskView> after = taskCache.get(1, Set.of(TaskField.DESCRIPTION), id -> Optional.of(buildView(id, "new")));
+        release.countDown();
+
+        assertThat(after.orElseThrow().getDescription(), is("new"));
+        assertThat(before.get(5, TimeUnit.SECONDS).orElseThrow().getDescription(), is("old"));
+        assertThat(taskCache.statistics().getCoalescedCount(), is(0L));
+    }
+
+    @Test
+    void whenBulkChange_thenInvalidateEverything() {
+        taskCache.get(1, id -> Optional.of(buildView(id, "old")));
+        taskCache.get(2, id -> Optional.of(buildView(id, "old")));
+
+        taskCache.onTaskChanged(TaskChangedEvent.bulk(TaskChangedEvent.Type.BULK_UPDATED, Set.of(TaskField.COMPLETED)));
+
+        assertThat(taskCache.getIfPresent(1).isPresent(), is(false));
+        assertThat(taskCache.getIfPresent(2).isPresent(), is(false));
+    }
+
+    private static TaskView buildView(int id, String description) {
+        return new TaskView(id, description, false, TaskPriority.LOW, null, null, 0, List.of());
+    }
+
+    private void awaitCoalesced(long count) throws InterruptedException {
+        for (int i = 0; i < 500 && taskCache.statistics().getCoalescedCount() < count; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(taskCache.statistics().getCoalescedCount(), is(count));
+    }
+
+    private static void awaitLoads(AtomicInteger loads, int count) {
+        for (int i = 0; i < 500 && loads.get() < count; i++) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.demo.cache;
+
+import com.example.demo.entity.TaskPriority;
+import com.example.demo.event.TaskChangedEvent;
+import com.example.demo.util.TaskField;
+import com.example.demo.view.TaskView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class TaskListCacheTest {
+
+    private static final TaskListKey KEY = TaskListKey.of(Map.of("priority", "HIGH"), Sort.by("priority"), null, -1, TaskField.ALL);
+
+    private TaskListCache taskListCache;
+
+    @BeforeEach
+    void setUp() {
+        taskListCache = new TaskListCache(1000, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void whenSameNormalizedKey_thenHit() {
+        taskListCache.get(KEY, () -> List.of(buildView(1, "old")));
+        TaskListKey sameKey = TaskListKey.of(Map.of("priority", "HIGH", "sortDirection", "ASC"), Sort.by("priority"), null, -1, TaskField.ALL);
+        List<TaskView> result = taskListCache.get(sameKey, () -> List.of(buildView(1, "new")));
+
+        assertThat(result.get(0).getDescription(), is("old"));
+        assertThat(taskListCache.statistics().getHitCount(), is(1L));
+        assertThat(taskListCache.statistics().getMissCount(), is(1L));
+    }
+
+    @Test
+    void whenTaskChanged_thenReload() {
+        taskListCache.get(KEY, () -> List.of(buildView(1, "old")));
+        taskListCache.onTaskChanged(new TaskChangedEvent(TaskChangedEvent.Type.UPDATED, 1, 1, Set.of(TaskField.DESCRIPTION)));
+
+        assertThat(taskListCache.get(KEY, () -> List.of(buildView(1, "new"))).get(0).getDescription(), is("new"));
+    }
+
+    @Test
+    void whenTaskChangedDuringLoad_thenLoadedListIsStale() {
+        taskListCache.get(KEY, () -> {
+            taskListCache.onTaskChanged(new TaskChangedEvent(TaskChangedEvent.Type.UPDATED, 1, 1, Set.of(TaskField.DESCRIPTION)));
+            return List.of(buildView(1, "old"));
+        });
+
+        assertThat(taskListCache.get(KEY, () -> List.of(buildView(1, "new"))).get(0).getDescription(), is("new"));
+        assertThat(taskListCache.get(KEY, () -> List.of(buildView(1, "newer"))).get(0).getDescription(), is("new"));
+    }
+
+    @Test
+    void whenConcurrentMisses_thenShareOneQuery() throws Exception {
+        CountDownLatch querying = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger queries = new AtomicInteger();
+        Supplier<List<TaskView>> loader = () -> {
+            queries.incrementAndGet();
+            querying.countDown();
+            await(release);
+            return List.of(buildView(1, "shared"));
+        };
+
+        CompletableFuture<List<TaskView>> first = CompletableFuture.supplyAsync(() -> taskListCache.get(KEY, loader));
+        assertThat(querying.await(5, TimeUnit.SECONDS), is(true));
+        CompletableFuture<List<TaskView>> second = CompletableFuture.supplyAsync(() -> taskListCache.get(KEY, loader));
+        for (int i = 0; i < 500 && taskListCache.statistics().getCoalescedCount() == 0; i++) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+
+        assertThat(second.get(5, TimeUnit.SECONDS), is(first.get(5, TimeUnit.SECONDS)));
+        assertThat(queries.get(), is(1));
+        assertThat(taskListCache.statistics().getCoalescedCount(), is(1L));
+    }
+
+    @Test
+    void whenTaskChangedDuringQuery_thenLaterCallerQueriesAgain() throws Exception {
+        CountDownLatch querying = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<List<TaskView>> before = CompletableFuture.supplyAsync(() -> taskListCache.get(KEY, () -> {
+            querying.countDown();
+            await(release);
+            return List.of(buildView(1, "old"));
+        }));
+        assertThat(querying.await(5, TimeUnit.SECONDS), is(true));
+
+        taskListCache.onTaskChanged(new TaskChangedEvent(TaskChangedEvent.Type.UPDATED, 1, 1, Set.of(TaskField.DESCRIPTION)));
+        List<TaskView> after = taskListCache.get(KEY, () -> List.of(buildView(1, "new")));
+        release.countDown();
+
+        assertThat(after.get(0).getDescription(), is("new"));
+        assertThat(before.get(5, TimeUnit.SECONDS).get(0).getDescription(), is("old"));
+        assertThat(taskListCache.statistics().getCoalescedCount(), is(0L));
+    }
+
+    private static TaskView buildView(int id, String description) {
+        return new TaskView(id, description, false, TaskPriority.HIGH, null, null, 0, List.of());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
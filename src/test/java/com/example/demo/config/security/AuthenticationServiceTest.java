@@ -0,0 +1,144 @@
+package com.example.demo.config.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AuthenticationServiceTest {
+
+    // printf %s "$KEY" | sha256sum
+    private static final String GUILLERMO = "guillermo=418e0211da76c3e1c2c10a01a39786cd56641a009129d76f9bb76aadbe1e6c43";
+    private static final String REPORTING = "reporting=9c6a5414967c2b970dd4f49cc5790bfce98d65beb799a79c0674807252837cac";
+
+    @TempDir
+    Path directory;
+
+    private Path keysFile;
+
+    @BeforeEach
+    void setUp() {
+        keysFile = directory.resolve("api-keys.properties");
+    }
+
+    @Test
+    void whenKnownKey_thenReturnTheClientsSharedAuthentication() {
+        AuthenticationService service = new AuthenticationService(new ClassPathResource("api-keys-test.properties"));
+
+        ApiKeyAuthentication authentication = service.authenticate("Guillermo");
+        assertThat(authentication.getPrincipal(), is("guillermo"));
+        assertThat(authentication.isAuthenticated(), is(true));
+        assertThat(service.authenticate("Guillermo"), sameInstance(authentication));
+        assertThat(service.authenticate("Reporting-Client").getPrincipal(), is("reporting"));
+        assertThat(service.keyCount(), is(2));
+    }
+
+    @Test
+    void whenUnknownKey_thenReturnNull() {
+        AuthenticationService service = new AuthenticationService(new ClassPathResource("api-keys-test.properties"));
+
+        assertThat(service.authenticate("guillermo"), nullValue());
+        assertThat(service.authenticate("Guillermo "), nullValue());
+        assertThat(service.authenticate(""), nullValue());
+        assertThat(service.authenticate("Guillermo".repeat(100)), nullValue());
+    }
+
+    @Test
+    void whenKeyIsNotAscii_thenHashItsUtf8Bytes() throws IOException {
+        write(GUILLERMO, "unicode=" + sha256Hex("clé-🔑-ключ"));
+        AuthenticationService service = new AuthenticationService(new FileSystemResource(keysFile));
+
+        assertThat(service.authenticate("clé-🔑-ключ").getPrincipal(), is("unicode"));
+    }
+
+    @Test
+    void whenFileChanges_thenSwapInTheNewKeys() throws IOException {
+        write(GUILLERMO);
+        AuthenticationService service = new AuthenticationService(new FileSystemResource(keysFile));
+        service.reloadIfModified();
+        assertThat(service.authenticate("Guillermo").getPrincipal(), is("guillermo"));
+
+        write(REPORTING);
+        Files.setLastModifiedTime(keysFile, FileTime.from(Instant.now().plusSeconds(10)));
+        service.reloadIfModified();
+
+        assertThat(service.authenticate("Guillermo"), nullValue());
+        assertThat(service.authenticate("Reporting-Client").getPrincipal(), is("reporting"));
+        assertThat(service.keyCount(), is(1));
+    }
+
+    @Test
+    void whenChangedFileIsInvalid_thenKeepTheCurrentKeys() throws IOException {
+        write(GUILLERMO);
+        AuthenticationService service = new AuthenticationService(new FileSystemResource(keysFile));
+
+        write(REPORTING, "broken=not-a-hash");
+        Files.setLastModifiedTime(keysFile, FileTime.from(Instant.now().plusSeconds(10)));
+        service.reloadIfModified();
+
+        assertThat(service.authenticate("Guillermo").getPrincipal(), is("guillermo"));
+        assertThat(service.authenticate("Reporting-Client"), nullValue());
+    }
+
+    @Test
+    void whenFileInvalidAtStartup_thenFail() throws IOException {
+        write(GUILLERMO, REPORTING.substring(0, REPORTING.length() - 2));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new AuthenticationService(new FileSystemResource(keysFile)));
+        assertThrows(UncheckedIOException.class,
+                () -> new AuthenticationService(new FileSystemResource(directory.resolve("missing.properties"))));
+    }
+
+    @Test
+    void whenTwoClientsShareAKey_thenFail() throws IOException {
+        write(GUILLERMO, GUILLERMO.replace("guillermo=", "copy="));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new AuthenticationService(new FileSystemResource(keysFile)));
+    }
+
+    @Test
+    void whenChangeSharedAuthentication_thenRefuse() {
+        ApiKeyAuthentication authentication = new AuthenticationService(
+                new ClassPathResource("api-keys-test.properties")).authenticate("Guillermo");
+
+        assertThrows(UnsupportedOperationException.class, () -> authentication.setAuthenticated(false));
+        assertThrows(UnsupportedOperationException.class, () -> authentication.setDetails("details"));
+    }
+
+    private void write(String... lines) throws IOException {
+        Files.write(keysFile, String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String sha256Hex(String key) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,9 +1,26 @@
 package com.example.demo.controller;
 
 import com.example.demo.DemoApplication;
+import com.example.demo.cache.TaskCache;
+import com.example.demo.cache.TaskListCache;
 import com.example.demo.entity.TaskEntity;
 import com.example.demo.entity.TaskPriority;
+import com.example.demo.feed.TaskFeed;
+import com.example.demo.service.SubTaskService;
 import com.example.demo.service.TaskService;
+import com.example.demo.stats.TaskCounters;
+import com.example.demo.util.BulkResult;
+import com.example.demo.util.SortDirection;
+import com.example.demo.util.SortField;
+import com.example.demo.util.SyncToken;
+import com.example.demo.util.TaskBulkUpdate;
+import com.example.demo.util.TaskChanges;
+import com.example.demo.util.TaskCounts;
+import com.example.demo.util.TaskCursor;
+import com.example.demo.util.TaskField;
+import com.example.demo.util.TaskPage;
+import com.example.demo.util.TaskStatistics;
+import com.example.demo.view.TaskView;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,23 +28,38 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import static org.assertj.core.internal.bytebuddy.matcher.ElementMatchers.is;
+import static org.hamcrest.Matchers.contains;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.jsonPath;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(SpringExtension.class)
@@ -42,18 +74,34 @@ public class TaskControllerTest {
     @MockBean
     private TaskService taskService;
 
+    @MockBean
+    private SubTaskService subTaskService;
+
+    @MockBean
+    private TaskCache taskCache;
+
+    @MockBean
+    private TaskListCache taskListCache;
+
+    @MockBean
+    private TaskFeed taskFeed;
+
+    @MockBean
+    private TaskCounters taskCounters;
+
     private MockMvc server;
 
     @BeforeEach
     public void setup() {
         server = MockMvcBuilders.webAppContextSetup(this.webApplicationContext).build();
+        when(taskService.currentSyncToken()).thenReturn(SyncToken.of(Instant.EPOCH));
     }
 
     @Test
     public void whenGetAllTasks_thenReturnAllTasks() throws Exception {
-        when(taskService.getAllTasks(any(), any())).thenReturn(List.of(
-                buildTask(1, "task 1", false, TaskPriority.LOW),
-                buildTask(2, "task 2", true, TaskPriority.HIGH)
+        when(taskService.getAllTasks(any(), any(), any())).thenReturn(List.of(
+                buildView(1, "task 1", false, TaskPriority.LOW),
+                buildView(2, "task 2", true, TaskPriority.HIGH)
         ));
 
         server.perform(get("/task", List.class))
@@ -64,18 +112,156 @@ public class TaskControllerTest {
 
     @Test
     public void whenGetAllTasksAndNoTask_thenReturnEmpty() throws Exception {
-        when(taskService.getAllTasks(any(), any())).thenReturn(new ArrayList<>());
+        when(taskService.getAllTasks(any(), any(), any())).thenReturn(new ArrayList<>());
 
         server.perform(get("/task", List.class))
                 .andExpect(status().isOk())
                 .andExpect(result -> jsonPath("$.size()", is(0)));
     }
 
+    @Test
+    public void whenGetAllTasks_thenReturnSyncToken() throws Exception {
+        when(taskService.getAllTasks(any(), any(), any())).thenReturn(List.of());
+
+        server.perform(get("/task"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(TaskController.SYNC_TOKEN_HEADER, SyncToken.of(Instant.EPOCH).encode()));
+    }
+
+    @Test
+    public void whenGetChangedTasks_thenReturnChangesAndNextToken() throws Exception {
+        SyncToken since = SyncToken.of(Instant.EPOCH);
+        SyncToken next = new SyncToken(Instant.EPOCH.plusSeconds(1), 2);
+        when(taskService.getChanges(since, 100, TaskField.ALL)).thenReturn(Optional.of(new TaskChanges(
+                List.of(buildView(2, "task 2", false, TaskPriority.LOW)), List.of(1), false, next)));
+
+        server.perform(get("/task?since=" + since.encode()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(TaskController.SYNC_TOKEN_HEADER, next.encode()))
+                .andExpect(content().json("{\"tasks\":[{\"taskId\":2}],\"deleted\":[1],\"more\":false}"));
+    }
+
+    @Test
+    public void whenGetChangedTasksWithExpiredToken_thenReturn410() throws Exception {
+        when(taskService.getChanges(any(), anyInt(), any())).thenReturn(Optional.empty());
+
+        server.perform(get("/task?since=" + SyncToken.of(Instant.EPOCH).encode()))
+                .andExpect(status().isGone());
+    }
+
+    @Test
+    public void whenGetChangedTasksWithMalformedToken_thenReturn400() throws Exception {
+        server.perform(get("/task?since=not-a-token"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void whenStreamEventsAndFeedIsFull_thenReturn503() throws Exception {
+        when(taskFeed.subscribe(null)).thenReturn(Optional.empty());
+
+        server.perform(get("/task/events"))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    public void whenGetStatistics_thenReturnCountsPerPriority() throws Exception {
+        when(taskCounters.getStatistics()).thenReturn(TaskStatistics.of(new TaskCounts()
+                .addTasks(TaskPriority.HIGH, false, 3)
+                .addTasks(TaskPriority.HIGH, true, 1)
+                .addSubTasks(4, 1)));
+
+        server.perform(get("/task/stats"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"tasks\": 4, \"completionRate\": 0.25, \"subTaskCompletionRate\": 0.25, " +
+                        "\"priorities\": {\"HIGH\": {\"open\": 3, \"completed\": 1}, \"LOW\": {\"open\": 0}}}"));
+    }
+
+    @Test
+    public void whenSearchTasks_thenReturnMatchesInRankOrder() throws Exception {
+        when(taskService.searchTasks(eq("milk"), any(), eq(TaskController.DEFAULT_PAGE_SIZE), eq(TaskField.ALL)))
+                .thenReturn(Optional.of(List.of(buildView(2, "buy milk", false, TaskPriority.HIGH),
+                        buildView(1, "milk", false, TaskPriority.LOW))));
+
+        server.perform(get("/task/search?q=milk&priority=LOW"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[*].taskId").value(contains(2, 1)));
+    }
+
+    @Test
+    public void whenSearchTasksBeforeIndexIsBuilt_thenReturn503() throws Exception {
+        when(taskService.searchTasks(any(), any(), anyInt(), any())).thenReturn(Optional.empty());
+
+        server.perform(get("/task/search?q=milk"))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    public void whenSearchTasksWithLimitOutOfRange_thenReturnBadRequest() throws Exception {
+        server.perform(get("/task/search?q=milk&limit=0"))
+                .andExpect(status().isBadRequest());
+        server.perform(get("/task/search?q=milk&limit=" + (TaskController.MAX_PAGE_SIZE + 1)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void whenGetTaskPage_thenReturnNextCursor() throws Exception {
+        TaskCursor next = new TaskCursor(SortField.PRIORITY, SortDirection.ASC, "LOW", 1);
+        when(taskService.getTaskPage(any(), eq(SortField.PRIORITY), eq(SortDirection.ASC), eq(null), eq(1), any()))
+                .thenReturn(new TaskPage(List.of(buildView(1, "task 1", false, TaskPriority.LOW)), next));
+
+        server.perform(get("/task?limit=1", List.class))
+                .andExpect(status().isOk())
+                .andExpect(header().string(TaskController.NEXT_CURSOR_HEADER, next.encode()));
+    }
+
+    @Test
+    public void whenGetTaskPageAndLastPage_thenReturnNoCursor() throws Exception {
+        TaskCursor cursor = new TaskCursor(SortField.PRIORITY, SortDirection.ASC, "LOW", 1);
+        when(taskService.getTaskPage(any(), eq(SortField.PRIORITY), eq(SortDirection.ASC), eq(cursor), eq(1), any()))
+                .thenReturn(new TaskPage(List.of(buildView(2, "task 2", true, TaskPriority.HIGH)), null));
+
+        server.perform(get("/task?limit=1&next=" + cursor.encode(), List.class))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(TaskController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    public void whenGetTaskPageWithInvalidParameters_thenReturn400() throws Exception {
+        server.perform(get("/task?next=not-a-cursor", List.class))
+                .andExpect(status().isBadRequest());
+        server.perform(get("/task?limit=0", List.class))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void whenExportTasks_thenStreamOneTaskPerLine() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<TaskEntity> consumer = invocation.getArgument(0);
+            consumer.accept(buildTask(1, "task 1", false, TaskPriority.LOW));
+            consumer.accept(buildTask(2, "task 2", true, TaskPriority.HIGH));
+            return null;
+        }).when(taskService).exportTasks(any());
+
+        MvcResult result = server.perform(get("/task/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assert result.getRequest().getAsyncContext().getTimeout() == Duration.ofMinutes(30).toMillis();
+
+        server.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(TaskController.NDJSON_VALUE))
+                .andExpect(mvcResult -> {
+                    String[] lines = mvcResult.getResponse().getContentAsString().split("\n");
+                    assert lines.length == 2;
+                    assert new ObjectMapper().readValue(lines[1], TaskEntity.class).getTaskId() == 2;
+                });
+    }
 
     @Test
     public void whenGetTaskById_thenReturnTask() throws Exception {
-        TaskEntity task = buildTask(1, "task 1", false, TaskPriority.LOW);
-        when(taskService.getTaskById(1)).thenReturn(Optional.of(task));
+        TaskView task = buildView(1, "task 1", false, TaskPriority.LOW);
+        when(taskService.getTaskById(1, TaskField.ALL)).thenReturn(Optional.of(task));
 
         server.perform(get("/task/1", TaskEntity.class))
                 .andExpect(status().isOk())
@@ -85,14 +271,91 @@ public class TaskControllerTest {
                 .andExpect(result -> jsonPath("$.priority", is(TaskPriority.LOW.toString())));
     }
 
+    @Test
+    public void whenGetTaskByIdWithoutSubTasks_thenAskServiceToSkipThem() throws Exception {
+        Set<TaskField> fields = EnumSet.complementOf(EnumSet.of(TaskField.SUB_TASKS));
+        when(taskService.getTaskById(1, fields))
+                .thenReturn(Optional.of(buildView(1, "task 1", false, TaskPriority.LOW)));
+
+        server.perform(get("/task/1?subTasks=false"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"taskId\": 1, \"description\": \"task 1\"}"))
+                .andExpect(mvcResult -> {
+                    assert !mvcResult.getResponse().getContentAsString().contains("subTasks");
+                });
+    }
+
+    @Test
+    public void whenGetTasksWithFields_thenSerializeOnlyThoseFields() throws Exception {
+        Set<TaskField> fields = EnumSet.of(TaskField.TASK_ID, TaskField.COMPLETED);
+        when(taskService.getAllTasks(any(), any(), eq(fields)))
+                .thenReturn(List.of(buildView(1, "task 1", true, TaskPriority.LOW)));
+
+        server.perform(get("/task?fields=taskId,completed"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[{\"taskId\": 1, \"completed\": true}]", true));
+    }
+
+    @Test
+    public void whenGetTasksWithUnknownField_thenReturn400() throws Exception {
+        server.perform(get("/task?fields=taskId,owner"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void whenGetTaskByIdAndNoTaskExist_thenReturn404() throws Exception {
-        when(taskService.getTaskById(1)).thenReturn(Optional.empty());
+        when(taskService.getTaskById(1, TaskField.ALL)).thenReturn(Optional.empty());
 
         server.perform(get("/task/1", TaskEntity.class))
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    public void whenGetTaskByIdWithCurrentETag_thenReturn304WithoutLoadingTask() throws Exception {
+        when(taskService.getTaskVersion(1)).thenReturn(Optional.of(3));
+
+        server.perform(get("/task/1").header(HttpHeaders.IF_NONE_MATCH, "\"1.3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1.3\""));
+
+        verify(taskService, never()).getTaskById(anyInt(), any());
+    }
+
+    @Test
+    public void whenGetTaskByIdWithStaleETag_thenReturnTaskAndETag() throws Exception {
+        when(taskService.getTaskVersion(1)).thenReturn(Optional.of(0));
+        when(taskService.getTaskById(1, TaskField.ALL)).thenReturn(Optional.of(buildView(1, "task 1", false, TaskPriority.LOW)));
+
+        server.perform(get("/task/1").header(HttpHeaders.IF_NONE_MATCH, "\"1.2\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1.0\""));
+    }
+
+    @Test
+    public void whenGetAllTasksWithCurrentETag_thenReturn304() throws Exception {
+        when(taskService.getAllTasks(any(), any(), any())).thenReturn(List.of(buildView(1, "task 1", false, TaskPriority.LOW)));
+
+        String etag = server.perform(get("/task"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        server.perform(get("/task").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    public void whenUpdateTaskWithStaleETag_thenReturn412() throws Exception {
+        when(taskService.updateTask(eq(1), any(), eq(OptionalInt.of(2))))
+                .thenThrow(new OptimisticLockingFailureException("stale"));
+
+        server.perform(put("/task/1")
+                        .header(HttpHeaders.IF_MATCH, "\"1.2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(buildTask(1, "task 1", false, TaskPriority.LOW))))
+                .andExpect(status().isPreconditionFailed());
+    }
+
     @Test
     public void whenValidInput_thenCreateTask() throws Exception {
         TaskEntity task = buildTask(1, "task 1", false, TaskPriority.LOW);
@@ -111,26 +374,43 @@ public class TaskControllerTest {
         verify(taskService, times(1)).createTask(any());
     }
 
+    @Test
+    public void whenValidInput_thenCreateTasks() throws Exception {
+        List<TaskEntity> tasks = List.of(buildTask(1, "task 1", false, TaskPriority.LOW),
+                buildTask(2, "task 2", true, TaskPriority.HIGH));
+
+        when(taskService.createTasks(any())).thenReturn(tasks);
+
+        server.perform(post("/task/batch", TaskEntity.class)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(tasks)))
+                .andExpect(status().isOk())
+                .andExpect(result -> jsonPath("$.size()", is(2)));
+
+        verify(taskService, times(1)).createTasks(any());
+    }
+
     @Test
     public void whenValidInput_thenUpdateTask() throws Exception {
         TaskEntity task = buildTask(1, "task 1", false, TaskPriority.LOW);
-        when(taskService.updateTask(eq(1), any())).thenReturn(Optional.of(task));
+        when(taskService.updateTask(eq(1), any(), any())).thenReturn(Optional.of(task));
 
         server.perform(put("/task/1", TaskEntity.class)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(asJsonString(task)))
                 .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1.0\""))
                 .andExpect(result -> jsonPath("$.id", is(1)))
                 .andExpect(result -> jsonPath("$.description", is("task 1")))
                 .andExpect(result -> jsonPath("$.completed", is(false)))
                 .andExpect(result -> jsonPath("$.priority", is(TaskPriority.LOW.toString())));
 
-        verify(taskService, times(1)).updateTask(eq(1), any());
+        verify(taskService, times(1)).updateTask(eq(1), any(), any());
     }
 
     @Test
     public void whenNotValidInput_thenNoUpdateTask() throws Exception {
-        when(taskService.updateTask(eq(1), any())).thenReturn(Optional.empty());
+        when(taskService.updateTask(eq(1), any(), any())).thenReturn(Optional.empty());
         TaskEntity task = buildTask(1, "new value", false, TaskPriority.LOW);
 
         server.perform(put("/task/1", TaskEntity.class)
@@ -138,27 +418,79 @@ public class TaskControllerTest {
                         .content(asJsonString(task)))
                 .andExpect(status().isNotFound());
 
-        verify(taskService, times(1)).updateTask(eq(1), any());
+        verify(taskService, times(1)).updateTask(eq(1), any(), any());
     }
 
     @Test
-    public void whenDeleteTask_thenDeleteTask() throws Exception {
+    public void whenPatchTask_thenReturnETag() throws Exception {
         TaskEntity task = buildTask(1, "task 1", false, TaskPriority.LOW);
-        when(taskService.deleteTask(1)).thenReturn(Optional.of(task));
+        task.setVersion(2);
+        when(taskService.patchTask(eq(1), any(), eq(OptionalInt.empty()))).thenReturn(Optional.of(task));
+
+        server.perform(patch("/task/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"completed\": true}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1.2\""));
+    }
+
+    @Test
+    public void whenPatchMissingTask_thenReturn404() throws Exception {
+        when(taskService.patchTask(eq(1), any(), any())).thenReturn(Optional.empty());
+
+        server.perform(patch("/task/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"completed\": true}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void whenBulkUpdateTasks_thenReturnAffectedRows() throws Exception {
+        when(taskService.updateTasks(any(), eq(List.of(1, 2)), any())).thenReturn(new BulkResult(2));
+
+        server.perform(put("/task/bulk?ids=1,2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(new TaskBulkUpdate(true, null))))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"affected\": 2}"));
+    }
+
+    @Test
+    public void whenBulkUpdateWithoutCriteria_thenReturn400() throws Exception {
+        when(taskService.updateTasks(any(), eq(null), any())).thenThrow(new IllegalArgumentException());
+
+        server.perform(put("/task/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(new TaskBulkUpdate(true, null))))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void whenBulkDeleteTasks_thenReturnAffectedRows() throws Exception {
+        when(taskService.deleteTasks(any(), eq(null))).thenReturn(new BulkResult(3));
+
+        server.perform(delete("/task/bulk?completed=true"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"affected\": 3}"));
+    }
+
+    @Test
+    public void whenDeleteTask_thenDeleteTask() throws Exception {
+        when(taskService.deleteTask(eq(1), any())).thenReturn(true);
 
         server.perform(delete("/task/1", TaskEntity.class))
                 .andExpect(status().isOk());
 
-        verify(taskService, times(1)).deleteTask(1);
+        verify(taskService, times(1)).deleteTask(eq(1), any());
     }
 
     @Test
     public void whenDeleteTaskAndNoTask_thenNotDeleteTask() throws Exception {
-        when(taskService.deleteTask(1)).thenReturn(Optional.empty());
+        when(taskService.deleteTask(eq(1), any())).thenReturn(false);
 
         server.perform(delete("/task/1", TaskEntity.class))
                 .andExpect(status().isNotFound());
-        verify(taskService, times(1)).deleteTask(1);
+        verify(taskService, times(1)).deleteTask(eq(1), any());
     }
 
     public static String asJsonString(final Object obj) {
@@ -169,6 +501,10 @@ public class TaskControllerTest {
         }
     }
 
+    private TaskView buildView(int id, String description, boolean completed, TaskPriority priority) {
+        return new TaskView(id, description, completed, priority, null, null, 0, List.of());
+    }
+
     private TaskEntity buildTask(int id, String description, boolean completed, TaskPriority priority) {
         TaskEntity task = new TaskEntity();
         task.setTaskId(id);
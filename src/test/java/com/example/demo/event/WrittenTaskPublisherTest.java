@@ -0,0 +1,109 @@
+package com.example.demo.event;
+
+import com.example.demo.entity.TaskPriority;
+import com.example.demo.repository.TaskRepository;
+import com.example.demo.util.TaskField;
+import com.example.demo.view.TaskView;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class WrittenTaskPublisherTest {
+
+    @Mock
+    TaskRepository taskRepository;
+
+    @Mock
+    WrittenTaskListener listener;
+
+    WrittenTaskPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        when(listener.isEnabled()).thenReturn(true);
+        publisher = new WrittenTaskPublisher(taskRepository, List.of(listener));
+    }
+
+    @AfterEach
+    void tearDown() {
+        publisher.shutdown();
+    }
+
+    @Test
+    void whenEventCarriesTheTask_thenHandItOverWithoutReading() {
+        TaskView task = buildView(1, 2);
+
+        publisher.onTaskChanged(new TaskChangedEvent(TaskChangedEvent.Type.UPDATED, 1, 2, Set.of(TaskField.COMPLETED),
+                task));
+
+        verify(listener).onTasksWritten(List.of(task));
+        verifyNoInteractions(taskRepository);
+    }
+
+    @Test
+    void whenEventsComeWithoutTheTask_thenReadTheQueuedIdsTogether() throws Exception {
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(taskRepository.findViews(any(), any(), eq(-1), eq(TaskField.ALL)))
+                .thenAnswer(invocation -> {
+                    reading.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    return List.of(buildView(1, 1));
+                })
+                .thenReturn(List.of(buildView(2, 1), buildView(3, 1)));
+
+        publisher.onTaskChanged(new TaskChangedEvent(TaskChangedEvent.Type.UPDATED, 1, 1, Set.of(TaskField.SUB_TASKS)));
+        reading.await(5, TimeUnit.SECONDS);
+        publisher.onTaskChanged(new TaskChangedEvent(TaskChangedEvent.Type.UPDATED, 2, 1, Set.of(TaskField.SUB_TASKS)));
+        publisher.onTaskChanged(new TaskChangedEvent(TaskChangedEvent.Type.UPDATED, 3, 1, Set.of(TaskField.SUB_TASKS)));
+        release.countDown();
+
+        verify(listener, timeout(5000)).onTasksWritten(List.of(buildView(2, 1), buildView(3, 1)));
+        verify(listener).onTasksWritten(List.of(buildView(1, 1)));
+        verify(taskRepository, times(2)).findViews(any(), any(), anyInt(), any());
+    }
+
+    @Test
+    void whenDeletedOrBulk_thenLeaveItToTheListenersOwnEvents() {
+        publisher.onTaskChanged(new TaskChangedEvent(TaskChangedEvent.Type.DELETED, 1, 0, Set.of()));
+        publisher.onTaskChanged(TaskChangedEvent.bulk(TaskChangedEvent.Type.BULK_UPDATED, Set.of(TaskField.COMPLETED)));
+
+        verify(listener, never()).onTasksWritten(any());
+        verifyNoInteractions(taskRepository);
+    }
+
+    @Test
+    void whenNoListenerIsEnabled_thenReadNothing() {
+        when(listener.isEnabled()).thenReturn(false);
+        WrittenTaskPublisher disabled = new WrittenTaskPublisher(taskRepository, List.of(listener));
+
+        disabled.onTaskChanged(new TaskChangedEvent(TaskChangedEvent.Type.UPDATED, 1, 1, Set.of(TaskField.SUB_TASKS)));
+        disabled.shutdown();
+
+        verify(listener, never()).onTasksWritten(any());
+        verifyNoInteractions(taskRepository);
+    }
+
+    private TaskView buildView(int taskId, int version) {
+        return new TaskView(taskId, "Task " + taskId, false, TaskPriority.LOW, null, null, version, List.of());
+    }
+}
@@ -1,35 +1,103 @@
 package com.example.demo.integration;
 
+import com.example.demo.entity.SubTaskEntity;
 import com.example.demo.entity.TaskEntity;
 import com.example.demo.entity.TaskPriority;
+import com.example.demo.event.TaskChangedEvent;
+import com.example.demo.feed.TaskFeed;
+import com.example.demo.metrics.StatementStatisticsFilter;
+import com.example.demo.service.TaskService;
+import com.example.demo.stats.TaskCounters;
+import com.example.demo.util.BulkResult;
+import com.example.demo.util.SyncToken;
+import com.example.demo.util.TaskETag;
+import com.example.demo.util.TaskPatch;
+import com.example.demo.util.TaskStatistics;
+import com.example.demo.view.SubTaskView;
+import com.example.demo.view.TaskView;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import net.minidev.json.JSONArray;
 import net.minidev.json.JSONObject;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalManagementPort;
 import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.event.ApplicationListenerMethodAdapter;
+import org.springframework.context.support.AbstractApplicationContext;
+import org.springframework.core.ResolvableType;
 import org.springframework.http.*;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import javax.persistence.EntityManagerFactory;
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.OptionalInt;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 
 @ExtendWith(SpringExtension.class)
 @EnableAutoConfiguration
 @ActiveProfiles("test")
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMetrics
 @DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
 public class IntegrationTest {
 
+    @LocalServerPort
+    private int port;
+
+    @LocalManagementPort
+    private int managementPort;
+
     @Autowired
     private TestRestTemplate restTemplate;
 
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TaskCounters taskCounters;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private AbstractApplicationContext applicationContext;
+
     HttpHeaders headers;
 
     @BeforeEach
@@ -45,6 +113,24 @@ public class IntegrationTest {
         assertThat(response.getStatusCode(), is(HttpStatus.UNAUTHORIZED));
     }
 
+    @Test
+    public void whenInvalidCredential_thenRejectBeforeReachingTheApplication() {
+        headers.set("X-API-KEY", "Guillermo2");
+        ResponseEntity<String> response = restTemplate
+                .exchange("/task/1", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertThat(response.getStatusCode(), is(HttpStatus.UNAUTHORIZED));
+        assertThat(response.getHeaders().getFirst(StatementStatisticsFilter.STATEMENT_COUNT_HEADER), is("0"));
+        assertThat(meterRegistry.find("task.service").timers().isEmpty(), is(true));
+    }
+
+    @Test
+    public void whenAnyClientsCredential_thenAccess() {
+        headers.set("X-API-KEY", "Reporting-Client");
+        ResponseEntity<TaskEntity> response = restTemplate
+                .exchange("/task/1", HttpMethod.GET, new HttpEntity<>(headers), TaskEntity.class);
+        assertThat(response.getStatusCode(), is(HttpStatus.OK));
+    }
+
     @Test
     public void whenCredential_thenAccess() {
         ResponseEntity<TaskEntity> response = restTemplate
@@ -135,4 +221,511 @@ public class IntegrationTest {
         assertThat(response.getStatusCode(), is(HttpStatus.OK));
         assertThat(response.getBody().length, is(2));
     }
+
+    @Test
+    public void whenGetTaskPages_thenFollowCursorToTheEnd() {
+        ResponseEntity<TaskEntity[]> response = restTemplate
+                .exchange("/task?limit=1&sortField=PRIORITY&sortDirection=DESC", HttpMethod.GET,
+                        new HttpEntity<>(headers), TaskEntity[].class);
+        assertThat(response.getStatusCode(), is(HttpStatus.OK));
+        assertThat(response.getBody().length, is(1));
+        assertThat(response.getBody()[0].getPriority(), is(TaskPriority.HIGH));
+
+        String next = response.getHeaders().getFirst("X-Next-Cursor");
+        ResponseEntity<TaskEntity[]> response2 = restTemplate
+                .exchange("/task?limit=1&sortField=PRIORITY&sortDirection=DESC&next=" + next, HttpMethod.GET,
+                        new HttpEntity<>(headers), TaskEntity[].class);
+        assertThat(response2.getStatusCode(), is(HttpStatus.OK));
+        assertThat(response2.getBody().length, is(1));
+        assertThat(response2.getBody()[0].getPriority(), is(TaskPriority.LOW));
+        assertThat(response2.getHeaders().containsKey("X-Next-Cursor"), is(false));
+    }
+
+    @Test
+    public void whenExportTasks_thenStreamAllTasks() {
+        ResponseEntity<String> response = restTemplate
+                .exchange("/task/export", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertThat(response.getStatusCode(), is(HttpStatus.OK));
+        assertThat(Objects.requireNonNull(response.getBody()).endsWith("\n"), is(true));
+        assertThat(response.getBody().split("\n").length, is(2));
+    }
+
+    @Test
+    public void whenAddTasksInBatch_thenReturnTasksWithSubTasks() {
+        JSONObject subTask = new JSONObject();
+        subTask.put("description", "Subtask 1");
+        subTask.put("priority", 1);
+        JSONObject task1 = new JSONObject();
+        task1.put("description", "Task 3");
+        task1.put("priority", "LOW");
+        task1.put("subTasks", new JSONArray().appendElement(subTask));
+        JSONObject task2 = new JSONObject();
+        task2.put("description", "Task 4");
+        task2.put("priority", "HIGH");
+
+        ResponseEntity<TaskEntity[]> response = restTemplate.exchange("/task/batch", HttpMethod.POST,
+                new HttpEntity<>(new JSONArray().appendElement(task1).appendElement(task2).toJSONString(), headers),
+                TaskEntity[].class);
+        assertThat(response.getStatusCode(), is(HttpStatus.OK));
+        assertThat(Objects.requireNonNull(response.getBody()).length, is(2));
+
+        int taskId = response.getBody()[0].getTaskId();
+        ResponseEntity<TaskEntity> response2 = restTemplate
+                .exchange("/task/" + taskId, HttpMethod.GET, new HttpEntity<>(headers), TaskEntity.class);
+        assertThat(response2.getStatusCode(), is(HttpStatus.OK));
+        assertThat(Objects.requireNonNull(response2.getBody()).getSubTasks().size(), is(1));
+        assertThat(response2.getBody().getSubTasks().iterator().next().getTaskId(), is(taskId));
+    }
+
+    @Test
+    public void whenBulkUpdateAndDelete_thenReturnAffectedRows() {
+        JSONObject update = new JSONObject();
+        update.put("completed", true);
+
+        ResponseEntity<BulkResult> response = restTemplate.exchange("/task/bulk?priority=LOW", HttpMethod.PUT,
+                new HttpEntity<>(update.toJSONString(), headers), BulkResult.class);
+        assertThat(response.getStatusCode(), is(HttpStatus.OK));
+        assertThat(Objects.requireNonNull(response.getBody()).getAffected(), is(1));
+
+        ResponseEntity<BulkResult> response2 = restTemplate.exchange("/task/bulk?completed=true&ids=1,2",
+                HttpMethod.DELETE, new HttpEntity<>(headers), BulkResult.class);
+        assertThat(response2.getStatusCode(), is(HttpStatus.OK));
+        assertThat(Objects.requireNonNull(response2.getBody()).getAffected(), is(1));
+
+        ResponseEntity<TaskEntity[]> response3 = restTemplate
+                .exchange("/task", HttpMethod.GET, new HttpEntity<>(headers), TaskEntity[].class);
+        assertThat(Objects.requireNonNull(response3.getBody()).length, is(1));
+        assertThat(response3.getBody()[0].getTaskId(), is(2));
+    }
+
+    @Test
+    public void whenConditionalRequests_thenHonorETags() {
+        ResponseEntity<TaskEntity> response = restTemplate
+                .exchange("/task/1", HttpMethod.GET, new HttpEntity<>(headers), TaskEntity.class);
+        String etag = response.getHeaders().getETag();
+        assertThat(etag, is("\"1.0\""));
+
+        HttpHeaders conditional = new HttpHeaders();
+        conditional.addAll(headers);
+        conditional.setIfNoneMatch(etag);
+        ResponseEntity<TaskEntity> response2 = restTemplate
+                .exchange("/task/1", HttpMethod.GET, new HttpEntity<>(conditional), TaskEntity.class);
+        assertThat(response2.getStatusCode(), is(HttpStatus.NOT_MODIFIED));
+
+        JSONObject task = new JSONObject();
+        task.put("description", "Task 1");
+        task.put("completed", true);
+        task.put("priority", "HIGH");
+        HttpHeaders ifMatch = new HttpHeaders();
+        ifMatch.addAll(headers);
+        ifMatch.setIfMatch(etag);
+        ResponseEntity<String> response3 = restTemplate
+                .exchange("/task/1", HttpMethod.PUT, new HttpEntity<>(task.toJSONString(), ifMatch), String.class);
+        assertThat(response3.getStatusCode(), is(HttpStatus.OK));
+        assertThat(response3.getHeaders().getETag(), is("\"1.1\""));
+
+        ResponseEntity<String> response4 = restTemplate
+                .exchange("/task/1", HttpMethod.PUT, new HttpEntity<>(task.toJSONString(), ifMatch), String.class);
+        assertThat(response4.getStatusCode(), is(HttpStatus.PRECONDITION_FAILED));
+
+        ResponseEntity<String> response5 = restTemplate
+                .exchange("/task/1", HttpMethod.DELETE, new HttpEntity<>(ifMatch), String.class);
+        assertThat(response5.getStatusCode(), is(HttpStatus.PRECONDITION_FAILED));
+
+        ResponseEntity<TaskEntity> response6 = restTemplate
+                .exchange("/task/1", HttpMethod.GET, new HttpEntity<>(conditional), TaskEntity.class);
+        assertThat(response6.getStatusCode(), is(HttpStatus.OK));
+        assertThat(Objects.requireNonNull(response6.getBody()).isCompleted(), is(true));
+    }
+
+    @Test
+    public void whenPatchTask_thenOnlyWriteWhatChanged() {
+        TaskEntity task = new TaskEntity("Task 3", false, TaskPriority.LOW, new HashSet<>());
+        for (int i = 0; i < 3; i++) {
+            task.getSubTasks().add(new SubTaskEntity(0, "Subtask " + i, false, 0, i, null));
+        }
+        int taskId = taskService.createTask(task).getTaskId();
+        List<SubTaskEntity> subTasks = new ArrayList<>(taskService.getTaskById(taskId).orElseThrow().getSubTasks()
+                .stream()
+                .map(view -> new SubTaskEntity(view.getSubTaskId(), view.getDescription(), view.isCompleted(),
+                        view.getTaskId(), view.getPriority(), null))
+                .collect(Collectors.toList()));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        TaskEntity patched = taskService.patchTask(taskId, new TaskPatch("Renamed", null, null, subTasks),
+                OptionalInt.empty()).orElseThrow();
+        assertThat(statistics.getEntityInsertCount() + statistics.getEntityDeleteCount(), is(0L));
+        assertThat(statistics.getEntityUpdateCount(), is(1L));
+        assertThat(patched.getVersion(), is(1));
+
+        subTasks.get(0).setCompleted(true);
+        subTasks.remove(2);
+        subTasks.add(new SubTaskEntity(0, "Subtask 3", false, 0, 3, null));
+        statistics.clear();
+        patched = taskService.patchTask(taskId, new TaskPatch(null, null, null, subTasks), OptionalInt.of(1))
+                .orElseThrow();
+        assertThat(statistics.getEntityInsertCount(), is(1L));
+        assertThat(statistics.getEntityDeleteCount(), is(1L));
+        assertThat(patched.getVersion() > 1, is(true));
+
+        TaskView view = taskService.getTaskById(taskId).orElseThrow();
+        assertThat(view.getDescription(), is("Renamed"));
+        assertThat(view.getPriority(), is(TaskPriority.LOW));
+        assertThat(view.getSubTasks().size(), is(3));
+        assertThat(view.getSubTasks().get(0).isCompleted(), is(true));
+    }
+
+    @Test
+    public void whenWriteTasks_thenStatisticsFollowWithoutRecounting() {
+        TaskStatistics before = getStatistics();
+
+        JSONObject subTask = new JSONObject();
+        subTask.put("description", "Subtask");
+        subTask.put("completed", true);
+        subTask.put("priority", 0);
+        JSONArray subTasks = new JSONArray();
+        subTasks.add(subTask);
+        JSONObject task = new JSONObject();
+        task.put("description", "Task 3");
+        task.put("completed", true);
+        task.put("priority", "HIGH");
+        task.put("subTasks", subTasks);
+        restTemplate.exchange("/task", HttpMethod.POST, new HttpEntity<>(task.toJSONString(), headers), String.class);
+        ResponseEntity<SubTaskEntity> created = restTemplate.exchange("/task/1/subtasks", HttpMethod.POST,
+                new HttpEntity<>(subTask.toJSONString(), headers), SubTaskEntity.class);
+        restTemplate.exchange("/task/1/subtasks/" + Objects.requireNonNull(created.getBody()).getSubTaskId()
+                + "/toggle", HttpMethod.POST, new HttpEntity<>(headers), String.class);
+        JSONObject update = new JSONObject();
+        update.put("completed", true);
+        restTemplate.exchange("/task/bulk?priority=LOW", HttpMethod.PUT,
+                new HttpEntity<>(update.toJSONString(), headers), BulkResult.class);
+        restTemplate.exchange("/task/2", HttpMethod.DELETE, new HttpEntity<>(headers), Void.class);
+
+        TaskStatistics after = getStatistics();
+        assertThat(after.getTasks(), is(before.getTasks()));
+        assertThat(after.getPriorities().get(TaskPriority.HIGH).getCompleted(), is(1L));
+        assertThat(after.getPriorities().get(TaskPriority.LOW).getOpen(), is(0L));
+        assertThat(after.getSubTasks(), is(before.getSubTasks() + 2));
+        assertThat(after.getCompletedSubTasks(), is(before.getCompletedSubTasks() + 1));
+        assertThat(after, is(TaskStatistics.of(taskCounters.reconcile())));
+    }
+
+    @Test
+    public void whenWriteTasks_thenSearchFindsThemByTaskAndSubTaskWords() throws Exception {
+        JSONObject subTask = new JSONObject();
+        subTask.put("description", "Pick up the groceries");
+        subTask.put("priority", 0);
+        restTemplate.exchange("/task/2/subtasks", HttpMethod.POST, new HttpEntity<>(subTask.toJSONString(), headers),
+                String.class);
+        JSONObject task = new JSONObject();
+        task.put("description", "Groceries for the week");
+        task.put("completed", false);
+        task.put("priority", "LOW");
+        restTemplate.exchange("/task", HttpMethod.POST, new HttpEntity<>(task.toJSONString(), headers), String.class);
+
+        ResponseEntity<TaskView[]> response = searchUntilFound("/task/search?q=grocer", 2);
+        assertThat(response.getStatusCode(), is(HttpStatus.OK));
+        assertThat(Objects.requireNonNull(response.getBody())[0].getTaskId(), is(3));
+        assertThat(response.getBody()[1].getTaskId(), is(2));
+
+        response = restTemplate.exchange("/task/search?q=grocer&priority=HIGH", HttpMethod.GET,
+                new HttpEntity<>(headers), TaskView[].class);
+        assertThat(response.getBody().length, is(1));
+        assertThat(response.getBody()[0].getTaskId(), is(2));
+
+        restTemplate.exchange("/task/3", HttpMethod.DELETE, new HttpEntity<>(headers), Void.class);
+        response = restTemplate.exchange("/task/search?q=grocer", HttpMethod.GET, new HttpEntity<>(headers),
+                TaskView[].class);
+        assertThat(response.getBody().length, is(1));
+    }
+
+    // The index is built in the background once the application is ready
+    private ResponseEntity<TaskView[]> searchUntilFound(String url, int expected) throws InterruptedException {
+        ResponseEntity<TaskView[]> response = null;
+        for (int i = 0; i < 500; i++) {
+            response = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), TaskView[].class);
+            if (response.getStatusCode() == HttpStatus.OK && response.getBody().length == expected) {
+                return response;
+            }
+            Thread.sleep(10);
+        }
+        return response;
+    }
+
+    @Test
+    public void whenWorkOnSubTasks_thenOnlyTouchSubTaskRows() {
+        for (int i = 0; i < 3; i++) {
+            JSONObject subTask = new JSONObject();
+            subTask.put("description", "Subtask " + i);
+            subTask.put("priority", 2 - i);
+            ResponseEntity<SubTaskEntity> created = restTemplate.exchange("/task/1/subtasks", HttpMethod.POST,
+                    new HttpEntity<>(subTask.toJSONString(), headers), SubTaskEntity.class);
+            assertThat(created.getStatusCode(), is(HttpStatus.OK));
+            assertThat(Objects.requireNonNull(created.getBody()).getTaskId(), is(1));
+        }
+
+        ResponseEntity<SubTaskView[]> page = restTemplate.exchange("/task/1/subtasks?limit=2", HttpMethod.GET,
+                new HttpEntity<>(headers), SubTaskView[].class);
+        assertThat(Objects.requireNonNull(page.getBody()).length, is(2));
+        assertThat(page.getBody()[0].getDescription(), is("Subtask 2"));
+        String next = page.getHeaders().getFirst("X-Next-Cursor");
+        ResponseEntity<SubTaskView[]> page2 = restTemplate.exchange("/task/1/subtasks?limit=2&next=" + next,
+                HttpMethod.GET, new HttpEntity<>(headers), SubTaskView[].class);
+        assertThat(Objects.requireNonNull(page2.getBody()).length, is(1));
+        assertThat(page2.getHeaders().containsKey("X-Next-Cursor"), is(false));
+
+        int subTaskId = page2.getBody()[0].getSubTaskId();
+        ResponseEntity<String> toggled = restTemplate.exchange("/task/1/subtasks/" + subTaskId + "/toggle",
+                HttpMethod.POST, new HttpEntity<>(headers), String.class);
+        assertThat(toggled.getStatusCode(), is(HttpStatus.OK));
+        ResponseEntity<SubTaskView> subTask = restTemplate.exchange("/task/1/subtasks/" + subTaskId,
+                HttpMethod.GET, new HttpEntity<>(headers), SubTaskView.class);
+        assertThat(Objects.requireNonNull(subTask.getBody()).isCompleted(), is(true));
+
+        ResponseEntity<TaskView> task = restTemplate.exchange("/task/1?subTasks=false", HttpMethod.GET,
+                new HttpEntity<>(headers), TaskView.class);
+        assertThat(Objects.requireNonNull(task.getBody()).getSubTasks() == null, is(true));
+        assertThat(TaskETag.expectedVersion(task.getHeaders().getETag(), 1).getAsInt(), is(4));
+
+        ResponseEntity<String> missing = restTemplate.exchange("/task/99/subtasks", HttpMethod.GET,
+                new HttpEntity<>(headers), String.class);
+        assertThat(missing.getStatusCode(), is(HttpStatus.NOT_FOUND));
+    }
+
+    @Test
+    public void whenGetTasksWithFields_thenReturnOnlyThoseFields() {
+        ResponseEntity<String> response = restTemplate.exchange("/task?fields=taskId,description,completed",
+                HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertThat(response.getStatusCode(), is(HttpStatus.OK));
+        assertThat(response.getBody(), is("[{\"taskId\":1,\"description\":\"Test 1\",\"completed\":false}," +
+                "{\"taskId\":2,\"description\":\"Test 2\",\"completed\":false}]"));
+
+        ResponseEntity<String> response2 = restTemplate.exchange("/task/1?fields=taskId,priority",
+                HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertThat(response2.getBody(), is("{\"taskId\":1,\"priority\":\"LOW\"}"));
+        assertThat(Objects.requireNonNull(response2.getHeaders().getETag()).equals("\"1.0\""), is(false));
+    }
+
+    @Test
+    public void whenPollChangesSince_thenReturnChangedAndDeletedTasks() {
+        SyncToken since = SyncToken.of(Instant.now());
+        JSONObject task = new JSONObject();
+        task.put("description", "Task 1");
+        task.put("completed", true);
+        task.put("priority", "HIGH");
+        restTemplate.exchange("/task/1", HttpMethod.PUT, new HttpEntity<>(task.toJSONString(), headers), Void.class);
+        restTemplate.exchange("/task/2", HttpMethod.DELETE, new HttpEntity<>(headers), Void.class);
+        task.put("description", "Task 3");
+        ResponseEntity<String> created = restTemplate
+                .exchange("/task", HttpMethod.POST, new HttpEntity<>(task.toJSONString(), headers), String.class);
+        assertThat(Objects.requireNonNull(created.getBody()).contains("\"created\":null"), is(false));
+
+        ResponseEntity<String> response = restTemplate.exchange("/task?fields=taskId&since=" + since.encode(),
+                HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertThat(response.getStatusCode(), is(HttpStatus.OK));
+        assertThat(response.getBody(), is("{\"tasks\":[{\"taskId\":1},{\"taskId\":3}],\"deleted\":[2],\"more\":false}"));
+
+        ResponseEntity<String> page = restTemplate.exchange("/task?fields=taskId&limit=1&since=" + since.encode(),
+                HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertThat(page.getBody(), is("{\"tasks\":[{\"taskId\":1}],\"deleted\":[],\"more\":true}"));
+        ResponseEntity<String> next = restTemplate.exchange("/task?fields=taskId&limit=1&since="
+                        + page.getHeaders().getFirst("X-Sync-Token"), HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertThat(next.getBody(), is("{\"tasks\":[],\"deleted\":[2],\"more\":true}"));
+
+        ResponseEntity<String> expired = restTemplate.exchange("/task?since="
+                        + SyncToken.of(Instant.now().minusSeconds(30 * 24 * 3600)).encode(),
+                HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertThat(expired.getStatusCode(), is(HttpStatus.GONE));
+    }
+
+    @Test
+    public void whenStreamEvents_thenPushChangesAndResumeAfterLastEventId() throws IOException {
+        try (BufferedReader events = openEvents(null)) {
+            JSONObject task = new JSONObject();
+            task.put("description", "Test 1");
+            task.put("completed", true);
+            task.put("priority", "HIGH");
+            restTemplate.exchange("/task/1", HttpMethod.PUT, new HttpEntity<>(task.toJSONString(), headers), Void.class);
+            restTemplate.exchange("/task/2", HttpMethod.DELETE, new HttpEntity<>(headers), Void.class);
+
+            Map<String, String> updated = nextEvent(events);
+            assertThat(updated.get("event"), is("updated"));
+            assertThat(updated.get("data"),
+                    is("{\"type\":\"UPDATED\",\"taskId\":1,\"version\":1,\"fields\":[\"completed\",\"priority\"]}"));
+            Map<String, String> deleted = nextEvent(events);
+            assertThat(deleted.get("event"), is("deleted"));
+
+            try (BufferedReader resumed = openEvents(updated.get("id"))) {
+                assertThat(nextEvent(resumed).get("id"), is(deleted.get("id")));
+            }
+            try (BufferedReader restarted = openEvents("unknown.1")) {
+                assertThat(nextEvent(restarted).get("event"), is("resync"));
+            }
+        }
+    }
+
+    // Transaction synchronizations run in listener order, so this holds inside transactions as well as without
+    @Test
+    public void whenTaskChanged_thenNotifyTheFeedAfterEveryOtherListener() {
+        Map<String, Integer> orders = applicationContext.getApplicationListeners().stream()
+                .filter(listener -> listener instanceof ApplicationListenerMethodAdapter)
+                .map(listener -> (ApplicationListenerMethodAdapter) listener)
+                .filter(listener -> listener.supportsEventType(ResolvableType.forClass(TaskChangedEvent.class)))
+                .collect(Collectors.toMap(ApplicationListenerMethodAdapter::getListenerId,
+                        ApplicationListenerMethodAdapter::getOrder));
+        String feed = TaskFeed.class.getName() + ".onTaskChanged(" + TaskChangedEvent.class.getName() + ")";
+
+        assertThat(orders.size(), greaterThan(1));
+        orders.forEach((listener, order) -> {
+            if (!listener.equals(feed)) {
+                assertThat(listener, order, lessThan(orders.get(feed)));
+            }
+        });
+    }
+
+    @Test
+    public void whenRefetchOnEvent_thenReadTheVersionTheEventCarries() throws IOException {
+        // Cache the task and a listing of it first, so that a stale cache would answer the re-fetch
+        restTemplate.exchange("/task/1", HttpMethod.GET, new HttpEntity<>(headers), TaskView.class);
+        restTemplate.exchange("/task?priority=HIGH", HttpMethod.GET, new HttpEntity<>(headers), TaskView[].class);
+        try (BufferedReader events = openEvents(null)) {
+            JSONObject task = new JSONObject();
+            task.put("description", "Refetched");
+            task.put("completed", false);
+            task.put("priority", "HIGH");
+            restTemplate.exchange("/task/1", HttpMethod.PUT, new HttpEntity<>(task.toJSONString(), headers), Void.class);
+
+            Map<String, String> updated = nextEvent(events);
+            ResponseEntity<TaskView> refetched = restTemplate.exchange("/task/1", HttpMethod.GET,
+                    new HttpEntity<>(headers), TaskView.class);
+            ResponseEntity<TaskView[]> listed = restTemplate.exchange("/task?priority=HIGH", HttpMethod.GET,
+                    new HttpEntity<>(headers), TaskView[].class);
+
+            assertThat(updated.get("data"), containsString("\"version\":1"));
+            assertThat(Objects.requireNonNull(refetched.getBody()).getVersion(), is(1));
+            assertThat(refetched.getBody().getDescription(), is("Refetched"));
+            assertThat(Arrays.stream(Objects.requireNonNull(listed.getBody()))
+                    .filter(view -> view.getTaskId() == 1)
+                    .map(TaskView::getDescription)
+                    .collect(Collectors.toList()), is(List.of("Refetched")));
+        }
+    }
+
+    @Test
+    public void whenScrapeMetrics_thenExportRequestServicePoolAndHibernateMeters() {
+        restTemplate.exchange("/task/1", HttpMethod.GET, new HttpEntity<>(headers), TaskView.class);
+
+        // No API key: the management port is left out of the check
+        ResponseEntity<String> response = restTemplate
+                .getForEntity("http://localhost:" + managementPort + "/actuator/prometheus", String.class);
+        assertThat(response.getStatusCode(), is(HttpStatus.OK));
+        String scrape = Objects.requireNonNull(response.getBody());
+        assertThat(scrape, containsString("http_server_requests_seconds_bucket{exception=\"None\",method=\"GET\"," +
+                "outcome=\"SUCCESS\",status=\"200\",uri=\"/task/{id}\","));
+        assertThat(scrape, containsString("http_server_requests_seconds{exception=\"None\",method=\"GET\"," +
+                "outcome=\"SUCCESS\",status=\"200\",uri=\"/task/{id}\",quantile=\"0.99\",}"));
+        assertThat(scrape, containsString("task_service_seconds_bucket{exception=\"none\",method=\"getTaskById\","));
+        assertThat(scrape, containsString("task_service_database_seconds_count{exception=\"none\",method=\"getTaskById\",}"));
+        assertThat(scrape, containsString("task_service_statements_sum{exception=\"none\",method=\"getTaskById\",}"));
+        assertThat(scrape, containsString("hikaricp_connections_acquire_seconds_bucket{"));
+        assertThat(scrape, containsString("hikaricp_connections_pending{"));
+        assertThat(scrape, containsString("hibernate_query_executions_total{"));
+        assertThat(scrape, containsString("hibernate_entities_loads_total{"));
+        assertThat(scrape, containsString("hibernate_collections_fetches_total{"));
+        assertThat(scrape, containsString("hibernate_statements_total{"));
+
+        Timer total = meterRegistry.get("task.service").tags("method", "getTaskById").timer();
+        Timer database = meterRegistry.get("task.service.database").tags("method", "getTaskById").timer();
+        assertThat(database.totalTime(TimeUnit.NANOSECONDS), greaterThan(0.0));
+        assertThat(database.totalTime(TimeUnit.NANOSECONDS), lessThanOrEqualTo(total.totalTime(TimeUnit.NANOSECONDS)));
+    }
+
+    // Budgets sit at what each endpoint executes today, so that an extra query per task or subtask fails here. The
+    // search index takes created tasks from the write path, so the batch costs its sequence reads and inserts only.
+    @Test
+    public void whenCallEndpoints_thenStayWithinStatementBudgets() {
+        JSONObject subTask = new JSONObject();
+        subTask.put("description", "Subtask");
+        subTask.put("priority", 1);
+        JSONArray tasks = new JSONArray();
+        for (int i = 0; i < 10; i++) {
+            JSONObject task = new JSONObject();
+            task.put("description", "Task " + i);
+            task.put("priority", "LOW");
+            task.put("subTasks", new JSONArray().appendElement(subTask).appendElement(subTask));
+            tasks.appendElement(task);
+        }
+        ResponseEntity<TaskEntity[]> batch = restTemplate.exchange("/task/batch", HttpMethod.POST,
+                new HttpEntity<>(tasks.toJSONString(), headers), TaskEntity[].class);
+        assertThat(batch.getStatusCode(), is(HttpStatus.OK));
+        assertThat(statementCount(batch), lessThanOrEqualTo(4));
+        int taskId = Objects.requireNonNull(batch.getBody())[0].getTaskId();
+
+        ResponseEntity<TaskEntity> get = restTemplate
+                .exchange("/task/" + taskId, HttpMethod.GET, new HttpEntity<>(headers), TaskEntity.class);
+        assertThat(get.getStatusCode(), is(HttpStatus.OK));
+        assertThat(statementCount(get), lessThanOrEqualTo(2));
+
+        ResponseEntity<TaskView[]> list = restTemplate
+                .exchange("/task?limit=100", HttpMethod.GET, new HttpEntity<>(headers), TaskView[].class);
+        assertThat(list.getStatusCode(), is(HttpStatus.OK));
+        assertThat(Objects.requireNonNull(list.getBody()).length, is(12));
+        assertThat(statementCount(list), lessThanOrEqualTo(2));
+
+        JSONObject update = new JSONObject();
+        update.put("description", "Updated");
+        update.put("completed", true);
+        update.put("priority", "HIGH");
+        ResponseEntity<TaskEntity> put = restTemplate.exchange("/task/" + taskId, HttpMethod.PUT,
+                new HttpEntity<>(update.toJSONString(), headers), TaskEntity.class);
+        assertThat(put.getStatusCode(), is(HttpStatus.OK));
+        assertThat(statementCount(put), lessThanOrEqualTo(4));
+
+        ResponseEntity<Void> delete = restTemplate
+                .exchange("/task/" + taskId, HttpMethod.DELETE, new HttpEntity<>(headers), Void.class);
+        assertThat(delete.getStatusCode().is2xxSuccessful(), is(true));
+        assertThat(statementCount(delete), lessThanOrEqualTo(3));
+    }
+
+    private static int statementCount(ResponseEntity<?> response) {
+        String count = response.getHeaders().getFirst(StatementStatisticsFilter.STATEMENT_COUNT_HEADER);
+        assertThat(response.getHeaders().getFirst(StatementStatisticsFilter.SERVER_TIMING_HEADER),
+                containsString("db;dur="));
+        return Integer.parseInt(Objects.requireNonNull(count));
+    }
+
+    private TaskStatistics getStatistics() {
+        ResponseEntity<TaskStatistics> response = restTemplate.exchange("/task/stats", HttpMethod.GET,
+                new HttpEntity<>(headers), TaskStatistics.class);
+        assertThat(response.getStatusCode(), is(HttpStatus.OK));
+        return Objects.requireNonNull(response.getBody());
+    }
+
+    private BufferedReader openEvents(String lastEventId) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/task/events")
+                .openConnection();
+        connection.setRequestProperty("X-API-KEY", "Guillermo");
+        connection.setRequestProperty(HttpHeaders.ACCEPT, MediaType.TEXT_EVENT_STREAM_VALUE);
+        if (lastEventId != null) {
+            connection.setRequestProperty("Last-Event-ID", lastEventId);
+        }
+        connection.setReadTimeout(10_000);
+        return new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    // Reads up to the next named event, skipping heartbeat comments
+    private static Map<String, String> nextEvent(BufferedReader reader) throws IOException {
+        Map<String, String> event = new HashMap<>();
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            if (line.isEmpty() && event.containsKey("event")) {
+                return event;
+            }
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                event.put(line.substring(0, colon), line.substring(colon + 1));
+            }
+        }
+        throw new EOFException();
+    }
 }
@@ -0,0 +1,104 @@
+package com.example.demo.metrics;
+
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+
+public class StatementListenerTest {
+
+    private Connection connection;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:statements");
+        DataSource dataSource = ProxyDataSourceBuilder.create(h2)
+                .listener(new StatementListener(Duration.ofMinutes(1)))
+                .build();
+        connection = dataSource.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE task (id INT PRIMARY KEY, description VARCHAR(50))");
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        StatementListener.endRequest();
+        connection.close();
+    }
+
+    @Test
+    public void whenExecuteStatements_thenCountThemForTheThread() throws SQLException {
+        long statements = StatementListener.statements();
+        long elapsedNanos = StatementListener.elapsedNanos();
+
+        insert(1, "Task 1");
+        insert(2, "Task 2");
+
+        assertThat(StatementListener.statements() - statements, is(2L));
+        assertThat(StatementListener.elapsedNanos(), greaterThan(elapsedNanos));
+    }
+
+    @Test
+    public void whenRequestRecorded_thenCountShapesWhateverTheirArguments() throws SQLException {
+        insert(1, "Task 1");
+        RequestStatements request = new RequestStatements();
+        StatementListener.startRequest(request);
+
+        insert(2, "Task 2");
+        insert(3, "Task 3");
+        try (Statement statement = connection.createStatement()) {
+            statement.executeQuery("SELECT * FROM task WHERE id IN (1, 2)").close();
+            statement.executeQuery("SELECT  *\n FROM task WHERE id IN (1, 2, 3) AND description <> 'Task 1'").close();
+        }
+        StatementListener.endRequest();
+        insert(4, "Task 4");
+
+        assertThat(request.getStatements(), is(4L));
+        assertThat(request.getElapsedNanos(), greaterThan(0L));
+        Map<String, Long> shapes = request.getShapeCounts();
+        assertThat(shapes.size(), is(3));
+        assertThat(shapes, hasEntry("INSERT INTO task (id, description) VALUES (?, ?)", 2L));
+        assertThat(shapes, hasEntry("SELECT * FROM task WHERE id IN (...)", 1L));
+        assertThat(shapes, hasEntry("SELECT * FROM task WHERE id IN (...) AND description <> ?", 1L));
+        assertThat(request.describeTopShapes(1), contains(startsWith("2 x ")));
+    }
+
+    @Test
+    public void whenTooManyShapes_thenCountTheRestTogether() {
+        RequestStatements request = new RequestStatements();
+        for (int i = 0; i < RequestStatements.MAX_SHAPES + 10; i++) {
+            request.add("SELECT * FROM task_" + (char) ('a' + i % 26) + (char) ('a' + i / 26), 1);
+        }
+
+        assertThat(request.getStatements(), is(RequestStatements.MAX_SHAPES + 10L));
+        assertThat(request.getShapeCounts().size(), is(RequestStatements.MAX_SHAPES + 1));
+        assertThat(request.getShapeCounts(), hasEntry(RequestStatements.OTHER_SHAPES, 10L));
+    }
+
+    private void insert(int id, String description) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO task (id, description) VALUES (?, ?)")) {
+            statement.setInt(1, id);
+            statement.setString(2, description);
+            statement.executeUpdate();
+        }
+    }
+}
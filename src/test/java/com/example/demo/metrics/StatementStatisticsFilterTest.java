@@ -0,0 +1,85 @@
+package com.example.demo.metrics;
+
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class StatementStatisticsFilterTest {
+
+    private MockMvc server;
+
+    @BeforeEach
+    public void setUp() {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:filter");
+        DataSource dataSource = ProxyDataSourceBuilder.create(h2)
+                .listener(new StatementListener(Duration.ofMinutes(1)))
+                .build();
+        server = MockMvcBuilders.standaloneSetup(new AsyncController(dataSource))
+                .addFilters(new StatementStatisticsFilter(50, Duration.ofSeconds(5), true))
+                .build();
+    }
+
+    @Test
+    public void whenRequestRunsAsync_thenCountTheCallablesStatementsToo() throws Exception {
+        MvcResult result = server.perform(get("/async"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        server.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(StatementStatisticsFilter.STATEMENT_COUNT_HEADER, "3"));
+        RequestStatements statements = (RequestStatements) result.getRequest()
+                .getAttribute(StatementStatisticsFilter.STATEMENTS_ATTRIBUTE);
+        assertThat(statements.getStatements(), is(3L));
+    }
+
+    @RestController
+    static class AsyncController {
+
+        private final DataSource dataSource;
+
+        AsyncController(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        // One statement on the request's thread and two on the thread running the callable
+        @GetMapping("/async")
+        public Callable<String> async() throws SQLException {
+            select();
+            return () -> {
+                select();
+                select();
+                return "done";
+            };
+        }
+
+        private void select() throws SQLException {
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.executeQuery("SELECT 1").close();
+            }
+        }
+    }
+}
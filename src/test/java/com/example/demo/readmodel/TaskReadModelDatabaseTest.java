@@ -0,0 +1,110 @@
+package com.example.demo.readmodel;
+
+import com.example.demo.repository.TaskRepository;
+import com.example.demo.util.SortDirection;
+import com.example.demo.util.SortField;
+import com.example.demo.util.TaskCursor;
+import com.example.demo.view.TaskView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.example.demo.service.TaskService.filterSpecification;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class TaskReadModelDatabaseTest {
+
+    private static final int TASKS = 10_000;
+    private static final int PAGE_SIZE = 97;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private TaskReadModel taskReadModel;
+
+    // Creation times repeat and some are missing, so that ties and nulls are ordered as the database orders them
+    @BeforeEach
+    void setUp() {
+        entityManager.getEntityManager()
+                .createNativeQuery("INSERT INTO task_entity (task_id, description, completed, priority, created) " +
+                        "SELECT X + 1000000, 'Task ' || X, MOD(X, 2) = 0, " +
+                        "CASE MOD(X, 3) WHEN 0 THEN 'LOW' WHEN 1 THEN 'MEDIUM' ELSE 'HIGH' END, " +
+                        "CASE WHEN MOD(X, 50) = 0 THEN NULL " +
+                        "ELSE DATEADD(SECOND, MOD(X * 7919, 1000), TIMESTAMP '2024-01-01 00:00:00') END " +
+                        "FROM SYSTEM_RANGE(1, " + TASKS + ")")
+                .executeUpdate();
+
+        taskReadModel = new TaskReadModel(taskRepository, true);
+        taskReadModel.load();
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "                             | created  | ASC",
+            "priority=HIGH                | created  | DESC",
+            "completed=true               | priority | ASC",
+            "priority=HIGH;completed=true | created  | ASC",
+            "completed=false              | priority | DESC"
+    })
+    void whenListAndPage_thenMatchTheDatabaseOrder(String filterParams, String sortField, Sort.Direction direction) {
+        Map<String, String> filter = new HashMap<>();
+        if (filterParams != null) {
+            for (String param : filterParams.split(";")) {
+                String[] pair = param.split("=");
+                filter.put(pair[0], pair[1]);
+            }
+        }
+        Sort sort = Sort.by(direction, sortField).and(Sort.by(direction, "taskId"));
+        List<TaskView> listed = taskRepository.findViews(filterSpecification(filter), sort, -1,
+                TaskReadModel.ROW_FIELDS);
+        List<Integer> listedIds = listed.stream().map(TaskView::getTaskId).collect(Collectors.toList());
+
+        assertThat(boxed(taskReadModel.getTaskIds(filter, Sort.by(direction, sortField)).orElseThrow()),
+                is(listedIds));
+        assertThat(pageThrough(filter, sort, listed, SortField.valueOf(sortField.toUpperCase()),
+                SortDirection.valueOf(direction.name())), is(listedIds));
+    }
+
+    // Follows the cursors from page to page and joins the pages
+    private List<Integer> pageThrough(Map<String, String> filter, Sort sort, List<TaskView> listed,
+                                      SortField sortField, SortDirection sortDirection) {
+        Map<Integer, TaskView> byId = listed.stream()
+                .collect(Collectors.toMap(TaskView::getTaskId, Function.identity()));
+        List<Integer> paged = new ArrayList<>();
+        TaskCursor cursor = null;
+        int[] page;
+        do {
+            page = taskReadModel.getTaskIds(filter, sort, cursor, PAGE_SIZE).orElseThrow();
+            paged.addAll(boxed(page));
+            if (page.length > 0) {
+                cursor = TaskCursor.after(byId.get(page[page.length - 1]), sortField, sortDirection);
+            }
+        } while (page.length == PAGE_SIZE);
+        return paged;
+    }
+
+    private static List<Integer> boxed(int[] ids) {
+        return Arrays.stream(ids).boxed().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.demo.readmodel;
+
+import com.example.demo.entity.TaskPriority;
+import com.example.demo.event.TaskChangedEvent;
+import com.example.demo.repository.TaskRepository;
+import com.example.demo.util.SortDirection;
+import com.example.demo.util.SortField;
+import com.example.demo.util.TaskCursor;
+import com.example.demo.util.TaskField;
+import com.example.demo.view.TaskView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Sort;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class TaskReadModelTest {
+
+    @Mock
+    TaskRepository taskRepository;
+
+    TaskReadModel taskReadModel;
+
+    @BeforeEach
+    void setUp() {
+        taskReadModel = new TaskReadModel(taskRepository, true);
+        when(taskRepository.findViews(any(), any(), eq(TaskReadModel.LOAD_CHUNK_SIZE), eq(TaskReadModel.ROW_FIELDS))).thenReturn(List.of(
+                buildView(1, false, TaskPriority.HIGH, 300, 0),
+                buildView(2, true, TaskPriority.LOW, 100, 0),
+                buildView(3, false, TaskPriority.LOW, 200, 0),
+                buildView(4, true, TaskPriority.HIGH, 100, 0),
+                buildView(5, false, TaskPriority.MEDIUM, null, 0)));
+        taskReadModel.load();
+    }
+
+    @Test
+    void whenNotLoaded_thenLeaveListingsToTheDatabase() {
+        TaskReadModel notLoaded = new TaskReadModel(taskRepository, true);
+
+        assertThat(notLoaded.getTaskIds(Map.of(), Sort.by("priority")).isPresent(), is(false));
+    }
+
+    @Test
+    void whenListByPriority_thenOrderByPriorityAndTaskId() {
+        assertThat(ids(Map.of(), Sort.by("priority")), is(List.of(2, 3, 5, 1, 4)));
+        assertThat(ids(Map.of(), Sort.by(Sort.Direction.DESC, "priority")), is(List.of(4, 1, 5, 3, 2)));
+    }
+
+    @Test
+    void whenListByCreated_thenOrderByCreatedAndTaskIdWithMissingTimestampsFirst() {
+        assertThat(ids(Map.of(), Sort.by("created")), is(List.of(5, 2, 4, 3, 1)));
+        assertThat(ids(Map.of(), Sort.by(Sort.Direction.DESC, "created")), is(List.of(1, 3, 4, 2, 5)));
+    }
+
+    @Test
+    void whenFilter_thenListOnlyMatchingTasks() {
+        assertThat(ids(Map.of("priority", "LOW"), Sort.by("created")), is(List.of(2, 3)));
+        assertThat(ids(Map.of("completed", "true"), Sort.by("priority")), is(List.of(2, 4)));
+        assertThat(ids(Map.of("completed", "false"), Sort.by("created")), is(List.of(5, 3, 1)));
+        assertThat(ids(Map.of("priority", "HIGH", "completed", "false"), Sort.by("created")), is(List.of(1)));
+    }
+
+    @Test
+    void whenPaged_thenStartAfterTheCursorAndStopAtTheLimit() {
+        Sort byPriority = Sort.by("priority").and(Sort.by("taskId"));
+        Sort byCreatedDesc = Sort.by(Sort.Direction.DESC, "created").and(Sort.by(Sort.Direction.DESC, "taskId"));
+
+        assertThat(page(Map.of(), byPriority, null, 2), is(List.of(2, 3)));
+        assertThat(page(Map.of(), byPriority, cursor(3, TaskPriority.LOW, 200, SortField.PRIORITY, SortDirection.ASC), 2),
+                is(List.of(5, 1)));
+        assertThat(page(Map.of("completed", "true"), byPriority,
+                cursor(2, TaskPriority.LOW, 100, SortField.PRIORITY, SortDirection.ASC), 5), is(List.of(4)));
+        assertThat(page(Map.of(), byCreatedDesc, cursor(4, TaskPriority.HIGH, 100, SortField.CREATED, SortDirection.DESC), 5),
+                is(List.of(2, 5)));
+        assertThat(page(Map.of(), Sort.by("created").and(Sort.by("taskId")),
+                cursor(5, TaskPriority.MEDIUM, null, SortField.CREATED, SortDirection.ASC), 1), is(List.of(2)));
+    }
+
+    @Test
+    void whenPageCursorTaskWasDeleted_thenStartWhereItWas() {
+        taskReadModel.onTaskChanged(new TaskChangedEvent(TaskChangedEvent.Type.DELETED, 3, 0, Set.of()));
+
+        assertThat(page(Map.of(), Sort.by("priority").and(Sort.by("taskId")),
+                cursor(3, TaskPriority.LOW, 200, SortField.PRIORITY, SortDirection.ASC), 5), is(List.of(5, 1, 4)));
+    }
+
+    @Test
+    void whenSortedByAnotherTieBreak_thenLeaveItToTheDatabase() {
+        assertThat(taskReadModel.getTaskIds(Map.of(), Sort.by("priority").and(Sort.by(Sort.Direction.DESC, "taskId")),
+                null, 5).isPresent(), is(false));
+    }
+
+    @Test
+    void whenFilterByUnknownPriority_thenThrow() {
+        assertThrows(IllegalArgumentException.class,
+                () -> taskReadModel.getTaskIds(Map.of("priority", "URGENT"), Sort.by("created")));
+    }
+
+    @Test
+    void whenTaskUpdated_thenRefilterAndReorderIt() {
+        taskReadModel.onTasksWritten(List.of(buildView(3, true, TaskPriority.HIGH, 200, 1)));
+
+        assertThat(ids(Map.of("priority", "LOW"), Sort.by("created")), is(List.of(2)));
+        assertThat(ids(Map.of("priority", "HIGH", "completed", "true"), Sort.by("created")), is(List.of(4, 3)));
+    }
+
+    @Test
+    void whenOlderVersionArrivesLate_thenKeepTheNewerOne() {
+        taskReadModel.onTasksWritten(List.of(buildView(3, true, TaskPriority.LOW, 200, 2)));
+        taskReadModel.onTasksWritten(List.of(buildView(3, false, TaskPriority.LOW, 200, 1)));
+
+        assertThat(ids(Map.of("completed", "true"), Sort.by("created")), is(List.of(2, 4, 3)));
+    }
+
+    @Test
+    void whenTaskCreatedAndDeleted_thenAddAndDropIt() {
+        taskReadModel.onTasksWritten(List.of(buildView(6, false, TaskPriority.LOW, 50, 0)));
+        taskReadModel.onTaskChanged(new TaskChangedEvent(TaskChangedEvent.Type.DELETED, 2, 0, Set.of()));
+
+        assertThat(ids(Map.of("priority", "LOW"), Sort.by("created")), is(List.of(6, 3)));
+        assertThat(taskReadModel.size(), is(5));
+    }
+
+    @Test
+    void whenDeletedTaskIsReadAfterItsDeletion_thenDoNotBringItBack() {
+        taskReadModel.onTaskChanged(new TaskChangedEvent(TaskChangedEvent.Type.DELETED, 2, 0, Set.of()));
+        taskReadModel.onTasksWritten(List.of(buildView(2, false, TaskPriority.LOW, 100, 1)));
+
+        assertThat(ids(Map.of("priority", "LOW"), Sort.by("created")), is(List.of(3)));
+    }
+
+    @Test
+    void whenBulkWrite_thenReloadEverything() throws Exception {
+        when(taskRepository.findViews(any(), any(), eq(TaskReadModel.LOAD_CHUNK_SIZE), eq(TaskReadModel.ROW_FIELDS)))
+                .thenReturn(List.of(buildView(1, true, TaskPriority.HIGH, 300, 1)));
+
+        taskReadModel.onTaskChanged(TaskChangedEvent.bulk(TaskChangedEvent.Type.BULK_UPDATED, Set.of(TaskField.COMPLETED)));
+        for (int i = 0; i < 500 && taskReadModel.size() != 1; i++) {
+            Thread.sleep(10);
+        }
+
+        assertThat(ids(Map.of("completed", "true"), Sort.by("created")), is(List.of(1)));
+    }
+
+    @Test
+    void whenDisabled_thenIgnoreWritesAndAnswerNothing() {
+        TaskReadModel disabled = new TaskReadModel(taskRepository, false);
+
+        disabled.onApplicationReady();
+        disabled.onTaskChanged(new TaskChangedEvent(TaskChangedEvent.Type.DELETED, 1, 0, Set.of()));
+
+        assertThat(disabled.getTaskIds(Map.of(), Sort.by("created")).isPresent(), is(false));
+    }
+
+    @Test
+    void whenWrittenWhileLoading_thenKeepTheWritesOverOlderChunks() {
+        when(taskRepository.findViews(any(), any(), eq(TaskReadModel.LOAD_CHUNK_SIZE), eq(TaskReadModel.ROW_FIELDS)))
+                .thenAnswer(invocation -> {
+                    taskReadModel.onTasksWritten(List.of(buildView(1, true, TaskPriority.LOW, 300, 1)));
+                    taskReadModel.onTaskChanged(new TaskChangedEvent(TaskChangedEvent.Type.DELETED, 2, 0, Set.of()));
+                    return List.of(buildView(1, false, TaskPriority.HIGH, 300, 0),
+                            buildView(2, true, TaskPriority.LOW, 100, 0));
+                });
+
+        taskReadModel.load();
+
+        assertThat(ids(Map.of(), Sort.by("priority")), is(List.of(1)));
+        assertThat(ids(Map.of("completed", "true"), Sort.by("created")), is(List.of(1)));
+    }
+
+    @Test
+    void whenManyWrites_thenKeepBothOrdersAsAFullSortWould() {
+        Random random = new Random(42);
+        Map<Integer, TaskView> tasks = new HashMap<>();
+        Set<Integer> deleted = new HashSet<>();
+        for (int id = 1; id <= 5; id++) {
+            taskReadModel.onTaskChanged(new TaskChangedEvent(TaskChangedEvent.Type.DELETED, id, 0, Set.of()));
+        }
+        for (int i = 0; i < 2000; i++) {
+            int id = 10 + random.nextInt(300);
+            if (random.nextInt(20) == 0) {
+                taskReadModel.onTaskChanged(new TaskChangedEvent(TaskChangedEvent.Type.DELETED, id, 0, Set.of()));
+                tasks.remove(id);
+                deleted.add(id);
+                continue;
+            }
+            TaskView previous = tasks.get(id);
+            TaskPriority priority = TaskPriority.values()[random.nextInt(TaskPriority.values().length)];
+            Integer createdSecond = random.nextInt(20) == 0 ? null : random.nextInt(50);
+            TaskView task = buildView(id, random.nextBoolean(), priority, createdSecond,
+                    previous == null ? 0 : previous.getVersion() + 1);
+            taskReadModel.onTasksWritten(List.of(task));
+            if (!deleted.contains(id)) {
+                tasks.put(id, task);
+            }
+        }
+
+        assertThat(ids(Map.of(), Sort.by("priority")), is(tasks.values().stream()
+                .sorted(Comparator.comparing(TaskView::getPriority).thenComparing(TaskView::getTaskId))
+                .map(TaskView::getTaskId)
+                .collect(Collectors.toList())));
+        assertThat(ids(Map.of("completed", "false"), Sort.by(Sort.Direction.DESC, "created")), is(tasks.values().stream()
+                .filter(task -> !task.isCompleted())
+                .sorted(Comparator.comparing((TaskView task) -> TaskReadModel.micros(task.getCreated()))
+                        .thenComparing(TaskView::getTaskId).reversed())
+                .map(TaskView::getTaskId)
+                .collect(Collectors.toList())));
+        assertThat(taskReadModel.size(), is(tasks.size()));
+    }
+
+    private List<Integer> ids(Map<String, String> filter, Sort sort) {
+        return Arrays.stream(taskReadModel.getTaskIds(filter, sort).orElseThrow()).boxed().collect(Collectors.toList());
+    }
+
+    private List<Integer> page(Map<String, String> filter, Sort sort, TaskCursor cursor, int limit) {
+        return Arrays.stream(taskReadModel.getTaskIds(filter, sort, cursor, limit).orElseThrow())
+                .boxed()
+                .collect(Collectors.toList());
+    }
+
+    private TaskCursor cursor(int taskId, TaskPriority priority, Integer createdSecond, SortField sortField,
+                              SortDirection sortDirection) {
+        return TaskCursor.after(buildView(taskId, false, priority, createdSecond, 0), sortField, sortDirection);
+    }
+
+    private TaskView buildView(int taskId, boolean completed, TaskPriority priority, Integer createdSecond, int version) {
+        Timestamp created = createdSecond == null ? null : new Timestamp(createdSecond * 1000L);
+        return new TaskView(taskId, "Task " + taskId, completed, priority, created, created, version, List.of());
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.SubTaskEntity;
+import com.example.demo.entity.TaskEntity;
+import com.example.demo.entity.TaskPriority;
+import com.example.demo.util.TaskCounts;
+import com.example.demo.util.TaskField;
+import com.example.demo.view.TaskView;
+import com.sun.management.ThreadMXBean;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.persistence.EntityManagerFactory;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class TaskRepositoryTest {
+
+    private static final int TASKS = 250;
+    private static final int SUB_TASKS_PER_TASK = 3;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 20;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private int firstTaskId;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < TASKS; i++) {
+            TaskEntity task = entityManager.persist(new TaskEntity("Task " + i, false, TaskPriority.LOW, null));
+            if (i == 0) {
+                firstTaskId = task.getTaskId();
+            }
+            for (int j = 0; j < SUB_TASKS_PER_TASK; j++) {
+                entityManager.persist(new SubTaskEntity(0, "Subtask " + j, false, 0, j, task));
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void whenListTasks_thenLoadSubTasksInBatches() {
+        List<TaskEntity> tasks = taskRepository.findAll(Sort.by("taskId"));
+        int subTasks = tasks.stream().mapToInt(task -> task.getSubTasks().size()).sum();
+
+        int expectedTasks = TASKS + 2;
+        assertThat(tasks.size(), is(expectedTasks));
+        assertThat(subTasks, is(TASKS * SUB_TASKS_PER_TASK));
+        int batches = (expectedTasks + TaskEntity.SUB_TASK_BATCH_SIZE - 1) / TaskEntity.SUB_TASK_BATCH_SIZE;
+        assertThat(statistics.getPrepareStatementCount(), is(1L + batches));
+    }
+
+    @Test
+    void whenListTaskViews_thenUseTwoStatementsAndNoManagedEntities() {
+        List<TaskView> views = taskRepository.findViews(null, Sort.by("taskId"));
+
+        assertThat(views.size(), is(TASKS + 2));
+        assertThat(views.get(2).getSubTasks().size(), is(SUB_TASKS_PER_TASK));
+        assertThat(statistics.getPrepareStatementCount(), is(2L));
+        assertThat(statistics.getEntityLoadCount(), is(0L));
+    }
+
+    @Test
+    void whenListTaskViewsWithoutSubTasks_thenUseOneStatementAndSelectOnlyRequestedColumns() {
+        List<TaskView> views = taskRepository.findViews(null, Sort.by("taskId"), -1,
+                EnumSet.of(TaskField.TASK_ID, TaskField.COMPLETED));
+
+        assertThat(views.size(), is(TASKS + 2));
+        assertThat(views.get(2).getDescription() == null, is(true));
+        assertThat(views.get(2).getPriority() == null, is(true));
+        assertThat(views.get(2).getSubTasks() == null, is(true));
+        assertThat(statistics.getPrepareStatementCount(), is(1L));
+    }
+
+    @Test
+    void whenListTaskViews_thenAllocateLessThanEntities() {
+        long entityBytes = allocatedBytes(() -> taskRepository.findAll(Sort.by("taskId"))
+                .forEach(task -> task.getSubTasks().size()));
+        long viewBytes = allocatedBytes(() -> taskRepository.findViews(null, Sort.by("taskId")));
+
+        assertThat(viewBytes, lessThan(entityBytes));
+    }
+
+    @Test
+    void whenGetTaskById_thenLoadSubTasksInOneStatement() {
+        TaskEntity task = taskRepository.findById(firstTaskId).orElseThrow();
+
+        assertThat(task.getSubTasks().size(), is(SUB_TASKS_PER_TASK));
+        assertThat(statistics.getPrepareStatementCount(), is(1L));
+    }
+
+    @Test
+    void whenDeleteTaskById_thenUseOneStatementAndCascadeInDatabase() {
+        int taskId = firstTaskId;
+        int deleted = taskRepository.deleteTaskById(taskId);
+
+        assertThat(deleted, is(1));
+        assertThat(statistics.getPrepareStatementCount(), is(1L));
+        assertThat(taskRepository.findViewById(taskId).isPresent(), is(false));
+        assertThat(entityManager.getEntityManager()
+                .createQuery("select count(s) from SubTaskEntity s where s.taskId = :taskId", Long.class)
+                .setParameter("taskId", taskId)
+                .getSingleResult(), is(0L));
+        assertThat(taskRepository.deleteTaskById(taskId), is(0));
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "priority = 'HIGH'                      | priority, task_id | IDX_TASK_PRIORITY",
+            "priority = 'HIGH'                      | created, task_id  | IDX_TASK_PRIORITY_CREATED",
+            "completed = TRUE                       | priority, task_id | IDX_TASK_COMPLETED_PRIORITY",
+            "completed = TRUE                       | created, task_id  | IDX_TASK_COMPLETED_CREATED",
+            "priority = 'HIGH' AND completed = TRUE | created, task_id  | IDX_TASK_PRIORITY_COMPLETED_CREATED"
+    })
+    void whenListTaskIds_thenPlanUsesCompositeIndex(String filter, String order, String index) {
+        // Spread the rows over priorities, states and timestamps so the optimizer sees realistic selectivity
+        entityManager.getEntityManager()
+                .createNativeQuery("INSERT INTO task_entity (task_id, description, completed, priority, created) " +
+                        "SELECT X + 1000000, 'Task ' || X, MOD(X, 2) = 0, " +
+                        "CASE MOD(X, 3) WHEN 0 THEN 'LOW' WHEN 1 THEN 'MEDIUM' ELSE 'HIGH' END, " +
+                        "DATEADD(SECOND, X, TIMESTAMP '2024-01-01 00:00:00') FROM SYSTEM_RANGE(1, 5000)")
+                .executeUpdate();
+
+        String plan = (String) entityManager.getEntityManager()
+                .createNativeQuery("EXPLAIN SELECT task_id FROM task_entity WHERE " + filter + " ORDER BY " + order)
+                .getSingleResult();
+
+        assertThat(plan, containsString("PUBLIC." + index + ":"));
+    }
+
+    @Test
+    void whenCountTasks_thenGroupByPriorityAndCompletionAndCountSubTasksOfMatchingTasks() {
+        TaskEntity done = entityManager.persist(new TaskEntity("Done", true, TaskPriority.HIGH, null));
+        entityManager.persist(new SubTaskEntity(0, "Done subtask", true, 0, 0, done));
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        TaskCounts all = taskRepository.countTasks(null);
+        TaskCounts high = taskRepository.countTasks((root, query, criteriaBuilder) ->
+                criteriaBuilder.equal(root.get("priority"), TaskPriority.HIGH));
+
+        assertThat(all.getTasks(TaskPriority.LOW, false), is((long) TASKS + 1));
+        assertThat(all.getTasks(TaskPriority.HIGH, true), is(1L));
+        assertThat(all.getSubTasks(), is((long) TASKS * SUB_TASKS_PER_TASK + 1));
+        assertThat(all.getCompletedSubTasks(), is(1L));
+        assertThat(high, is(new TaskCounts()
+                .addTasks(TaskPriority.HIGH, false, 1)
+                .addTasks(TaskPriority.HIGH, true, 1)
+                .addSubTasks(1, 1)));
+        assertThat(statistics.getPrepareStatementCount(), is(4L));
+    }
+
+    @Test
+    void whenCountTask_thenCountItAndItsSubTasksInOneStatement() {
+        TaskEntity done = entityManager.persist(new TaskEntity("Done", true, TaskPriority.HIGH, null));
+        entityManager.persist(new SubTaskEntity(0, "Done subtask", true, 0, 0, done));
+        entityManager.persist(new SubTaskEntity(0, "Open subtask", false, 0, 1, done));
+        TaskEntity empty = entityManager.persist(new TaskEntity("Empty", false, TaskPriority.LOW, null));
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        TaskCounts counts = taskRepository.countTask(done.getTaskId());
+
+        assertThat(counts, is(new TaskCounts().addTasks(TaskPriority.HIGH, true, 1).addSubTasks(2, 1)));
+        assertThat(statistics.getPrepareStatementCount(), is(1L));
+        assertThat(taskRepository.countTask(empty.getTaskId()), is(new TaskCounts().addTasks(TaskPriority.LOW, false, 1)));
+        assertThat(taskRepository.countTask(-1), is(new TaskCounts()));
+    }
+
+    @Test
+    void whenInsertAll_thenBatchInserts() {
+        List<TaskEntity> tasks = new ArrayList<>();
+        for (int i = 0; i < TASKS; i++) {
+            TaskEntity task = new TaskEntity("Batch " + i, false, TaskPriority.MEDIUM, new HashSet<>());
+            for (int j = 0; j < SUB_TASKS_PER_TASK; j++) {
+                task.getSubTasks().add(new SubTaskEntity(0, "Subtask " + j, false, 0, j, task));
+            }
+            tasks.add(task);
+        }
+
+        taskRepository.insertAll(tasks);
+
+        long rows = TASKS + (long) TASKS * SUB_TASKS_PER_TASK;
+        assertThat(statistics.getEntityInsertCount(), is(rows));
+        assertThat(statistics.getPrepareStatementCount() < rows / 10, is(true));
+        assertThat(tasks.get(0).getSubTasks().iterator().next().getTaskId(), is(tasks.get(0).getTaskId()));
+        assertThat(taskRepository.findViewById(tasks.get(TASKS - 1).getTaskId()).orElseThrow().getSubTasks().size(),
+                is(SUB_TASKS_PER_TASK));
+    }
+
+    private long allocatedBytes(Runnable read) {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            read.run();
+            entityManager.clear();
+        }
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            read.run();
+            entityManager.clear();
+        }
+        return (threads.getThreadAllocatedBytes(threadId) - before) / MEASURED_ROUNDS;
+    }
+}
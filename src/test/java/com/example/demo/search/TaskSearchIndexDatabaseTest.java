@@ -0,0 +1,92 @@
+package com.example.demo.search;
+
+import com.example.demo.entity.TaskEntity;
+import com.example.demo.repository.TaskRepository;
+import com.example.demo.util.TaskField;
+import com.example.demo.view.TaskView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class TaskSearchIndexDatabaseTest {
+
+    private static final int TASKS = 10_000;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private TaskSearchIndex taskSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        entityManager.getEntityManager()
+                .createNativeQuery("INSERT INTO task_entity (task_id, description, completed, priority) " +
+                        "SELECT X + 1000000, " +
+                        "CASE MOD(X, 5) WHEN 0 THEN 'Buy' WHEN 1 THEN 'Call' WHEN 2 THEN 'Fix' WHEN 3 THEN 'Plan' " +
+                        "ELSE 'Review' END || ' ' || " +
+                        "CASE MOD(X, 7) WHEN 0 THEN 'milk' WHEN 1 THEN 'printer' WHEN 2 THEN 'report' " +
+                        "WHEN 3 THEN 'budget' WHEN 4 THEN 'meeting' WHEN 5 THEN 'garden' ELSE 'invoice' END || " +
+                        "' for client ' || MOD(X * 7919, 1000), " +
+                        "MOD(X, 2) = 0, CASE MOD(X, 3) WHEN 0 THEN 'LOW' WHEN 1 THEN 'MEDIUM' ELSE 'HIGH' END " +
+                        "FROM SYSTEM_RANGE(1, " + TASKS + ")")
+                .executeUpdate();
+
+        taskSearchIndex = new TaskSearchIndex(taskRepository, true);
+        taskSearchIndex.build();
+    }
+
+    // The seeded words never start one another, so whole-word and prefix matches find what a LIKE scan does
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "milk       | milk     |          | ",
+            "fix report | fix      | report   | ",
+            "invoice    | invoice  |          | true",
+            "buy garden | buy      | garden   | false"
+    })
+    void whenSearch_thenFindTheTasksALikeScanFinds(String query, String first, String second, Boolean completed) {
+        Specification<TaskEntity> like = contains(first);
+        if (second != null) {
+            like = like.and(contains(second));
+        }
+        Map<String, String> filter = Map.of();
+        if (completed != null) {
+            like = like.and((root, criteriaQuery, criteriaBuilder) -> criteriaBuilder.equal(root.get("completed"), completed));
+            filter = Map.of("completed", completed.toString());
+        }
+
+        Set<Integer> scanned = taskRepository.findViews(like, Sort.unsorted(), -1, Set.of(TaskField.TASK_ID)).stream()
+                .map(TaskView::getTaskId)
+                .collect(Collectors.toSet());
+
+        assertThat(scanned, is(not(empty())));
+        assertThat(new HashSet<>(taskSearchIndex.search(query, filter, TASKS).orElseThrow()), is(scanned));
+    }
+
+    private static Specification<TaskEntity> contains(String word) {
+        return (root, criteriaQuery, criteriaBuilder) ->
+                criteriaBuilder.like(criteriaBuilder.lower(root.get("description")), "%" + word + "%");
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.demo.search;
+
+import com.example.demo.entity.TaskPriority;
+import com.example.demo.event.TaskChangedEvent;
+import com.example.demo.repository.TaskRepository;
+import com.example.demo.util.TaskField;
+import com.example.demo.view.SubTaskView;
+import com.example.demo.view.TaskView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class TaskSearchIndexTest {
+
+    @Mock
+    TaskRepository taskRepository;
+
+    TaskSearchIndex taskSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        taskSearchIndex = new TaskSearchIndex(taskRepository, true);
+        when(taskRepository.findViews(any(), any(), eq(TaskSearchIndex.LOAD_CHUNK_SIZE), eq(TaskField.ALL))).thenReturn(List.of(
+                buildView(1, "Buy milk and bread", false, TaskPriority.HIGH, 0),
+                buildView(2, "Write the quarterly report", true, TaskPriority.LOW, 0, "Collect bread receipts"),
+                buildView(3, "Bake bread, then more bread", false, TaskPriority.LOW, 0),
+                buildView(4, "Report the broken printer", false, TaskPriority.MEDIUM, 0, "Call the printer vendor")));
+        taskSearchIndex.build();
+    }
+
+    @Test
+    void whenNotBuilt_thenAnswerNothing() {
+        TaskSearchIndex notBuilt = new TaskSearchIndex(taskRepository, true);
+
+        assertThat(notBuilt.search("bread", Map.of(), 10).isPresent(), is(false));
+    }
+
+    @Test
+    void whenSplitIntoWords_thenLowerCaseLettersAndDigits() {
+        assertThat(TaskSearchIndex.words("Call ACME-Corp, re: invoice #42!"),
+                is(List.of("call", "acme", "corp", "re", "invoice", "42")));
+        assertThat(TaskSearchIndex.words("  ,, "), is(List.of()));
+    }
+
+    @Test
+    void whenSearch_thenRankByWeightThenTaskId() {
+        // Task 3 says bread twice, task 1 once, and task 2 only in a subtask
+        assertThat(search("bread", Map.of()), is(List.of(3, 1, 2)));
+        assertThat(search("BREAD", Map.of()), is(List.of(3, 1, 2)));
+    }
+
+    @Test
+    void whenSearchSeveralWords_thenMatchTasksHoldingEveryWord() {
+        assertThat(search("printer report", Map.of()), is(List.of(4)));
+        assertThat(search("bread printer", Map.of()), is(List.of()));
+    }
+
+    @Test
+    void whenSearchPrefix_thenMatchLongerWordsBelowExactOnes() {
+        taskSearchIndex.onTasksWritten(List.of(buildView(5, "Reports", false, TaskPriority.LOW, 0)));
+
+        assertThat(search("report", Map.of()), is(List.of(2, 4, 5)));
+        assertThat(search("repo", Map.of()), is(List.of(5, 2, 4)));
+    }
+
+    @Test
+    void whenFilter_thenKeepMatchingPriorityAndCompletion() {
+        assertThat(search("bread", Map.of("priority", "LOW")), is(List.of(3, 2)));
+        assertThat(search("bread", Map.of("completed", "true")), is(List.of(2)));
+        assertThat(search("bread", Map.of("priority", "LOW", "completed", "false")), is(List.of(3)));
+    }
+
+    @Test
+    void whenFilterByUnknownPriority_thenThrow() {
+        assertThrows(IllegalArgumentException.class,
+                () -> taskSearchIndex.search("bread", Map.of("priority", "URGENT"), 10));
+    }
+
+    @Test
+    void whenLimit_thenKeepTheBestMatches() {
+        assertThat(search("bread", Map.of(), 2), is(List.of(3, 1)));
+    }
+
+    @Test
+    void whenTaskUpdated_thenReindexItsWords() {
+        taskSearchIndex.onTasksWritten(List.of(buildView(1, "Buy oat milk", true, TaskPriority.HIGH, 1)));
+
+        assertThat(search("bread", Map.of()), is(List.of(3, 2)));
+        assertThat(search("oat", Map.of("completed", "true")), is(List.of(1)));
+    }
+
+    @Test
+    void whenOlderVersionArrivesLate_thenKeepTheNewerOne() {
+        taskSearchIndex.onTasksWritten(List.of(buildView(1, "Buy oat milk", false, TaskPriority.HIGH, 2)));
+        taskSearchIndex.onTasksWritten(List.of(buildView(1, "Buy soy milk", false, TaskPriority.HIGH, 1)));
+
+        assertThat(search("oat", Map.of()), is(List.of(1)));
+        assertThat(search("soy", Map.of()), is(List.of()));
+    }
+
+    @Test
+    void whenTaskCreatedAndDeleted_thenAddAndDropIt() {
+        taskSearchIndex.onTasksWritten(List.of(buildView(5, "Bread", false, TaskPriority.LOW, 0)));
+        taskSearchIndex.onTaskChanged(new TaskChangedEvent(TaskChangedEvent.Type.DELETED, 3, 0, Set.of()));
+
+        assertThat(search("bread", Map.of()), is(List.of(1, 5, 2)));
+        assertThat(taskSearchIndex.size(), is(4));
+    }
+
+    @Test
+    void whenBulkWrite_thenRebuildWhileStillAnswering() throws Exception {
+        when(taskRepository.findViews(any(), any(), eq(TaskSearchIndex.LOAD_CHUNK_SIZE), eq(TaskField.ALL)))
+                .thenReturn(List.of(buildView(1, "Buy milk and bread", true, TaskPriority.HIGH, 1)));
+
+        taskSearchIndex.onTaskChanged(TaskChangedEvent.bulk(TaskChangedEvent.Type.BULK_UPDATED, Set.of(TaskField.COMPLETED)));
+        assertThat(taskSearchIndex.search("bread", Map.of(), 10).isPresent(), is(true));
+        for (int i = 0; i < 500 && taskSearchIndex.size() != 1; i++) {
+            Thread.sleep(10);
+        }
+
+        assertThat(search("bread", Map.of("completed", "true")), is(List.of(1)));
+    }
+
+    @Test
+    void whenDisabled_thenIgnoreWritesAndAnswerNothing() {
+        TaskSearchIndex disabled = new TaskSearchIndex(taskRepository, false);
+
+        disabled.onApplicationReady();
+        disabled.onTaskChanged(new TaskChangedEvent(TaskChangedEvent.Type.DELETED, 1, 0, Set.of()));
+
+        assertThat(disabled.search("bread", Map.of(), 10).isPresent(), is(false));
+    }
+
+    private List<Integer> search(String query, Map<String, String> filter) {
+        return search(query, filter, 10);
+    }
+
+    private List<Integer> search(String query, Map<String, String> filter, int limit) {
+        return taskSearchIndex.search(query, filter, limit).orElseThrow();
+    }
+
+    private TaskView buildView(int taskId, String description, boolean completed, TaskPriority priority, int version,
+                               String... subTasks) {
+        List<SubTaskView> subTaskViews = Arrays.stream(subTasks)
+                .map(subTask -> new SubTaskView(taskId * 10, subTask, false, taskId, 0))
+                .collect(Collectors.toList());
+        return new TaskView(taskId, description, completed, priority, null, null, version, subTaskViews);
+    }
+}
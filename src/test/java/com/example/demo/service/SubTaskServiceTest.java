@@ -0,0 +1,155 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.SubTaskEntity;
+import com.example.demo.entity.TaskEntity;
+import com.example.demo.event.TaskChangedEvent;
+import com.example.demo.event.TaskCountsChangedEvent;
+import com.example.demo.repository.SubTaskRepository;
+import com.example.demo.repository.TaskRepository;
+import com.example.demo.util.SubTaskCursor;
+import com.example.demo.util.SubTaskPage;
+import com.example.demo.util.TaskCounts;
+import com.example.demo.util.TaskField;
+import com.example.demo.view.SubTaskView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class SubTaskServiceTest {
+
+    SubTaskService subTaskService;
+
+    @Mock
+    SubTaskRepository subTaskRepository;
+
+    @Mock
+    TaskRepository taskRepository;
+
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    @BeforeEach
+    void initUseCase() {
+        subTaskService = new SubTaskService(subTaskRepository, taskRepository, eventPublisher);
+    }
+
+    @Test
+    void whenGetSubTasksAndMoreSubTasks_thenReturnNextCursor() {
+        when(subTaskRepository.findViewsAfter(1, 0, 5, PageRequest.of(0, 3)))
+                .thenReturn(List.of(buildView(6, 0), buildView(7, 1), buildView(8, 2)));
+
+        Optional<SubTaskPage> result = subTaskService.getSubTasks(1, new SubTaskCursor(0, 5), 2);
+
+        assert result.isPresent();
+        assert result.get().getSubTasks().size() == 2;
+        assert result.get().getNext().equals(new SubTaskCursor(1, 7));
+        assert SubTaskCursor.decode(result.get().getNext().encode()).equals(result.get().getNext());
+    }
+
+    @Test
+    void whenGetSubTasksOfMissingTask_thenReturnEmpty() {
+        when(subTaskRepository.findViewsAfter(eq(1), anyInt(), anyInt(), any()))
+                .thenReturn(List.of());
+        when(taskRepository.existsById(1))
+                .thenReturn(false);
+
+        assert subTaskService.getSubTasks(1, null, 10).isEmpty();
+    }
+
+    @Test
+    void whenCreateSubTask_thenAttachToTaskAndBumpVersion() {
+        TaskEntity task = new TaskEntity();
+        task.setTaskId(1);
+        SubTaskEntity subTask = new SubTaskEntity(9, "subtask", false, 0, 1, null);
+        when(taskRepository.incrementVersion(eq(1), any()))
+                .thenReturn(1);
+        when(taskRepository.getReferenceById(1))
+                .thenReturn(task);
+        when(taskRepository.findVersionById(1))
+                .thenReturn(Optional.of(3));
+        when(subTaskRepository.save(subTask))
+                .thenReturn(subTask);
+
+        Optional<SubTaskEntity> result = subTaskService.createSubTask(1, subTask);
+
+        assert result.isPresent();
+        assert result.get().getSubTaskId() == 0;
+        assert result.get().getTask() == task;
+        verify(eventPublisher).publishEvent(new TaskChangedEvent(TaskChangedEvent.Type.UPDATED, 1, 3,
+                Set.of(TaskField.SUB_TASKS)));
+    }
+
+    @Test
+    void whenCreateSubTaskOfMissingTask_thenReturnEmpty() {
+        when(taskRepository.incrementVersion(eq(1), any()))
+                .thenReturn(0);
+
+        assert subTaskService.createSubTask(1, new SubTaskEntity()).isEmpty();
+        verify(subTaskRepository, never()).save(any());
+    }
+
+    @Test
+    void whenToggleSubTask_thenBumpVersionAndPublish() {
+        when(subTaskRepository.toggleCompleted(1, 5))
+                .thenReturn(1);
+        when(taskRepository.findVersionById(1))
+                .thenReturn(Optional.of(2));
+
+        assert subTaskService.toggleSubTask(1, 5);
+        verify(taskRepository).incrementVersion(eq(1), any());
+        verify(eventPublisher).publishEvent(new TaskChangedEvent(TaskChangedEvent.Type.UPDATED, 1, 2,
+                Set.of(TaskField.SUB_TASKS)));
+    }
+
+    @Test
+    void whenToggleSubTask_thenCountItsNewState() {
+        when(subTaskRepository.toggleCompleted(1, 5))
+                .thenReturn(1);
+        when(subTaskRepository.findViewById(1, 5))
+                .thenReturn(Optional.of(new SubTaskView(5, "subtask 5", true, 1, 0)));
+
+        assert subTaskService.toggleSubTask(1, 5);
+        verify(eventPublisher).publishEvent(new TaskCountsChangedEvent(new TaskCounts().addSubTasks(0, 1)));
+    }
+
+    @Test
+    void whenUpdateSubTaskCompletion_thenCountTheChange() {
+        when(subTaskRepository.findViewById(1, 5))
+                .thenReturn(Optional.of(new SubTaskView(5, "subtask", true, 1, 2)));
+        when(subTaskRepository.updateSubTask(1, 5, "subtask", false, 2))
+                .thenReturn(1);
+
+        assert subTaskService.updateSubTask(1, 5, new SubTaskEntity(0, "subtask", false, 0, 2, null));
+        verify(eventPublisher).publishEvent(new TaskCountsChangedEvent(new TaskCounts().addSubTasks(0, -1)));
+    }
+
+    @Test
+    void whenUpdateMissingSubTask_thenLeaveTaskAlone() {
+        when(subTaskRepository.updateSubTask(1, 5, "subtask", true, 2))
+                .thenReturn(0);
+
+        assert !subTaskService.updateSubTask(1, 5, new SubTaskEntity(0, "subtask", true, 0, 2, null));
+        verify(taskRepository, never()).incrementVersion(anyInt(), any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    private SubTaskView buildView(int id, int priority) {
+        return new SubTaskView(id, "subtask " + id, false, 1, priority);
+    }
+}
@@ -1,16 +1,62 @@
 package com.example.demo.service;
 
+import com.example.demo.cache.TaskCache;
+import com.example.demo.cache.TaskListCache;
+import com.example.demo.entity.SubTaskEntity;
 import com.example.demo.entity.TaskEntity;
 import com.example.demo.entity.TaskPriority;
+import com.example.demo.entity.TaskTombstone;
+import com.example.demo.event.TaskChangedEvent;
+import com.example.demo.event.TaskCountsChangedEvent;
+import com.example.demo.readmodel.TaskReadModel;
 import com.example.demo.repository.TaskRepository;
+import com.example.demo.repository.TaskTombstoneRepository;
+import com.example.demo.search.TaskSearchIndex;
+import com.example.demo.util.BulkResult;
+import com.example.demo.util.SortDirection;
+import com.example.demo.util.SortField;
+import com.example.demo.util.SyncToken;
+import com.example.demo.util.TaskBulkUpdate;
+import com.example.demo.util.TaskChanges;
+import com.example.demo.util.TaskCounts;
+import com.example.demo.util.TaskCursor;
+import com.example.demo.util.TaskField;
+import com.example.demo.util.TaskPage;
+import com.example.demo.util.TaskPatch;
+import com.example.demo.view.SubTaskView;
+import com.example.demo.view.TaskView;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
 
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -21,23 +67,27 @@ public class TaskServiceTest {
     @Mock
     TaskRepository taskRepository;
 
+    @Mock
+    TaskTombstoneRepository taskTombstoneRepository;
+
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
     @BeforeEach
     void initUseCase() {
-        taskService = new TaskService(taskRepository);
+        taskService = new TaskService(taskRepository, taskTombstoneRepository, new TaskCache(100, Duration.ofMinutes(1)),
+                new TaskListCache(100, Duration.ofMinutes(1)), new TaskReadModel(taskRepository, false),
+                new TaskSearchIndex(taskRepository, false), eventPublisher, Duration.ofSeconds(5), Duration.ofDays(7));
     }
 
     @Test
     void whenGetSingleTask_thenReturnSingleTask() {
-        TaskEntity task = new TaskEntity();
-        task.setTaskId(1);
-        task.setDescription("task 1");
-        task.setCompleted(false);
-        task.setPriority(TaskPriority.LOW);
+        TaskView task = new TaskView(1, "task 1", false, TaskPriority.LOW, null, null, 0, List.of());
 
-        when(taskRepository.findById(1))
+        when(taskRepository.findViewById(1))
                 .thenReturn(Optional.of(task));
 
-        Optional<TaskEntity> result = taskService.getTaskById(1);
+        Optional<TaskView> result = taskService.getTaskById(1);
 
         assert result.isPresent();
         assert result.get().getTaskId() == 1;
@@ -48,14 +98,28 @@ public class TaskServiceTest {
 
     @Test
     void whenGetSingleTask_thenReturnEmpty() {
-        when(taskRepository.findById(1))
+        when(taskRepository.findViewById(1))
                 .thenReturn(Optional.empty());
 
-        Optional<TaskEntity> result = taskService.getTaskById(1);
+        Optional<TaskView> result = taskService.getTaskById(1);
 
         assert result.isEmpty();
     }
 
+    @Test
+    void whenGetSingleTaskTwice_thenLoadOnce() {
+        TaskView task = new TaskView(1, "task 1", false, TaskPriority.LOW, null, null, 0, List.of());
+
+        when(taskRepository.findViewById(1))
+                .thenReturn(Optional.of(task));
+
+        taskService.getTaskById(1);
+        Optional<TaskView> result = taskService.getTaskById(1);
+
+        assert result.isPresent();
+        verify(taskRepository, times(1)).findViewById(1);
+    }
+
     @Test
     void whenCreateTask_thenReturnTask() {
         TaskEntity task = new TaskEntity();
@@ -75,6 +139,21 @@ public class TaskServiceTest {
         assert result.getPriority().equals(TaskPriority.LOW);
     }
 
+    @Test
+    void whenCreateTasks_thenInsertNewTasksWithAttachedSubTasks() {
+        TaskEntity task = buildTask(7, TaskPriority.LOW);
+        SubTaskEntity subTask = new SubTaskEntity();
+        subTask.setSubTaskId(9);
+        task.setSubTasks(Set.of(subTask));
+
+        List<TaskEntity> result = taskService.createTasks(List.of(task));
+
+        verify(taskRepository).insertAll(List.of(task));
+        assert result.get(0).getTaskId() == 0;
+        assert subTask.getSubTaskId() == 0;
+        assert subTask.getTask() == task;
+    }
+
     @Test
     void whenUpdateTask_thenReturnTask() {
         TaskEntity task = new TaskEntity();
@@ -85,35 +164,389 @@ public class TaskServiceTest {
 
         when(taskRepository.findById(1))
                 .thenReturn(Optional.of(task));
-        when(taskRepository.save(task))
+        when(taskRepository.saveAndFlush(task))
                 .thenReturn(task);
 
-        Optional<TaskEntity> result = taskService.updateTask(1, task);
+        Optional<TaskEntity> result = taskService.updateTask(1, new TaskEntity("task 1", true, TaskPriority.HIGH, null));
 
+        verify(eventPublisher).publishEvent(new TaskChangedEvent(TaskChangedEvent.Type.UPDATED, 1, 0,
+                Set.of(TaskField.COMPLETED, TaskField.PRIORITY),
+                new TaskView(1, "task 1", true, TaskPriority.HIGH, null, null, 0, List.of())));
+        verify(eventPublisher).publishEvent(new TaskCountsChangedEvent(new TaskCounts()
+                .addTasks(TaskPriority.LOW, false, -1)
+                .addTasks(TaskPriority.HIGH, true, 1)));
         assert result.isPresent();
         assert result.get().getTaskId() == 1;
         assert result.get().getDescription().equals("task 1");
-        assert !result.get().isCompleted();
-        assert result.get().getPriority().equals(TaskPriority.LOW);
+        assert result.get().isCompleted();
+        assert result.get().getPriority().equals(TaskPriority.HIGH);
     }
 
     @Test
-    void whenDeleteTask_thenReturnTask() {
-        TaskEntity task = new TaskEntity();
-        task.setTaskId(1);
-        task.setDescription("task 1");
-        task.setCompleted(false);
-        task.setPriority(TaskPriority.LOW);
+    void whenUpdateTaskWithStaleVersion_thenThrowAndDoNotSave() {
+        TaskEntity task = buildTask(1, TaskPriority.LOW);
+        task.setVersion(3);
 
         when(taskRepository.findById(1))
                 .thenReturn(Optional.of(task));
 
-        Optional<TaskEntity> result = taskService.deleteTask(1);
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> taskService.updateTask(1, buildTask(1, TaskPriority.HIGH), OptionalInt.of(2)));
+        verify(taskRepository, never()).save(any());
+    }
+
+    @Test
+    void whenGetCachedTaskVersion_thenDoNotQuery() {
+        when(taskRepository.findViewById(1))
+                .thenReturn(Optional.of(new TaskView(1, "task 1", false, TaskPriority.LOW, null, null, 4, List.of())));
+
+        taskService.getTaskById(1);
+        Optional<Integer> result = taskService.getTaskVersion(1);
+
+        assert result.equals(Optional.of(4));
+        verify(taskRepository, never()).findVersionById(anyInt());
+    }
+
+    @Test
+    void whenPatchTask_thenOnlySetSuppliedFields() {
+        TaskEntity task = buildTask(1, TaskPriority.LOW);
+        task.setCompleted(true);
+
+        when(taskRepository.findById(1))
+                .thenReturn(Optional.of(task));
+        when(taskRepository.saveAndFlush(task))
+                .thenReturn(task);
+
+        Optional<TaskEntity> result = taskService.patchTask(1, new TaskPatch("renamed", null, null, null),
+                OptionalInt.empty());
 
         assert result.isPresent();
-        assert result.get().getTaskId() == 1;
-        assert result.get().getDescription().equals("task 1");
-        assert !result.get().isCompleted();
+        assert result.get().getDescription().equals("renamed");
+        assert result.get().isCompleted();
         assert result.get().getPriority().equals(TaskPriority.LOW);
+        assert result.get().getUpdated() == null;
+    }
+
+    @Test
+    void whenPatchSubTaskInPlace_thenTouchTask() {
+        TaskEntity task = buildTask(1, TaskPriority.LOW);
+        task.setSubTasks(new HashSet<>(Set.of(new SubTaskEntity(10, "subtask", false, 1, 0, task))));
+
+        when(taskRepository.findById(1))
+                .thenReturn(Optional.of(task));
+        when(taskRepository.saveAndFlush(task))
+                .thenReturn(task);
+
+        Optional<TaskEntity> result = taskService.patchTask(1, new TaskPatch(null, null, null,
+                List.of(new SubTaskEntity(10, "subtask", true, 1, 0, null))), OptionalInt.empty());
+
+        assert result.isPresent();
+        assert result.get().getUpdated() != null;
+    }
+
+    @Test
+    void whenMergeSubTasks_thenKeepUnchangedUpdateChangedAndRemoveMissing() {
+        TaskEntity task = buildTask(1, TaskPriority.LOW);
+        SubTaskEntity unchanged = new SubTaskEntity(10, "unchanged", false, 1, 0, task);
+        SubTaskEntity changed = new SubTaskEntity(11, "changed", false, 1, 1, task);
+        SubTaskEntity missing = new SubTaskEntity(12, "missing", false, 1, 2, task);
+        task.setSubTasks(new HashSet<>(Set.of(unchanged, changed, missing)));
+        SubTaskEntity added = new SubTaskEntity(99, "added", false, 0, 3, null);
+
+        boolean modified = TaskService.mergeSubTasks(task, List.of(
+                new SubTaskEntity(10, "unchanged", false, 1, 0, null),
+                new SubTaskEntity(11, "changed", true, 1, 1, null),
+                added));
+
+        assert modified;
+        assert task.getSubTasks().equals(Set.of(unchanged, changed, added));
+        assert changed.isCompleted();
+        assert added.getSubTaskId() == 0;
+        assert added.getTask() == task;
+    }
+
+    @Test
+    void whenMergeSameSubTasks_thenReportNoChange() {
+        TaskEntity task = buildTask(1, TaskPriority.LOW);
+        SubTaskEntity subTask = new SubTaskEntity(10, "same", false, 1, 0, task);
+        task.setSubTasks(new HashSet<>(Set.of(subTask)));
+
+        boolean modified = TaskService.mergeSubTasks(task, List.of(new SubTaskEntity(10, "same", false, 1, 0, null)));
+
+        assert !modified;
+        assert task.getSubTasks().equals(Set.of(subTask));
+    }
+
+    @Test
+    void whenDeleteUncachedTask_thenCountItWithOneRowAndDelete() {
+        when(taskRepository.countTask(1))
+                .thenReturn(new TaskCounts().addTasks(TaskPriority.LOW, false, 1).addSubTasks(2, 1));
+        when(taskRepository.deleteTaskById(1))
+                .thenReturn(1);
+
+        boolean result = taskService.deleteTask(1);
+
+        verify(eventPublisher).publishEvent(new TaskChangedEvent(TaskChangedEvent.Type.DELETED, 1, 0, Set.of()));
+        verify(eventPublisher).publishEvent(new TaskCountsChangedEvent(new TaskCounts()
+                .addTasks(TaskPriority.LOW, false, -1).addSubTasks(-2, -1)));
+        verify(taskTombstoneRepository).save(any(TaskTombstone.class));
+        verify(taskRepository, never()).findById(anyInt());
+        verify(taskRepository, never()).countTasks(any());
+        assert result;
+    }
+
+    @Test
+    void whenDeleteCachedTask_thenTakeTheCountsFromTheCache() {
+        when(taskRepository.findViewById(1)).thenReturn(Optional.of(new TaskView(1, "task 1", true, TaskPriority.HIGH,
+                null, null, 0, List.of(new SubTaskView(10, "subtask", true, 1, 0)))));
+        when(taskRepository.deleteTaskById(1))
+                .thenReturn(1);
+        taskService.getTaskById(1);
+
+        assert taskService.deleteTask(1);
+
+        verify(eventPublisher).publishEvent(new TaskCountsChangedEvent(new TaskCounts()
+                .addTasks(TaskPriority.HIGH, true, -1).addSubTasks(-1, -1)));
+        verify(taskRepository, never()).countTask(anyInt());
+    }
+
+    @Test
+    void whenDeleteMissingTask_thenReturnFalse() {
+        when(taskRepository.deleteTaskById(1))
+                .thenReturn(0);
+
+        assert !taskService.deleteTask(1);
+        verify(eventPublisher, never()).publishEvent(any());
+        verify(taskTombstoneRepository, never()).save(any());
+    }
+
+    @Test
+    void whenDeleteTaskWithStaleVersion_thenThrow() {
+        when(taskRepository.deleteTaskByIdAndVersion(1, 2))
+                .thenReturn(0);
+        when(taskRepository.findVersionById(1))
+                .thenReturn(Optional.of(3));
+
+        assertThrows(OptimisticLockingFailureException.class, () -> taskService.deleteTask(1, OptionalInt.of(2)));
+    }
+
+    @Test
+    void whenGetTaskPageAndMoreTasks_thenReturnNextCursor() {
+        when(taskRepository.findViews(any(), any(Sort.class), eq(3), eq(TaskField.ALL)))
+                .thenReturn(List.of(buildView(1, TaskPriority.LOW), buildView(4, TaskPriority.LOW),
+                        buildView(2, TaskPriority.HIGH)));
+
+        TaskPage result = taskService.getTaskPage(Map.of(), SortField.PRIORITY, SortDirection.ASC, null, 2, TaskField.ALL);
+
+        assert result.getTasks().size() == 2;
+        assert result.getNext().equals(new TaskCursor(SortField.PRIORITY, SortDirection.ASC, "LOW", 4));
+        assert TaskCursor.decode(result.getNext().encode()).equals(result.getNext());
+    }
+
+    @Test
+    void whenGetTaskPageAndLastPage_thenReturnNoCursor() {
+        when(taskRepository.findViews(any(), any(Sort.class), eq(3), eq(TaskField.ALL)))
+                .thenReturn(List.of(buildView(2, TaskPriority.HIGH)));
+
+        TaskPage result = taskService.getTaskPage(Map.of("priority", "HIGH"), SortField.PRIORITY, SortDirection.ASC,
+                new TaskCursor(SortField.PRIORITY, SortDirection.ASC, "LOW", 4), 2, TaskField.ALL);
+
+        assert result.getTasks().size() == 1;
+        assert result.getNext() == null;
+    }
+
+    @Test
+    void whenGetAllTasksTwiceWithSameFilter_thenQueryOnce() {
+        when(taskRepository.findViews(any(), any(Sort.class), eq(-1), eq(TaskField.ALL)))
+                .thenReturn(List.of(buildView(2, TaskPriority.HIGH)));
+
+        taskService.getAllTasks(Map.of("priority", "HIGH", "sortField", "PRIORITY"), Sort.by("priority"), TaskField.ALL);
+        List<TaskView> result = taskService.getAllTasks(Map.of("priority", "HIGH"), Sort.by("priority"), TaskField.ALL);
+
+        assert result.size() == 1;
+        verify(taskRepository, times(1)).findViews(any(), any(Sort.class), eq(-1), eq(TaskField.ALL));
+    }
+
+    @Test
+    void whenReadModelIsLoaded_thenReadOnlyThePageByIdAndCacheIt() throws Exception {
+        TaskReadModel taskReadModel = new TaskReadModel(taskRepository, true);
+        TaskService readModelService = new TaskService(taskRepository, taskTombstoneRepository,
+                new TaskCache(100, Duration.ofMinutes(1)), new TaskListCache(100, Duration.ofMinutes(1)),
+                taskReadModel, new TaskSearchIndex(taskRepository, false), eventPublisher, Duration.ofSeconds(5),
+                Duration.ofDays(7));
+        when(taskRepository.findViews(any(), any(Sort.class), anyInt(), any()))
+                .thenReturn(List.of(buildView(1, TaskPriority.LOW), buildView(2, TaskPriority.HIGH),
+                        buildView(3, TaskPriority.LOW), buildView(4, TaskPriority.HIGH)));
+        taskReadModel.onApplicationReady();
+        for (int i = 0; i < 500 && !taskReadModel.isReady(); i++) {
+            Thread.sleep(10);
+        }
+        when(taskRepository.findViews(any(), eq(Sort.unsorted()), eq(-1), eq(TaskField.ALL)))
+                .thenReturn(List.of(buildView(2, TaskPriority.HIGH), buildView(1, TaskPriority.LOW),
+                        buildView(3, TaskPriority.LOW)));
+
+        readModelService.getTaskPage(Map.of(), SortField.PRIORITY, SortDirection.ASC, null, 2, TaskField.ALL);
+        TaskPage result = readModelService.getTaskPage(Map.of(), SortField.PRIORITY, SortDirection.ASC, null, 2,
+                TaskField.ALL);
+        taskReadModel.shutdown();
+
+        assert result.getTasks().stream().map(TaskView::getTaskId).collect(Collectors.toList()).equals(List.of(1, 3));
+        assert result.getNext().equals(new TaskCursor(SortField.PRIORITY, SortDirection.ASC, "LOW", 3));
+        verify(taskRepository, times(1)).findViews(any(), eq(Sort.unsorted()), eq(-1), eq(TaskField.ALL));
+        verify(taskRepository, never()).findViews(any(), any(Sort.class), eq(3), any());
+    }
+
+    @Test
+    void whenSearchTasks_thenReadThemInRankOrderAndSkipDeletedOnes() {
+        TaskSearchIndex taskSearchIndex = mock(TaskSearchIndex.class);
+        TaskService searchingService = new TaskService(taskRepository, taskTombstoneRepository,
+                new TaskCache(100, Duration.ofMinutes(1)), new TaskListCache(100, Duration.ofMinutes(1)),
+                new TaskReadModel(taskRepository, false), taskSearchIndex, eventPublisher, Duration.ofSeconds(5),
+                Duration.ofDays(7));
+        when(taskSearchIndex.search("milk", Map.of(), 10)).thenReturn(Optional.of(List.of(3, 1, 2)));
+        when(taskRepository.findViews(any(), any(Sort.class), eq(-1), eq(TaskField.ALL)))
+                .thenReturn(List.of(buildView(1, TaskPriority.LOW), buildView(3, TaskPriority.HIGH)));
+
+        List<TaskView> result = searchingService.searchTasks("milk", Map.of(), 10, TaskField.ALL).orElseThrow();
+
+        assert result.stream().map(TaskView::getTaskId).collect(Collectors.toList()).equals(List.of(3, 1));
+    }
+
+    @Test
+    void whenSearchTasksBeforeIndexIsBuilt_thenAnswerNothing() {
+        assert taskService.searchTasks("milk", Map.of(), 10, TaskField.ALL).isEmpty();
+        verify(taskRepository, never()).findViews(any(), any(Sort.class), anyInt(), any());
+    }
+
+    @Test
+    void whenGetTaskWithSomeFieldsAndNotCached_thenQueryOnlyThoseFields() {
+        Set<TaskField> fields = EnumSet.of(TaskField.TASK_ID, TaskField.DESCRIPTION);
+        when(taskRepository.findViewById(1, fields))
+                .thenReturn(Optional.of(buildView(1, TaskPriority.LOW)));
+
+        Optional<TaskView> result = taskService.getTaskById(1, fields);
+
+        assert result.isPresent();
+        verify(taskRepository, never()).findViewById(1);
+    }
+
+    @Test
+    void whenGetTaskPageWithCursorForOtherSort_thenThrow() {
+        TaskCursor cursor = new TaskCursor(SortField.CREATED, SortDirection.ASC, null, 4);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> taskService.getTaskPage(Map.of(), SortField.PRIORITY, SortDirection.ASC, cursor, 2, TaskField.ALL));
+    }
+
+    @Test
+    void whenExportTasks_thenVisitAndDetachEveryTask() {
+        TaskEntity task1 = buildTask(1, TaskPriority.LOW);
+        TaskEntity task2 = buildTask(2, TaskPriority.HIGH);
+        when(taskRepository.streamAll()).thenReturn(Stream.of(task1, task2));
+
+        List<TaskEntity> exported = new ArrayList<>();
+        taskService.exportTasks(exported::add);
+
+        assert exported.equals(List.of(task1, task2));
+        verify(taskRepository).detach(task1);
+        verify(taskRepository).detach(task2);
+    }
+
+    @Test
+    void whenBulkUpdateTasks_thenReturnAffectedRowsAndMoveCounts() {
+        when(taskRepository.countTasks(any()))
+                .thenReturn(new TaskCounts().addTasks(TaskPriority.LOW, false, 3).addTasks(TaskPriority.LOW, true, 2));
+        when(taskRepository.bulkUpdate(any(), eq(true), eq(null), any()))
+                .thenReturn(5);
+
+        BulkResult result = taskService.updateTasks(Map.of("priority", "LOW"), null, new TaskBulkUpdate(true, null));
+
+        assert result.getAffected() == 5;
+        verify(eventPublisher).publishEvent(new TaskCountsChangedEvent(new TaskCounts()
+                .addTasks(TaskPriority.LOW, false, -3).addTasks(TaskPriority.LOW, true, 3)));
+    }
+
+    @Test
+    void whenBulkUpdateWithoutChanges_thenThrow() {
+        assertThrows(IllegalArgumentException.class,
+                () -> taskService.updateTasks(Map.of("priority", "LOW"), null, new TaskBulkUpdate()));
+    }
+
+    @Test
+    void whenBulkDeleteTasks_thenReturnAffectedRowsAndWriteTombstones() {
+        when(taskRepository.findIdsForUpdate(any()))
+                .thenReturn(List.of(1, 2));
+        when(taskRepository.countTasks(any()))
+                .thenReturn(new TaskCounts().addTasks(TaskPriority.HIGH, true, 2));
+        when(taskRepository.bulkDelete(any()))
+                .thenReturn(2);
+
+        BulkResult result = taskService.deleteTasks(Map.of(), List.of(1, 2));
+
+        assert result.getAffected() == 2;
+        verify(eventPublisher).publishEvent(new TaskCountsChangedEvent(new TaskCounts()
+                .addTasks(TaskPriority.HIGH, true, -2)));
+        verify(taskTombstoneRepository).saveAll(argThat(tombstones -> {
+            List<Integer> ids = new ArrayList<>();
+            tombstones.forEach(tombstone -> ids.add(tombstone.getTaskId()));
+            return ids.equals(List.of(1, 2));
+        }));
+    }
+
+    @Test
+    void whenGetChanges_thenMergeChangedAndDeletedTasksInOrder() {
+        Instant since = Instant.now().minusSeconds(60);
+        when(taskRepository.findViews(any(), any(Sort.class), eq(4), eq(TaskField.ALL)))
+                .thenReturn(List.of(buildChangedView(1, since.plusSeconds(1)), buildChangedView(3, since.plusSeconds(3))));
+        when(taskTombstoneRepository.findAfter(any(), eq(0), any()))
+                .thenReturn(List.of(new TaskTombstone(2, Timestamp.from(since.plusSeconds(2))),
+                        new TaskTombstone(4, Timestamp.from(since.plusSeconds(4)))));
+
+        TaskChanges changes = taskService.getChanges(SyncToken.of(since), 3, TaskField.ALL).orElseThrow();
+
+        assert changes.getTasks().stream().map(TaskView::getTaskId).collect(Collectors.toList()).equals(List.of(1, 3));
+        assert changes.getDeleted().equals(List.of(2));
+        assert changes.isMore();
+        assert changes.getNext().equals(new SyncToken(since.plusSeconds(3), 3));
+    }
+
+    @Test
+    void whenGetAllChanges_thenNextTokenTrailsTheClock() {
+        Instant since = Instant.now().minusSeconds(60);
+        when(taskRepository.findViews(any(), any(Sort.class), eq(101), eq(TaskField.ALL)))
+                .thenReturn(List.of(buildChangedView(1, since.plusSeconds(1))));
+
+        TaskChanges changes = taskService.getChanges(SyncToken.of(since), 100, TaskField.ALL).orElseThrow();
+
+        assert !changes.isMore();
+        assert changes.getNext().getChanged().isAfter(since.plusSeconds(1));
+        assert changes.getNext().getChanged().isBefore(Instant.now().minusSeconds(4));
+    }
+
+    @Test
+    void whenGetChangesWithExpiredToken_thenReturnEmpty() {
+        assert taskService.getChanges(SyncToken.of(Instant.now().minus(Duration.ofDays(8))), 100, TaskField.ALL).isEmpty();
+        verify(taskRepository, never()).findViews(any(), any(Sort.class), anyInt(), any());
+    }
+
+    @Test
+    void whenBulkDeleteWithoutCriteria_thenThrow() {
+        assertThrows(IllegalArgumentException.class, () -> taskService.deleteTasks(Map.of("sortField", "PRIORITY"), null));
+    }
+
+    private TaskView buildChangedView(int id, Instant updated) {
+        return new TaskView(id, "task " + id, false, TaskPriority.LOW, null, Timestamp.from(updated), 1, List.of());
+    }
+
+    private TaskView buildView(int id, TaskPriority priority) {
+        return new TaskView(id, "task " + id, false, priority, null, null, 0, List.of());
+    }
+
+    private TaskEntity buildTask(int id, TaskPriority priority) {
+        TaskEntity task = new TaskEntity();
+        task.setTaskId(id);
+        task.setDescription("task " + id);
+        task.setPriority(priority);
+        return task;
     }
 }
@@ -0,0 +1,92 @@
+package com.example.demo.stats;
+
+import com.example.demo.entity.TaskPriority;
+import com.example.demo.event.TaskCountsChangedEvent;
+import com.example.demo.repository.TaskRepository;
+import com.example.demo.util.TaskCounts;
+import com.example.demo.util.TaskStatistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class TaskCountersTest {
+
+    @Mock
+    TaskRepository taskRepository;
+
+    TaskCounters taskCounters;
+
+    @BeforeEach
+    void setUp() {
+        taskCounters = new TaskCounters(taskRepository);
+    }
+
+    @Test
+    void whenReadTwice_thenCountInTheDatabaseOnce() {
+        when(taskRepository.countTasks(null))
+                .thenReturn(new TaskCounts().addTasks(TaskPriority.LOW, false, 3).addTasks(TaskPriority.LOW, true, 1));
+
+        taskCounters.getStatistics();
+        TaskStatistics statistics = taskCounters.getStatistics();
+
+        verify(taskRepository, times(1)).countTasks(null);
+        assertThat(statistics.getTasks(), is(4L));
+        assertThat(statistics.getCompletionRate(), is(0.25));
+        assertThat(statistics.getPriorities().get(TaskPriority.LOW).getOpen(), is(3L));
+        assertThat(statistics.getPriorities().get(TaskPriority.HIGH).getCompletionRate(), is(0.0));
+    }
+
+    @Test
+    void whenWriteCommitted_thenApplyItsChange() {
+        when(taskRepository.countTasks(null))
+                .thenReturn(new TaskCounts().addTasks(TaskPriority.LOW, false, 3).addSubTasks(2, 0));
+        taskCounters.getStatistics();
+
+        taskCounters.onTaskCountsChanged(new TaskCountsChangedEvent(new TaskCounts()
+                .addTasks(TaskPriority.LOW, false, -1)
+                .addTasks(TaskPriority.HIGH, true, 1)
+                .addSubTasks(0, 1)));
+
+        TaskStatistics statistics = taskCounters.getStatistics();
+        assertThat(statistics.getPriorities().get(TaskPriority.LOW).getOpen(), is(2L));
+        assertThat(statistics.getPriorities().get(TaskPriority.HIGH).getCompleted(), is(1L));
+        assertThat(statistics.getSubTaskCompletionRate(), is(0.5));
+    }
+
+    @Test
+    void whenWriteCommitsDuringReconciliation_thenKeepItsChange() {
+        when(taskRepository.countTasks(null)).thenAnswer(invocation -> {
+            taskCounters.onTaskCountsChanged(new TaskCountsChangedEvent(new TaskCounts()
+                    .addTasks(TaskPriority.MEDIUM, false, 1)));
+            return new TaskCounts().addTasks(TaskPriority.LOW, false, 5);
+        });
+
+        TaskCounts reconciled = taskCounters.reconcile();
+
+        assertThat(reconciled, is(new TaskCounts()
+                .addTasks(TaskPriority.LOW, false, 5)
+                .addTasks(TaskPriority.MEDIUM, false, 1)));
+    }
+
+    @Test
+    void whenDriftedFromTheDatabase_thenReconciliationReplacesTheCounts() {
+        when(taskRepository.countTasks(null))
+                .thenReturn(new TaskCounts().addTasks(TaskPriority.LOW, false, 3));
+        taskCounters.getStatistics();
+        taskCounters.onTaskCountsChanged(new TaskCountsChangedEvent(new TaskCounts()
+                .addTasks(TaskPriority.LOW, false, 10)));
+
+        taskCounters.reconcile();
+
+        assertThat(taskCounters.getStatistics().getTasks(), is(3L));
+    }
+}
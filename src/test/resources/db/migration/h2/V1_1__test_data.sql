@@ -2,4 +2,4 @@ INSERT INTO task_entity (description, completed, priority)
 VALUES ('Test 1', 0, 'LOW');
 
 INSERT INTO task_entity (description, completed, priority)
-VALUES ('Test 2', 0, 'HIGH');
\ No newline at end of file
+VALUES ('Test 2', 0, 'HIGH');
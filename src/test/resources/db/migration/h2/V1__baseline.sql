@@ -17,4 +17,4 @@ CREATE TABLE sub_task_entity
     PRIMARY KEY (sub_task_id),
     FOREIGN KEY (task_id) REFERENCES task_entity (task_id)
         ON DELETE CASCADE
-);
\ No newline at end of file
+);
@@ -0,0 +1,12 @@
+-- Same changes as the MySQL migration, with H2's own sequences in place of MySQL's sequence tables
+ALTER TABLE task_entity
+    ADD COLUMN version INT NOT NULL DEFAULT 0;
+
+-- Hibernate hands out ids in blocks of 50, so the sequences start after the ids AUTO_INCREMENT has already given out
+CREATE SEQUENCE task_entity_seq START WITH 1 INCREMENT BY 50;
+
+CREATE SEQUENCE sub_task_entity_seq START WITH 1 INCREMENT BY 50;
+
+ALTER SEQUENCE task_entity_seq RESTART WITH (SELECT COALESCE(MAX(task_id), 0) + 1 FROM task_entity);
+
+ALTER SEQUENCE sub_task_entity_seq RESTART WITH (SELECT COALESCE(MAX(sub_task_id), 0) + 1 FROM sub_task_entity);
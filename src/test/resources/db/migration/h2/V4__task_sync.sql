@@ -0,0 +1,15 @@
+-- Same changes as the MySQL migration
+ALTER TABLE task_entity ALTER COLUMN created SET DATA TYPE TIMESTAMP(6);
+
+ALTER TABLE task_entity ADD COLUMN updated TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6);
+
+CREATE INDEX idx_task_updated ON task_entity (updated, task_id);
+
+CREATE TABLE task_tombstone
+(
+    task_id INT          NOT NULL,
+    deleted TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (task_id)
+);
+
+CREATE INDEX idx_task_tombstone_deleted ON task_tombstone (deleted, task_id);